@@ -0,0 +1,140 @@
+package dark.cat.network;
+
+import dark.cat.annotations.Snapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replicates 20 KB of state from a {@link ReplicationServer} to a number of
+ * {@link ReplicationClient}s over loopback UDP, all in one JVM.
+ *
+ * <p>Each operation changes 64 of the 5000 replicated floats, publishes the tick and polls every
+ * client until it has applied it, so the score is the end-to-end replication time of one tick.
+ * The bytes sent per client per tick are printed after every iteration.
+ *
+ * <p>Run with {@code mvn -Pjmh package} and
+ * {@code java -jar target/benchmarks.jar ReplicationLoopbackBenchmark}.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class ReplicationLoopbackBenchmark {
+
+    private static final int STATE_FLOATS = 5000;
+    private static final int CHANGED_PER_TICK = 64;
+
+    // A tick not applied within this time is given up on, the next tick catches the client up
+    private static final long APPLY_TIMEOUT_NANOS = 100_000_000L;
+
+    /**
+     * The replicated world, one instance on the server and one per client.
+     */
+    public static class World {
+        @Snapshot float[] positions = new float[STATE_FLOATS];
+        @Snapshot int entities;
+    }
+
+    @Param({"1", "20"})
+    private int clients;
+
+    private World serverWorld;
+    private ReplicationServer server;
+    private ReplicationClient[] replicationClients;
+
+    private long tick;
+    private int cursor;
+    private long iterationBytes;
+    private long iterationTick;
+    private long timeouts;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        serverWorld = new World();
+        server = new ReplicationServer().register(serverWorld)
+                .bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+        replicationClients = new ReplicationClient[clients];
+        for (int i = 0; i < clients; i++) {
+            replicationClients[i] = new ReplicationClient().register(new World()).connect(server.getLocalAddress());
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (server.getClientCount() < clients) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Only " + server.getClientCount() + " of " + clients + " clients connected.");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (ReplicationClient client : replicationClients) {
+            client.close();
+        }
+        server.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        iterationBytes = server.getBytesSent();
+        iterationTick = tick;
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportIteration() {
+        long ticks = Math.max(1, tick - iterationTick);
+        System.out.println();
+        System.out.println(clients + " clients: " + (server.getBytesSent() - iterationBytes) / ticks / clients
+                + " bytes per client per tick, " + timeouts + " ticks timed out");
+    }
+
+    @Benchmark
+    public long replicateTick() throws IOException {
+        float[] positions = serverWorld.positions;
+        for (int i = 0; i < CHANGED_PER_TICK; i++) {
+            positions[cursor] += 1;
+            cursor = (cursor + 79) % STATE_FLOATS;
+        }
+        serverWorld.entities++;
+
+        server.publish(++tick);
+
+        long deadline = System.nanoTime() + APPLY_TIMEOUT_NANOS;
+        long applied = 0;
+        for (ReplicationClient client : replicationClients) {
+            while (client.getAppliedTick() < tick) {
+                client.poll();
+                if (System.nanoTime() > deadline) {
+                    timeouts++;
+                    break;
+                }
+            }
+            applied += client.getAppliedTick();
+        }
+        return applied;
+    }
+}
@@ -0,0 +1,97 @@
+package dark.cat.particles;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the scalar and the Vector API {@link ParticleKernels} on the same particles.
+ *
+ * <p>Run with {@code mvn -Pjmh package} and
+ * {@code java -jar target/benchmarks.jar ParticleKernelsBenchmark}.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class ParticleKernelsBenchmark {
+
+    @Param({"10000", "200000"})
+    private int particles;
+
+    @Param({"scalar", "vector"})
+    private String kernels;
+
+    private ParticleKernels implementation;
+
+    private float[] x;
+    private float[] y;
+    private float[] vx;
+    private float[] vy;
+    private float[] life;
+
+    // Pristine copies restored before each compaction, which removes particles
+    private float[] initialX;
+    private float[] initialY;
+    private float[] initialVx;
+    private float[] initialVy;
+    private float[] initialLife;
+
+    @Setup
+    public void setUp() {
+        implementation = kernels.equals("vector") ? new VectorParticleKernels() : ScalarParticleKernels.INSTANCE;
+
+        Random random = new Random(42);
+        initialX = new float[particles];
+        initialY = new float[particles];
+        initialVx = new float[particles];
+        initialVy = new float[particles];
+        initialLife = new float[particles];
+        for (int i = 0; i < particles; i++) {
+            initialX[i] = random.nextFloat() * 1920;
+            initialY[i] = random.nextFloat() * 1080;
+            initialVx[i] = random.nextFloat() * 200 - 100;
+            initialVy[i] = random.nextFloat() * 200 - 100;
+            // About a tenth of the particles are dead and get compacted away
+            initialLife[i] = random.nextFloat() * 2 - 0.2f;
+        }
+        x = initialX.clone();
+        y = initialY.clone();
+        vx = initialVx.clone();
+        vy = initialVy.clone();
+        life = initialLife.clone();
+    }
+
+    @Benchmark
+    public float integrate() {
+        implementation.integrate(x, y, vx, vy, life, 0, particles, 1 / 60f, 0, 98);
+        return x[particles - 1];
+    }
+
+    @Benchmark
+    public int restoreAndCompact() {
+        System.arraycopy(initialX, 0, x, 0, particles);
+        System.arraycopy(initialY, 0, y, 0, particles);
+        System.arraycopy(initialVx, 0, vx, 0, particles);
+        System.arraycopy(initialVy, 0, vy, 0, particles);
+        System.arraycopy(initialLife, 0, life, 0, particles);
+        return implementation.compact(x, y, vx, vy, life, 0, particles, 0, 0, 1920, 1080);
+    }
+}
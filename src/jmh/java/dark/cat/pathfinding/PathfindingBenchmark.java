@@ -0,0 +1,157 @@
+package dark.cat.pathfinding;
+
+import dark.cat.utils.ThreadManagerPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves 1k and 10k agents on a 256x256 grid with walls and rough terrain, comparing uncached
+ * A* batches, batches answered from a cold and a warm path cache, and flow fields towards 8
+ * shared goals.
+ *
+ * <p>Batches run on a pool of 4 workers. Every flow field operation edits a corner cell first,
+ * so the 8 fields are rebuilt before the agents read their directions.
+ *
+ * <p>Run with {@code mvn -Pjmh package} and
+ * {@code java -jar target/benchmarks.jar PathfindingBenchmark}.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class PathfindingBenchmark {
+
+    private static final int SIZE = 256;
+    private static final int SHARED_GOALS = 8;
+
+    @Param({"1000", "10000"})
+    private int agents;
+
+    private ThreadManagerPool pool;
+    private NavigationGrid grid;
+    private PathfindingManager uncached;
+    private PathfindingManager cached;
+    private PathfindingManager flowFields;
+
+    private int[] starts;
+    private int[] goals;
+    private int[] sharedGoals;
+    private Path[] paths;
+    private int edits;
+
+    @Setup
+    public void setUp() {
+        pool = new ThreadManagerPool(4, "pathfinding-benchmark");
+        grid = createGrid(new Random(7));
+
+        Random random = new Random(agents);
+        starts = new int[agents];
+        goals = new int[agents];
+        sharedGoals = new int[agents];
+        paths = new Path[agents];
+        int[] goalCells = new int[SHARED_GOALS];
+        for (int i = 0; i < SHARED_GOALS; i++) {
+            goalCells[i] = walkableCell(random);
+        }
+        for (int i = 0; i < agents; i++) {
+            starts[i] = walkableCell(random);
+            goals[i] = walkableCell(random);
+            sharedGoals[i] = goalCells[i % SHARED_GOALS];
+            paths[i] = new Path();
+        }
+
+        uncached = new PathfindingManager().setGrid(grid).setThreadManagerPool(pool).setCacheEnabled(false);
+        cached = new PathfindingManager().setGrid(grid).setThreadManagerPool(pool).setCacheCapacity(16_384);
+        flowFields = new PathfindingManager().setGrid(grid);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.close();
+    }
+
+    // Wall segments of 3 to 14 cells and rough cells costing up to 4
+    private static NavigationGrid createGrid(Random random) {
+        NavigationGrid grid = new NavigationGrid(SIZE, SIZE);
+        for (int i = 0; i < SIZE * SIZE / 40; i++) {
+            int x = random.nextInt(SIZE);
+            int y = random.nextInt(SIZE);
+            boolean horizontal = random.nextBoolean();
+            int length = 3 + random.nextInt(12);
+            for (int k = 0; k < length; k++) {
+                int cellX = horizontal ? x + k : x;
+                int cellY = horizontal ? y : y + k;
+                if (cellX < SIZE && cellY < SIZE) {
+                    grid.setBlocked(cellX, cellY, true);
+                }
+            }
+        }
+        for (int i = 0; i < SIZE * SIZE / 20; i++) {
+            int x = random.nextInt(SIZE);
+            int y = random.nextInt(SIZE);
+            if (grid.isWalkable(x, y)) {
+                grid.setCost(x, y, 1 + random.nextInt(4));
+            }
+        }
+        return grid;
+    }
+
+    private int walkableCell(Random random) {
+        int x;
+        int y;
+        do {
+            x = random.nextInt(SIZE);
+            y = random.nextInt(SIZE);
+        } while (!grid.isWalkable(x, y));
+        return grid.cell(x, y);
+    }
+
+    @Benchmark
+    public long uncachedBatch() {
+        uncached.findPaths(agents, starts, goals, paths);
+        return paths[agents - 1].getCost();
+    }
+
+    @Benchmark
+    public long cachedBatchCold() {
+        cached.clearCache();
+        cached.findPaths(agents, starts, goals, paths);
+        return paths[agents - 1].getCost();
+    }
+
+    @Benchmark
+    public long cachedBatchWarm() {
+        cached.findPaths(agents, starts, goals, paths);
+        return paths[agents - 1].getCost();
+    }
+
+    @Benchmark
+    public long flowFieldsRebuilt() {
+        grid.setCost(0, 0, ++edits % 2 == 0 ? 1 : 2);
+        long steps = 0;
+        for (int i = 0; i < agents; i++) {
+            FlowField field = flowFields.getFlowField(sharedGoals[i] % SIZE, sharedGoals[i] / SIZE);
+            steps += field.getDirectionX(starts[i] % SIZE, starts[i] / SIZE);
+        }
+        return steps;
+    }
+}
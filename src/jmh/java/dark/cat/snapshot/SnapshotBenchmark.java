@@ -0,0 +1,140 @@
+package dark.cat.snapshot;
+
+import dark.cat.annotations.Snapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link SnapshotManager} capture, restore and delta encoding over many components,
+ * and the raw {@link SnapshotSchema} accessors for a single component.
+ *
+ * <p>Each captured tick first moves a tenth of the bodies. The snapshot size and the size of
+ * the last delta are printed when a trial ends.
+ *
+ * <p>Run with {@code mvn -Pjmh package} and
+ * {@code java -jar target/benchmarks.jar SnapshotBenchmark}.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class SnapshotBenchmark {
+
+    /**
+     * A typical networked body: a few scalars and a small array.
+     */
+    public static class Body {
+        @Snapshot float x;
+        @Snapshot float y;
+        @Snapshot float vx;
+        @Snapshot float vy;
+        @Snapshot int health;
+        @Snapshot long flags;
+        @Snapshot boolean alive = true;
+        @Snapshot float[] cooldowns = new float[8];
+    }
+
+    @Param({"100", "1000"})
+    private int components;
+
+    private Body[] bodies;
+    private SnapshotManager manager;
+    private SnapshotSchema schema;
+    private ByteBuffer single;
+    private ByteBuffer delta;
+    private long tick;
+    private int cursor;
+    private int lastDeltaSize;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        bodies = new Body[components];
+        manager = new SnapshotManager().initialize(8);
+        for (int i = 0; i < components; i++) {
+            bodies[i] = new Body();
+            bodies[i].x = random.nextFloat() * 1000;
+            bodies[i].y = random.nextFloat() * 1000;
+            bodies[i].health = 100;
+            manager.register(bodies[i]);
+        }
+        manager.capture(0);
+        manager.capture(1);
+        tick = 1;
+
+        schema = SnapshotSchema.of(Body.class);
+        single = ByteBuffer.allocateDirect(schema.size(bodies[0]));
+        delta = ByteBuffer.allocateDirect(manager.getMaxDeltaSize());
+    }
+
+    @TearDown
+    public void report() {
+        System.out.println();
+        System.out.println(components + " components: " + manager.getSnapshotSize() + " bytes per snapshot"
+                + (lastDeltaSize > 0 ? ", " + lastDeltaSize + " bytes per delta" : ""));
+    }
+
+    // Moves a tenth of the bodies, as a game tick between two captures would
+    private void step() {
+        for (int i = 0; i < components / 10; i++) {
+            Body body = bodies[cursor];
+            body.x += 1;
+            body.y += 1;
+            cursor = (cursor + 7) % components;
+        }
+    }
+
+    @Benchmark
+    public int capture() {
+        step();
+        return manager.capture(++tick);
+    }
+
+    @Benchmark
+    public boolean restore() {
+        return manager.restore(tick);
+    }
+
+    @Benchmark
+    public int captureAndEncodeDelta() {
+        step();
+        manager.capture(++tick);
+        delta.clear();
+        lastDeltaSize = manager.encodeDelta(tick - 1, tick, delta);
+        return lastDeltaSize;
+    }
+
+    @Benchmark
+    public int writeSingle() {
+        single.clear();
+        schema.write(bodies[0], single);
+        return single.position();
+    }
+
+    @Benchmark
+    public int readSingle() {
+        single.clear();
+        schema.read(bodies[0], single);
+        return single.position();
+    }
+}
@@ -2,6 +2,7 @@ package dark.cat;
 
 import dark.cat.annotations.GameLoop;
 import dark.cat.context.EngineContext;
+import dark.cat.context.JitWarmUp;
 
 import static dark.cat.utils.PajamaResponses.*;
 
@@ -15,6 +16,7 @@ import static dark.cat.utils.PajamaResponses.*;
  * <ul>
  *   <li>Initializing the application context by scanning for components.</li>
  *   <li>Validating the presence of a {@link GameLoop} annotated main class.</li>
+ *   <li>Optionally warming up the JIT with a {@link JitWarmUp} before the first frame.</li>
  *   <li>Executing the game loop if it implements {@link Runnable}.</li>
  * </ul>
  *
@@ -48,8 +50,19 @@ public class PajamaApplication {
      * @throws Exception if the context initialization or game loop execution fails
      */
     public static void run(Class<?> mainClass) throws Exception {
-        context = new EngineContext(".", mainClass);
-        runMainClassOnCurrentContext(mainClass);
+        run(mainClass, ".", defaultWarmUp());
+    }
+
+    /**
+     * Starts the application like {@link #run(Class)}, warming up the JIT between the
+     * construction of the {@link EngineContext} and the first frame.
+     *
+     * @param mainClass the main class of the application annotated with {@link GameLoop}
+     * @param warmUp the warm-up settings
+     * @throws Exception if the context initialization, the warm-up or game loop execution fails
+     */
+    public static void run(Class<?> mainClass, JitWarmUp warmUp) throws Exception {
+        run(mainClass, ".", warmUp);
     }
 
     /**
@@ -62,10 +75,36 @@ public class PajamaApplication {
      * @throws Exception if the context initialization or game loop execution fails
      */
     public static void run(Class<?> mainClass, String basePackage) throws Exception {
+        run(mainClass, basePackage, defaultWarmUp());
+    }
+
+    /**
+     * Starts the application with a specified base package for scanning, warming up the JIT
+     * between the construction of the {@link EngineContext} and the first frame.
+     *
+     * @param mainClass the main class of the application annotated with {@link GameLoop}
+     * @param basePackage the base package to scan for components
+     * @param warmUp the warm-up settings, or {@code null} to start without warming up
+     * @throws Exception if the context initialization, the warm-up or game loop execution fails
+     */
+    public static void run(Class<?> mainClass, String basePackage, JitWarmUp warmUp) throws Exception {
         context = new EngineContext(basePackage, mainClass);
+        if (warmUp != null) {
+            warmUp.run(context);
+        }
         runMainClassOnCurrentContext(mainClass);
     }
 
+    /**
+     * Returns the default warm-up settings if the {@value JitWarmUp#WARM_UP_PROPERTY} system
+     * property is set to {@code true}.
+     *
+     * @return the default settings, or {@code null} to start without warming up
+     */
+    private static JitWarmUp defaultWarmUp() {
+        return Boolean.getBoolean(JitWarmUp.WARM_UP_PROPERTY) ? new JitWarmUp() : null;
+    }
+
     /**
      * Validates and runs the {@link GameLoop} annotated {@code mainClass} within the current
      * {@link EngineContext}. Ensures the main class implements {@link Runnable} and invokes
@@ -0,0 +1,43 @@
+package dark.cat.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The {@code Snapshot} annotation marks a component field as part of the game state that is
+ * captured and restored by the {@link dark.cat.snapshot.SnapshotManager}.
+ *
+ * <p>Supported field types are the Java primitives and arrays of {@code int}, {@code long},
+ * {@code float}, {@code double} and {@code byte}. Array fields are restored in place, so their
+ * length must not change once the first snapshot has been captured.
+ *
+ * <p>Usage:
+ * <pre>
+ *     {@code @EngineComponent
+ * public class Player {
+ *     @Snapshot
+ *     private float x;
+ *
+ *     @Snapshot
+ *     private int[] inventory = new int[32];
+ * }
+ *     }
+ * </pre>
+ *
+ * <p>Retention and Target:
+ * <ul>
+ *     <li><b>Retention:</b> {@code RUNTIME} - The annotation is available at runtime
+ *     for reflection.</li>
+ *     <li><b>Target:</b> {@code FIELD} - The annotation can only be applied to fields.</li>
+ * </ul>
+ *
+ * @see dark.cat.snapshot.SnapshotManager
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Snapshot { }
@@ -0,0 +1,37 @@
+package dark.cat.annotations;
+
+import dark.cat.context.JitWarmUp;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The {@code WarmUp} annotation marks methods of components that {@link JitWarmUp} calls
+ * repeatedly before the first frame, so the JIT compiles the hot update and render paths before
+ * the player sees them.
+ *
+ * <p>An annotated method takes no parameters, the warm-up iteration as an {@code int}, or a
+ * {@link java.awt.Graphics2D} drawing into an offscreen image, so render code can be warmed up
+ * without a window.
+ *
+ * <p>Example usage:
+ * <pre>
+ * {@code
+ * @WarmUp
+ * private void warmUpRendering(Graphics2D graphics) {
+ *     world.render(graphics);
+ * }
+ * }
+ * </pre>
+ *
+ * @see JitWarmUp
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface WarmUp { }
@@ -0,0 +1,67 @@
+package dark.cat.clock;
+
+/**
+ * The source of time for a game loop and its timers.
+ *
+ * <p>Game code that reads time and waits through the clock injected with
+ * {@code @InjectPajamaDependency} runs unchanged on the wall clock ({@link SystemClock}) and on
+ * a {@link VirtualClock}, which skips idle time and lets simulations run as fast as the CPU
+ * allows.
+ *
+ * <p>Usage:
+ * <pre>
+ *     {@code
+ * @InjectPajamaDependency
+ * private EngineClock clock;
+ *
+ * long next = clock.nanoTime();
+ * while (running) {
+ *     update();
+ *     next += TICK_NANOS;
+ *     clock.sleepUntil(next);
+ * }
+ *     }
+ * </pre>
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public interface EngineClock {
+
+    /**
+     * Returns the current time of this clock, for measuring elapsed time like
+     * {@link System#nanoTime()}.
+     *
+     * @return the time in nanoseconds
+     */
+    long nanoTime();
+
+    /**
+     * Returns the current wall time of this clock, like {@link System#currentTimeMillis()}.
+     *
+     * @return the milliseconds since the epoch
+     */
+    long currentTimeMillis();
+
+    /**
+     * Waits for the given time to pass on this clock.
+     *
+     * @param nanos the time to wait in nanoseconds
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    void sleepNanos(long nanos) throws InterruptedException;
+
+    /**
+     * Waits until this clock reaches the given time. Returns at once if it already passed.
+     *
+     * @param deadlineNanos the time to wait for, as returned by {@link #nanoTime()}
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    default void sleepUntil(long deadlineNanos) throws InterruptedException {
+        long remaining = deadlineNanos - nanoTime();
+        if (remaining > 0) {
+            sleepNanos(remaining);
+        }
+    }
+}
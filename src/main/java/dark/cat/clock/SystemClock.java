@@ -0,0 +1,39 @@
+package dark.cat.clock;
+
+import java.time.Duration;
+
+/**
+ * The wall clock: {@link System#nanoTime()} and {@link Thread#sleep(Duration)}. Used by every
+ * {@link dark.cat.context.EngineContext} that is not given another clock.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public final class SystemClock implements EngineClock {
+
+    /**
+     * The shared instance; the clock has no state.
+     */
+    public static final SystemClock INSTANCE = new SystemClock();
+
+    private SystemClock() {
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public void sleepNanos(long nanos) throws InterruptedException {
+        if (nanos > 0) {
+            Thread.sleep(Duration.ofNanos(nanos));
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package dark.cat.clock;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A clock that only moves when told to. Sleeping does not block: it jumps the clock to the end
+ * of the sleep, and the timers that fall due on the way run on the sleeping thread, in order and
+ * at their own time. A game loop driven by a virtual clock therefore skips all of its idle time
+ * and a match of ten minutes finishes as soon as its ticks are computed.
+ *
+ * <p>A {@link dark.cat.utils.ThreadManagerPool} given a virtual clock schedules its fixed-rate
+ * tasks here instead of on its scheduler thread, so they stay in step with the simulation and
+ * runs are reproducible. Meant for one simulation thread: tasks running on other threads see the
+ * clock move, but they do not advance it.
+ *
+ * <p>Usage:
+ * <pre>
+ *     {@code
+ * VirtualClock clock = new VirtualClock();
+ * clock.scheduleAtFixedRate(spawner::spawnWave, 30, 30, TimeUnit.SECONDS);
+ * clock.sleepNanos(TimeUnit.MINUTES.toNanos(10)); // returns at once, after 20 waves
+ *     }
+ * </pre>
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class VirtualClock implements EngineClock {
+
+    private final PriorityQueue<Timer> timers = new PriorityQueue<>();
+    private final long epochMillis;
+
+    private volatile long now;
+    private long timerSequence;
+    private long timersRun;
+
+    /**
+     * Creates a virtual clock starting at time zero, at the Unix epoch.
+     */
+    public VirtualClock() {
+        this(0);
+    }
+
+    /**
+     * Creates a virtual clock starting at time zero, whose wall time starts at the given instant.
+     *
+     * @param epochMillis the wall time of time zero, in milliseconds since the epoch
+     */
+    public VirtualClock(long epochMillis) {
+        this.epochMillis = epochMillis;
+    }
+
+    @Override
+    public long nanoTime() {
+        return now;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return epochMillis + now / 1_000_000L;
+    }
+
+    /**
+     * Advances the clock by the given time instead of waiting for it.
+     *
+     * @param nanos the time to skip in nanoseconds
+     */
+    @Override
+    public void sleepNanos(long nanos) {
+        if (nanos > 0) {
+            advanceTo(now + nanos);
+        }
+    }
+
+    /**
+     * Advances the clock by the given time, running the timers that fall due.
+     *
+     * @param nanos the time to skip in nanoseconds
+     * @throws IllegalArgumentException if the time is negative
+     */
+    public void advance(long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("A virtual clock cannot go back in time: " + nanos);
+        }
+        advanceTo(now + nanos);
+    }
+
+    /**
+     * Advances the clock to the given time. Every timer due until then runs on the calling
+     * thread with the clock set to its due time; periodic timers are rescheduled, so one long
+     * advance runs them as often as real time would have. Does nothing for times in the past.
+     *
+     * @param targetNanos the time to advance to
+     */
+    public void advanceTo(long targetNanos) {
+        while (true) {
+            Timer timer;
+            synchronized (this) {
+                timer = timers.peek();
+                if (timer == null || timer.dueNanos > targetNanos) {
+                    break;
+                }
+                timers.poll();
+                if (timer.dueNanos > now) {
+                    now = timer.dueNanos;
+                }
+                if (timer.periodNanos > 0) {
+                    timers.add(new Timer(timer.dueNanos + timer.periodNanos, timer.periodNanos, timerSequence++, timer.task));
+                }
+                timersRun++;
+            }
+            timer.task.run();
+        }
+        synchronized (this) {
+            if (targetNanos > now) {
+                now = targetNanos;
+            }
+        }
+    }
+
+    /**
+     * Runs a task once, when the clock has advanced by the given delay.
+     *
+     * @param task the task to run
+     * @param delay the delay from now
+     * @param timeUnit the unit of the delay
+     */
+    public synchronized void schedule(Runnable task, long delay, TimeUnit timeUnit) {
+        timers.add(new Timer(now + timeUnit.toNanos(Math.max(0, delay)), 0, timerSequence++, task));
+    }
+
+    /**
+     * Runs a task periodically in virtual time, like
+     * {@link java.util.concurrent.ScheduledExecutorService#scheduleAtFixedRate}.
+     *
+     * @param task the task to run
+     * @param initialDelay the delay before the first run
+     * @param period the time between the starts of two runs
+     * @param timeUnit the unit of the delay and period
+     * @throws IllegalArgumentException if the period is not positive
+     */
+    public synchronized void scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit timeUnit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Timer period must be positive: " + period);
+        }
+        timers.add(new Timer(now + timeUnit.toNanos(Math.max(0, initialDelay)), timeUnit.toNanos(period),
+                timerSequence++, task));
+    }
+
+    /**
+     * Removes every pending timer.
+     */
+    public synchronized void cancelTimers() {
+        timers.clear();
+    }
+
+    /**
+     * Returns the number of timers waiting to fall due.
+     *
+     * @return the pending timer count
+     */
+    public synchronized int getPendingTimers() {
+        return timers.size();
+    }
+
+    /**
+     * Returns the number of timer runs since the clock was created.
+     *
+     * @return the timer run count
+     */
+    public synchronized long getTimersRun() {
+        return timersRun;
+    }
+
+    // Timers due at the same time run in the order they were scheduled
+    private record Timer(long dueNanos, long periodNanos, long sequence, Runnable task) implements Comparable<Timer> {
+
+        @Override
+        public int compareTo(Timer other) {
+            int byTime = Long.compare(dueNanos, other.dueNanos);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+}
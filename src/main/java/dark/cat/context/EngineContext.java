@@ -4,7 +4,13 @@ import dark.cat.annotations.EngineComponent;
 import dark.cat.annotations.GameLoop;
 import dark.cat.annotations.Inject;
 import dark.cat.annotations.InjectPajamaDependency;
+import dark.cat.clock.EngineClock;
+import dark.cat.clock.SystemClock;
 import dark.cat.managers.RenderManager;
+import dark.cat.telemetry.ComponentInstantiationEvent;
+import dark.cat.telemetry.ComponentScanEvent;
+import dark.cat.telemetry.DependencyInjectionEvent;
+import dark.cat.telemetry.FrameTelemetry;
 import dark.cat.utils.PajamaLogger;
 import dark.cat.utils.ThreadManagerPool;
 
@@ -25,7 +31,8 @@ import static dark.cat.utils.PajamaResponses.NO_COMPONENT_FOUND_FOR;
  *   <li>Scans the specified package for components annotated with {@link EngineComponent} or {@link GameLoop}.</li>
  *   <li>Instantiates and stores component instances in a managed context.</li>
  *   <li>Injects dependencies annotated with {@link Inject} and {@link InjectPajamaDependency} into the respective components.</li>
- *   <li>Registers internal Pajama dependencies that are required by the framework.</li>
+ *   <li>Registers internal Pajama dependencies that are required by the framework, including the
+ *       {@link EngineClock} the game reads time from.</li>
  * </ul>
  *
  * <p>Upon successful initialization, the context logs a message indicating that the application has started successfully.
@@ -61,6 +68,22 @@ public class EngineContext {
      */
     private Class<?> mainClass;
 
+    /**
+     * The pool running the asynchronous tasks of this context.
+     */
+    private final ThreadManagerPool threadManagerPool;
+
+    /**
+     * The scanned class directories mapped to the package they correspond to. Watched by the
+     * {@link HotReloader} in development mode.
+     */
+    private final Map<File, String> scannedDirectories = new LinkedHashMap<>();
+
+    /**
+     * The hot reloader of this context, created on first use.
+     */
+    private HotReloader hotReloader;
+
     /**
      * Constructs an {@code EngineContext} and initializes components within the specified
      * package. Performs scanning, initialization, and dependency injection.
@@ -70,12 +93,77 @@ public class EngineContext {
      * @throws Exception if an error occurs during scanning, initialization, or dependency injection
      */
     public EngineContext(String basePackage, Class<?> mainClass) throws Exception {
+        this(basePackage, mainClass, new ThreadManagerPool());
+    }
+
+    /**
+     * Constructs an {@code EngineContext} that runs its asynchronous tasks on the given thread
+     * manager pool. A pool that owns its executors isolates this context from every other
+     * context in the JVM, which is how the {@link dark.cat.instances.InstanceScheduler} hosts
+     * many instances side by side.
+     *
+     * @param basePackage the base package to scan for components
+     * @param mainClass the main application class
+     * @param threadManagerPool the pool injected into components and closed on {@link #shutdown()}
+     * @throws Exception if an error occurs during scanning, initialization, or dependency injection
+     */
+    public EngineContext(String basePackage, Class<?> mainClass, ThreadManagerPool threadManagerPool) throws Exception {
+        this(basePackage, mainClass, threadManagerPool, SystemClock.INSTANCE);
+    }
+
+    /**
+     * Constructs an {@code EngineContext} whose components read time from the given clock. The
+     * clock is injected into fields of type {@link EngineClock} and the thread manager pool
+     * schedules its periodic tasks on it.
+     *
+     * @param basePackage the base package to scan for components
+     * @param mainClass the main application class
+     * @param threadManagerPool the pool injected into components and closed on {@link #shutdown()}
+     * @param clock the clock of this context, e.g. a {@link dark.cat.clock.VirtualClock} for simulations
+     * @throws Exception if an error occurs during scanning, initialization, or dependency injection
+     */
+    // Components injected with the HotReloader receive it before the constructor returns, but it
+    // only keeps the reference until its first poll
+    @SuppressWarnings("this-escape")
+    public EngineContext(String basePackage, Class<?> mainClass, ThreadManagerPool threadManagerPool,
+                         EngineClock clock) throws Exception {
         setMainClass(mainClass);
+        this.threadManagerPool = threadManagerPool;
+        registerInternalComponents(clock);
         scanAndInitialize(basePackage);
         injectDependencies();
         PajamaLogger.log(APPLICATION_STARTED_SUCCESSFULLY.getMessage());
     }
 
+    /**
+     * Constructs an {@code EngineContext} with fresh instances of the components of another
+     * context, without scanning the class path again. Starting many contexts of the same game
+     * this way, as the {@link dark.cat.simulation.SimulationRunner} does, pays for the scan
+     * only once.
+     *
+     * @param template the context whose component classes to instantiate
+     * @param threadManagerPool the pool injected into components and closed on {@link #shutdown()}
+     * @param clock the clock of this context
+     * @throws Exception if an error occurs during initialization or dependency injection
+     */
+    @SuppressWarnings("this-escape")
+    public EngineContext(EngineContext template, ThreadManagerPool threadManagerPool, EngineClock clock) throws Exception {
+        setMainClass(template.mainClass);
+        this.threadManagerPool = threadManagerPool;
+        scannedDirectories.putAll(template.scannedDirectories);
+        registerInternalComponents(clock);
+        for (Class<?> componentClass : template.components.keySet()) {
+            instantiate(componentClass);
+        }
+        injectDependencies();
+    }
+
+    private void registerInternalComponents(EngineClock clock) {
+        threadManagerPool.setClock(clock);
+        internalPajamaComponents.put(ThreadManagerPool.class, threadManagerPool);
+        internalPajamaComponents.put(EngineClock.class, clock);
+    }
+
     /**
      * Scans the specified base package for annotated classes, initializes them, and stores
      * them in the {@code components} map.
@@ -88,12 +176,24 @@ public class EngineContext {
                 ? getParentPackage().replace('.', '/')
                 : basePackage.replace('.', '/');
 
+        ComponentScanEvent event = new ComponentScanEvent();
+        event.begin();
+
         ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
         Enumeration<URL> resources = classLoader.getResources(path);
 
         while (resources.hasMoreElements()) {
             File dir = new File(resources.nextElement().toURI());
-            scanDirectory(dir, basePackage.trim().equals(".") ? getParentPackage() : basePackage);
+            String packageName = basePackage.trim().equals(".") ? getParentPackage() : basePackage;
+            scannedDirectories.put(dir, packageName);
+            scanDirectory(dir, packageName);
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.basePackage = path.replace('/', '.');
+            event.componentCount = components.size();
+            event.commit();
         }
     }
 
@@ -118,12 +218,29 @@ public class EngineContext {
                 Class<?> clazz = Class.forName(className);
 
                 if (clazz.isAnnotationPresent(EngineComponent.class) || clazz.isAnnotationPresent(GameLoop.class)) {
-                    components.put(clazz, clazz.getDeclaredConstructor().newInstance());
+                    instantiate(clazz);
                 }
             }
         }
     }
 
+    /**
+     * Creates an instance of a component class and stores it in the context.
+     *
+     * @param clazz the component class
+     * @throws Exception if the component cannot be instantiated
+     */
+    private void instantiate(Class<?> clazz) throws Exception {
+        ComponentInstantiationEvent event = new ComponentInstantiationEvent();
+        event.begin();
+        components.put(clazz, clazz.getDeclaredConstructor().newInstance());
+        event.end();
+        if (event.shouldCommit()) {
+            event.componentClass = clazz;
+            event.commit();
+        }
+    }
+
     /**
      * Performs dependency injection by scanning all fields annotated with {@link Inject}
      * and assigning the corresponding component instances. This method also injects internal
@@ -134,35 +251,102 @@ public class EngineContext {
      */
     private void injectDependencies() throws Exception {
         for (Object component : components.values()) {
-            for (Field field : component.getClass().getDeclaredFields()) {
-                if (field.isAnnotationPresent(InjectPajamaDependency.class)) {
-                    field.setAccessible(true);
-                    injectInternalDependency(field.getType());
-                    Object internalDependency = internalPajamaComponents.get(field.getType());
+            injectInto(component);
+        }
+    }
 
-                    if (internalDependency == null) {
-                        throw new RuntimeException(NO_COMPONENT_FOUND_FOR.getMessage() + field.getType());
-                    }
+    /**
+     * Injects the dependencies of a single component. Used during startup and by the
+     * {@link HotReloader} to wire reloaded components.
+     *
+     * @param component the component to inject into
+     * @throws Exception if the field cannot be accessed or modified, or if the internal dependency
+     *                   injection fails
+     */
+    final void injectInto(Object component) throws Exception {
+        injectInto(component, Map.of());
+    }
+
+    /**
+     * Injects the dependencies of a single component, preferring the given components over the
+     * managed ones. The {@link HotReloader} wires a whole batch of reloaded components this way
+     * before any of them replaces a managed component.
+     *
+     * @param component the component to inject into
+     * @param staged components that are not managed yet, keyed by class name
+     * @throws Exception if the field cannot be accessed or modified, or if the internal dependency
+     *                   injection fails
+     */
+    final void injectInto(Object component, Map<String, Object> staged) throws Exception {
+        DependencyInjectionEvent event = new DependencyInjectionEvent();
+        event.begin();
+        int injectedFields = 0;
+
+        for (Field field : component.getClass().getDeclaredFields()) {
+            if (field.isAnnotationPresent(InjectPajamaDependency.class) && field.getType() == HotReloader.class) {
+                field.setAccessible(true);
+                field.set(component, hotReloader());
+                injectedFields++;
 
-                    field.set(component, internalDependency);
+            } else if (field.isAnnotationPresent(InjectPajamaDependency.class)) {
+                field.setAccessible(true);
+                injectInternalDependency(field.getType());
+                Object internalDependency = internalPajamaComponents.get(field.getType());
 
-                } else if (field.isAnnotationPresent(Inject.class)) {
-                    field.setAccessible(true);
-                    Object dependency = components.get(field.getType());
+                if (internalDependency == null) {
+                    throw new RuntimeException(NO_COMPONENT_FOUND_FOR.getMessage() + field.getType());
+                }
 
-                    if (dependency == null) {
-                        throw new RuntimeException(NO_COMPONENT_FOUND_FOR.getMessage() + field.getType());
-                    }
+                field.set(component, internalDependency);
+                injectedFields++;
 
-                    field.set(component, dependency);
+            } else if (field.isAnnotationPresent(Inject.class)) {
+                field.setAccessible(true);
+                Object dependency = staged.get(field.getType().getName());
+                if (!field.getType().isInstance(dependency)) {
+                    dependency = findComponent(field.getType());
                 }
+
+                if (dependency == null) {
+                    throw new RuntimeException(NO_COMPONENT_FOUND_FOR.getMessage() + field.getType());
+                }
+
+                field.set(component, dependency);
+                injectedFields++;
             }
         }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.componentClass = component.getClass();
+            event.injectedFields = injectedFields;
+            event.commit();
+        }
+    }
+
+    /**
+     * Finds the managed component a field of the given type can hold. A hot reloaded component
+     * stays registered under its original class, so a field typed by the reloaded class is
+     * matched by class name.
+     */
+    private Object findComponent(Class<?> type) {
+        Object component = components.get(type);
+        if (type.isInstance(component)) {
+            return component;
+        }
+        for (Map.Entry<Class<?>, Object> entry : components.entrySet()) {
+            if (entry.getKey().getName().equals(type.getName()) && type.isInstance(entry.getValue())) {
+                return entry.getValue();
+            }
+        }
+        return null;
     }
 
     /**
      * Injects the internal Pajama dependency into the context if it is not already present.
      * This method is used to register framework-specific dependencies such as the {@link RenderManager}.
+     * A new internal dependency gets its own {@link InjectPajamaDependency} fields injected, e.g. the
+     * {@link ThreadManagerPool} of this context.
      *
      * @param internalDependencyClass the class type of the internal dependency to inject
      * @throws Exception if the internal dependency cannot be instantiated
@@ -170,7 +354,10 @@ public class EngineContext {
     private void injectInternalDependency(Class<?> internalDependencyClass) throws Exception {
         if (!internalPajamaComponents.containsKey(internalDependencyClass)) {
             PajamaLogger.log("Creating new internal dependency: " + internalDependencyClass.getName());
-            internalPajamaComponents.put(internalDependencyClass, internalDependencyClass.getDeclaredConstructor().newInstance());
+            Object internalDependency = internalDependencyClass.getDeclaredConstructor().newInstance();
+            // Registered first, so dependencies that refer to each other resolve
+            internalPajamaComponents.put(internalDependencyClass, internalDependency);
+            injectInto(internalDependency);
         }
     }
 
@@ -193,10 +380,31 @@ public class EngineContext {
     }
 
     /**
-     * Shuts down the engine context gracefully, releasing any resources and shutting down the thread pool.
+     * Shuts down the engine context gracefully, releasing any resources and shutting down its thread pool.
+     * Contexts using the shared pool shut down the shared executors, as in single-instance mode.
      */
     public void shutdown() {
-        ThreadManagerPool.shutdown();
+        shutdown(true);
+    }
+
+    /**
+     * Shuts down the engine context, optionally leaving its thread pool running so that the next
+     * context can reuse it.
+     *
+     * @param closeThreadManagerPool {@code false} to keep the thread pool of this context running
+     */
+    public void shutdown(boolean closeThreadManagerPool) {
+        synchronized (this) {
+            if (hotReloader != null) {
+                hotReloader.stop();
+            }
+        }
+        if (internalPajamaComponents.get(FrameTelemetry.class) instanceof FrameTelemetry frameTelemetry) {
+            frameTelemetry.close();
+        }
+        if (closeThreadManagerPool) {
+            threadManagerPool.close();
+        }
         PajamaLogger.log("Engine context shut down gracefully.");
     }
 
@@ -217,12 +425,94 @@ public class EngineContext {
     /**
      * Retrieves a managed component from the context by its class type.
      *
+     * <p>A component replaced by the {@link HotReloader} stays registered under its original
+     * class. Its new instance belongs to the reloaded class, which code compiled against the
+     * original class cannot cast to, so it is reached through {@link #getComponents()} or an
+     * {@link Inject} field typed by an interface it implements.
+     *
      * @param <T> the type of the component
      * @param clazz the class type of the component
      * @return the component instance, or {@code null} if no component of the specified
      *         type exists
+     * @throws IllegalStateException if the component was hot reloaded and is no longer an
+     *                               instance of {@code clazz}
      */
     public <T> T getComponent(Class<T> clazz) {
-        return clazz.cast(components.get(clazz));
+        Object component = components.get(clazz);
+        if (component != null && !clazz.isInstance(component)) {
+            throw new IllegalStateException(clazz.getName() + " was hot reloaded, reach its new version "
+                    + "through getComponents() or an interface it implements.");
+        }
+        return clazz.cast(component);
+    }
+
+    /**
+     * Returns a read-only view of every managed component, keyed by class type. Hot reloaded
+     * components keep the key of the class they replaced.
+     *
+     * @return the managed components
+     */
+    public Map<Class<?>, Object> getComponents() {
+        return Collections.unmodifiableMap(components);
+    }
+
+    /**
+     * Returns the thread manager pool of this context.
+     *
+     * @return the thread manager pool
+     */
+    public ThreadManagerPool getThreadManagerPool() {
+        return threadManagerPool;
+    }
+
+    /**
+     * Returns the clock of this context.
+     *
+     * @return the clock, {@link SystemClock#INSTANCE} unless another one was given
+     */
+    public EngineClock getClock() {
+        return (EngineClock) internalPajamaComponents.get(EngineClock.class);
+    }
+
+    /**
+     * Returns the hot reloader of this context. It only watches for changes after
+     * {@link HotReloader#start()} was called, or from its first {@link HotReloader#poll()} when
+     * the {@code pajama.hotReload} system property is set to {@code true}.
+     *
+     * @return the hot reloader
+     */
+    public HotReloader getHotReloader() {
+        return hotReloader();
+    }
+
+    /**
+     * Creates the hot reloader on first use. The reloader only keeps a reference to this context
+     * until it is polled, so handing it out while the constructor injects components is safe.
+     */
+    private synchronized HotReloader hotReloader() {
+        if (hotReloader == null) {
+            hotReloader = new HotReloader(this);
+        }
+        return hotReloader;
+    }
+
+    /**
+     * Replaces a managed component with a reloaded version of it. The component stays registered
+     * under the class it was first registered with, so lookups by that class keep finding it.
+     *
+     * @param key the class the component is registered under, or the class of a new component
+     * @param component the new component instance
+     */
+    void replaceComponent(Class<?> key, Object component) {
+        components.put(key, component);
+    }
+
+    /**
+     * Returns the scanned class directories mapped to their package names.
+     *
+     * @return the scanned directories
+     */
+    Map<File, String> getScannedDirectories() {
+        return Collections.unmodifiableMap(scannedDirectories);
     }
 }
\ No newline at end of file
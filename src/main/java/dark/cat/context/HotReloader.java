@@ -0,0 +1,460 @@
+package dark.cat.context;
+
+import dark.cat.annotations.EngineComponent;
+import dark.cat.annotations.GameLoop;
+import dark.cat.annotations.Inject;
+import dark.cat.annotations.InjectPajamaDependency;
+import dark.cat.utils.PajamaLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * The {@code HotReloader} class reloads changed {@link EngineComponent} classes into a running
+ * {@link EngineContext} without restarting it.
+ *
+ * <p>In development mode a daemon thread watches the scanned class directories with a
+ * {@link WatchService}. Changed classes are collected and applied by {@link #poll()}, which the
+ * game loop calls once per tick so that components are never swapped underneath it. A reload:
+ * <ul>
+ *   <li>defines the changed classes in a fresh child-first {@link HotReloadClassLoader},</li>
+ *   <li>also reloads every component whose {@link Inject} fields refer to a reloaded class, since
+ *   those fields cannot hold the new class otherwise,</li>
+ *   <li>copies plain state fields from the old instances into the new ones,</li>
+ *   <li>re-injects the new instances and rewires dependents that reference them through an
+ *   interface or superclass.</li>
+ * </ul>
+ * The new instances are built and injected before any of them is swapped in, so a reload that
+ * fails leaves the running components as they were. Reloaded components stay registered under
+ * their original class, see {@link EngineContext#getComponent(Class)}.
+ * Internal Pajama components, such as the {@link dark.cat.managers.RenderManager}, and anything
+ * they hold stay alive across reloads.
+ *
+ * <p>Development mode is enabled with {@code -Dpajama.hotReload=true}, which starts the watcher on
+ * the first {@link #poll()}, or by calling {@link #start()}.
+ *
+ * <p>Usage:
+ * <pre>
+ *     {@code
+ * @InjectPajamaDependency
+ * private HotReloader hotReloader;
+ *
+ * while (running) {
+ *     hotReloader.poll();
+ *     update();
+ *     render();
+ * }
+ *     }
+ * </pre>
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class HotReloader {
+
+    /**
+     * The system property that starts the hot reloader together with the context.
+     */
+    public static final String HOT_RELOAD_PROPERTY = "pajama.hotReload";
+
+    // Compilers write class files in bursts, wait until the directory is quiet before reloading
+    private static final long DEBOUNCE_NANOS = 200_000_000L;
+
+    private final EngineContext context;
+
+    private final Set<String> pendingClasses = ConcurrentHashMap.newKeySet();
+    private volatile long lastChangeNanos;
+
+    private final Map<String, ClassLoader> latestLoaders = new HashMap<>();
+
+    // Set by -Dpajama.hotReload=true, the watcher then starts on the first poll
+    private boolean startOnPoll = Boolean.getBoolean(HOT_RELOAD_PROPERTY);
+
+    private WatchService watchService;
+    private Thread watcherThread;
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the hot reloader of the given context. It stays idle until {@link #start()} is called,
+     * and does not touch the context before that or before the first {@link #poll()}.
+     *
+     * @param context the context whose components are reloaded
+     */
+    HotReloader(EngineContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Starts watching the scanned class directories for changes.
+     *
+     * @throws IllegalStateException if the watch service cannot be created
+     */
+    public synchronized void start() {
+        startOnPoll = false;
+        if (watcherThread != null) {
+            return;
+        }
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            for (File dir : context.getScannedDirectories().keySet()) {
+                registerRecursively(dir.toPath());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not start hot reload watcher.", e);
+        }
+
+        watcherThread = new Thread(this::watch, "pajama-hot-reload");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+
+        PajamaLogger.log("Hot reload enabled, watching " + watchedDirectories.size() + " directories.");
+    }
+
+    /**
+     * Stops watching for changes. Pending changes are discarded.
+     */
+    public synchronized void stop() {
+        startOnPoll = false;
+        if (watcherThread == null) {
+            return;
+        }
+
+        watcherThread.interrupt();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            PajamaLogger.error("Could not close hot reload watcher: " + e.getMessage());
+        }
+        watcherThread = null;
+        watchedDirectories.clear();
+        pendingClasses.clear();
+    }
+
+    /**
+     * Returns whether the reloader is watching for changes.
+     *
+     * @return {@code true} in development mode
+     */
+    public boolean isRunning() {
+        return watcherThread != null;
+    }
+
+    /**
+     * Applies the pending class changes once the class directories have been quiet for a short
+     * while. Must be called from the game thread. Returns immediately when nothing changed.
+     * Starts the watcher first when the {@code pajama.hotReload} system property is set.
+     *
+     * @return the number of components that were reloaded
+     */
+    public int poll() {
+        if (startOnPoll) {
+            start();
+        }
+        if (pendingClasses.isEmpty() || System.nanoTime() - lastChangeNanos < DEBOUNCE_NANOS) {
+            return 0;
+        }
+
+        Set<String> changed = new HashSet<>();
+        for (Iterator<String> iterator = pendingClasses.iterator(); iterator.hasNext(); ) {
+            changed.add(iterator.next());
+            iterator.remove();
+        }
+        return reload(changed);
+    }
+
+    /**
+     * Reloads the given top-level classes and every component that depends on them.
+     *
+     * @param changedClasses the names of the changed top-level classes
+     * @return the number of components that were reloaded
+     */
+    private int reload(Set<String> changedClasses) {
+        long start = System.nanoTime();
+
+        Map<String, Class<?>> componentsByName = new HashMap<>();
+        for (Class<?> componentClass : context.getComponents().keySet()) {
+            componentsByName.put(componentClass.getName(), componentClass);
+        }
+
+        Set<String> reloadSet = new LinkedHashSet<>();
+        for (String name : changedClasses) {
+            Class<?> componentClass = componentsByName.get(name);
+            if (componentClass != null && componentClass.isAnnotationPresent(GameLoop.class)) {
+                PajamaLogger.error("Hot reload cannot swap the running game loop " + name + ", restart to apply.");
+            } else if (componentClass != null) {
+                reloadSet.add(name);
+            } else if (isNewComponent(name)) {
+                reloadSet.add(name);
+            } else {
+                PajamaLogger.log("Hot reload skipped " + name + ", only components can be reloaded.");
+            }
+        }
+        if (reloadSet.isEmpty()) {
+            return 0;
+        }
+
+        collectDependents(reloadSet, componentsByName);
+
+        HotReloadClassLoader loader = new HotReloadClassLoader(
+                context.getMainClass().getClassLoader(), reloadSet, latestLoaders, this::locateClassFile);
+
+        // Everything is built, injected and planned before the context changes, so a class that
+        // fails to load or inject leaves the running components untouched
+        Map<String, Object> staged = new LinkedHashMap<>();
+        List<Rewire> rewires;
+        try {
+            for (String name : reloadSet) {
+                Class<?> newClass = loader.loadClass(name);
+                Class<?> oldClass = componentsByName.get(name);
+                Object newComponent = newClass.getDeclaredConstructor().newInstance();
+
+                if (oldClass != null) {
+                    copyState(context.getComponents().get(oldClass), newComponent);
+                }
+                staged.put(name, newComponent);
+            }
+
+            for (Object component : staged.values()) {
+                context.injectInto(component, staged);
+            }
+            rewires = planRewires(staged);
+        } catch (Exception | LinkageError e) {
+            PajamaLogger.error("Hot reload failed, keeping the running components: " + e);
+            return 0;
+        }
+
+        for (Map.Entry<String, Object> entry : staged.entrySet()) {
+            Class<?> oldClass = componentsByName.get(entry.getKey());
+            context.replaceComponent(oldClass != null ? oldClass : entry.getValue().getClass(), entry.getValue());
+        }
+        for (Rewire rewire : rewires) {
+            rewire.apply();
+        }
+
+        for (String name : reloadSet) {
+            latestLoaders.put(name, loader);
+        }
+
+        PajamaLogger.log("Hot reloaded " + reloadSet + " in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+        return staged.size();
+    }
+
+    /**
+     * Adds every component whose {@link Inject} fields refer to a class in the reload set,
+     * transitively. The game loop class is currently running and cannot be swapped, so it is
+     * left out and keeps its old dependencies until it is restarted.
+     */
+    private void collectDependents(Set<String> reloadSet, Map<String, Class<?>> componentsByName) {
+        boolean grown = true;
+        while (grown) {
+            grown = false;
+            for (Class<?> componentClass : componentsByName.values()) {
+                if (reloadSet.contains(componentClass.getName())) {
+                    continue;
+                }
+                for (Field field : componentClass.getDeclaredFields()) {
+                    if (field.isAnnotationPresent(Inject.class) && reloadSet.contains(field.getType().getName())) {
+                        if (componentClass.isAnnotationPresent(GameLoop.class)) {
+                            PajamaLogger.error("Hot reload cannot swap " + field.getType().getName()
+                                    + " into the running game loop " + componentClass.getName()
+                                    + ", inject it through an interface or restart.");
+                            break;
+                        }
+                        reloadSet.add(componentClass.getName());
+                        grown = true;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the {@link Inject} fields of unchanged components that should point at the reloaded
+     * instances, because the field type, such as an interface, can hold them.
+     */
+    private List<Rewire> planRewires(Map<String, Object> staged) {
+        List<Rewire> rewires = new ArrayList<>();
+        for (Map.Entry<Class<?>, Object> entry : context.getComponents().entrySet()) {
+            if (staged.containsKey(entry.getKey().getName())) {
+                continue;
+            }
+            Object component = entry.getValue();
+            for (Field field : component.getClass().getDeclaredFields()) {
+                if (!field.isAnnotationPresent(Inject.class)) {
+                    continue;
+                }
+                for (Object newComponent : staged.values()) {
+                    if (field.getType() != newComponent.getClass() && field.getType().isInstance(newComponent)) {
+                        field.setAccessible(true);
+                        Object current;
+                        try {
+                            current = field.get(component);
+                        } catch (IllegalAccessException e) {
+                            throw new IllegalStateException("Could not read " + field + ".", e);
+                        }
+                        if (current != null && current.getClass().getName().equals(newComponent.getClass().getName())) {
+                            rewires.add(new Rewire(component, field, newComponent));
+                        }
+                    }
+                }
+            }
+        }
+        return rewires;
+    }
+
+    /**
+     * An {@link Inject} field of an unchanged component that is pointed at a reloaded instance.
+     * The field was made accessible while planning, so applying it cannot fail.
+     */
+    private record Rewire(Object component, Field field, Object value) {
+
+        void apply() {
+            try {
+                field.set(component, value);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Could not rewire " + field + ".", e);
+            }
+        }
+    }
+
+    /**
+     * Copies plain state from the old instance into the new one. Fields are matched by name and
+     * only copied when the declared type is the same class, so values whose classes were reloaded
+     * start fresh.
+     */
+    private void copyState(Object oldComponent, Object newComponent) throws IllegalAccessException {
+        for (Field newField : newComponent.getClass().getDeclaredFields()) {
+            int modifiers = newField.getModifiers();
+            if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)
+                    || newField.isAnnotationPresent(Inject.class)
+                    || newField.isAnnotationPresent(InjectPajamaDependency.class)) {
+                continue;
+            }
+            try {
+                Field oldField = oldComponent.getClass().getDeclaredField(newField.getName());
+                if (oldField.getType() == newField.getType()) {
+                    oldField.setAccessible(true);
+                    newField.setAccessible(true);
+                    newField.set(newComponent, oldField.get(oldComponent));
+                }
+            } catch (NoSuchFieldException ignored) {
+                // Field was added in the new version and keeps its initial value
+            }
+        }
+    }
+
+    private boolean isNewComponent(String name) {
+        Path classFile = locateClassFile(name);
+        if (classFile == null) {
+            return false;
+        }
+        try {
+            HotReloadClassLoader probe = new HotReloadClassLoader(
+                    context.getMainClass().getClassLoader(), Set.of(name), latestLoaders, this::locateClassFile);
+            Class<?> clazz = probe.loadClass(name);
+            return clazz.isAnnotationPresent(EngineComponent.class);
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Resolves a binary class name to its class file in one of the scanned directories.
+     *
+     * @param name the binary class name
+     * @return the class file, or {@code null} if it is not in a scanned directory
+     */
+    private Path locateClassFile(String name) {
+        for (Map.Entry<File, String> entry : context.getScannedDirectories().entrySet()) {
+            String packageName = entry.getValue();
+            String relativeName;
+            if (packageName.isEmpty()) {
+                relativeName = name;
+            } else if (name.startsWith(packageName + ".")) {
+                relativeName = name.substring(packageName.length() + 1);
+            } else {
+                continue;
+            }
+
+            Path classFile = entry.getKey().toPath().resolve(relativeName.replace('.', File.separatorChar) + ".class");
+            if (Files.isRegularFile(classFile)) {
+                return classFile;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Converts a changed class file back into the name of its top-level class.
+     */
+    private String classNameOf(Path classFile) {
+        for (Map.Entry<File, String> entry : context.getScannedDirectories().entrySet()) {
+            Path root = entry.getKey().toPath();
+            if (!classFile.startsWith(root)) {
+                continue;
+            }
+
+            String relative = root.relativize(classFile).toString();
+            relative = relative.substring(0, relative.length() - ".class".length()).replace(File.separatorChar, '.');
+            String name = entry.getValue().isEmpty() ? relative : entry.getValue() + "." + relative;
+            return HotReloadClassLoader.topLevelName(name);
+        }
+        return null;
+    }
+
+    private void registerRecursively(Path root) throws IOException {
+        try (var paths = Files.walk(root)) {
+            for (Path dir : (Iterable<Path>) paths.filter(Files::isDirectory)::iterator) {
+                watchedDirectories.put(dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY), dir);
+            }
+        }
+    }
+
+    /**
+     * Runs on the watcher thread and collects changed class names until the reloader is stopped.
+     */
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                Path dir = watchedDirectories.get(key);
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (dir == null || !(event.context() instanceof Path changed)) {
+                        continue;
+                    }
+
+                    Path path = dir.resolve(changed);
+                    if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                        registerRecursively(path);
+                    } else if (path.toString().endsWith(".class")) {
+                        String className = classNameOf(path);
+                        if (className != null) {
+                            pendingClasses.add(className);
+                            lastChangeNanos = System.nanoTime();
+                        }
+                    }
+                }
+
+                if (!key.reset()) {
+                    watchedDirectories.remove(key);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Reloader was stopped
+        } catch (IOException e) {
+            PajamaLogger.error("Hot reload watcher stopped: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package dark.cat.context;
+
+import dark.cat.annotations.GameLoop;
+import dark.cat.annotations.WarmUp;
+import dark.cat.utils.PajamaLogger;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code JitWarmUp} class runs the hot paths of a game headlessly between the construction
+ * of the {@link EngineContext} and the first real frame, so the JIT compiles them before the
+ * player sees any stutter.
+ *
+ * <p>Every iteration calls each {@link WarmUp} method of the context's components once and,
+ * if enabled, ticks a {@link GameLoop} that implements {@link Tickable}. The warm-up stops after
+ * the maximum number of iterations, after the timeout, or, when {@link #setUntilSettled(boolean)}
+ * is on, as soon as the JIT has not spent any time compiling for the settle window. The
+ * compilation time seen along the way is returned as a {@link WarmUpReport}.
+ *
+ * <p>Usage:
+ * <pre>
+ *     {@code
+ * PajamaApplication.run(MyGame.class, new JitWarmUp()
+ *         .setIterations(20_000)
+ *         .setUntilSettled(true));
+ *     }
+ * </pre>
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class JitWarmUp {
+
+    /**
+     * The system property that warms up with the default settings when the application is
+     * started without explicit settings.
+     */
+    public static final String WARM_UP_PROPERTY = "pajama.warmUp";
+
+    // Compilation time is only sampled every few iterations, the bean is not free to query
+    private static final int SAMPLE_INTERVAL = 64;
+
+    private int iterations = 10_000;
+    private boolean untilSettled = true;
+    private long settleWindowMillis = 500;
+    private long timeoutMillis = 10_000;
+    private boolean includeGameLoop;
+    private int graphicsWidth = 1280;
+    private int graphicsHeight = 720;
+
+    /**
+     * Sets the maximum number of iterations.
+     *
+     * @param iterations the iteration limit
+     * @return the current instance of the JitWarmUp
+     */
+    public JitWarmUp setIterations(int iterations) {
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("Warm-up iterations must be positive: " + iterations);
+        }
+        this.iterations = iterations;
+        return this;
+    }
+
+    /**
+     * Sets whether to stop early once compilation settled, i.e. the JIT spent no time compiling
+     * during the settle window. Needs a JVM that monitors compilation time.
+     *
+     * @param untilSettled {@code true} to stop once compilation settled
+     * @return the current instance of the JitWarmUp
+     */
+    public JitWarmUp setUntilSettled(boolean untilSettled) {
+        this.untilSettled = untilSettled;
+        return this;
+    }
+
+    /**
+     * Sets how long compilation has to stay idle to count as settled.
+     *
+     * @param settleWindowMillis the window in milliseconds
+     * @return the current instance of the JitWarmUp
+     */
+    public JitWarmUp setSettleWindowMillis(long settleWindowMillis) {
+        this.settleWindowMillis = settleWindowMillis;
+        return this;
+    }
+
+    /**
+     * Sets the longest the warm-up may take, whatever the other settings.
+     *
+     * @param timeoutMillis the timeout in milliseconds
+     * @return the current instance of the JitWarmUp
+     */
+    public JitWarmUp setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        return this;
+    }
+
+    /**
+     * Sets whether a {@link GameLoop} implementing {@link Tickable} is ticked in every
+     * iteration. Ticking changes the game's state, so only enable it for loops that reset
+     * their state before the first real frame.
+     *
+     * @param includeGameLoop {@code true} to tick the game loop too
+     * @return the current instance of the JitWarmUp
+     */
+    public JitWarmUp setIncludeGameLoop(boolean includeGameLoop) {
+        this.includeGameLoop = includeGameLoop;
+        return this;
+    }
+
+    /**
+     * Sets the size of the offscreen image {@link WarmUp} methods taking a
+     * {@link Graphics2D} draw into.
+     *
+     * @param width the width in pixels
+     * @param height the height in pixels
+     * @return the current instance of the JitWarmUp
+     */
+    public JitWarmUp setGraphicsSize(int width, int height) {
+        this.graphicsWidth = width;
+        this.graphicsHeight = height;
+        return this;
+    }
+
+    /**
+     * Runs the warm-up against the components of a context.
+     *
+     * @param context the context whose components to warm up
+     * @return the report of the warm-up
+     * @throws IllegalArgumentException if a {@link WarmUp} method has an unsupported signature
+     * @throws RuntimeException if a warm-up hook throws
+     */
+    public WarmUpReport run(EngineContext context) {
+        List<Hook> hooks = collectHooks(context);
+        if (hooks.isEmpty()) {
+            PajamaLogger.log("JIT warm-up skipped: no @WarmUp methods or tickable game loop.");
+            return new WarmUpReport(0, 0, 0, 0, false, 0);
+        }
+
+        CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+        boolean monitored = compiler != null && compiler.isCompilationTimeMonitoringSupported();
+        if (untilSettled && !monitored) {
+            PajamaLogger.log("JIT compilation time is not monitored by this JVM; warming up for all iterations.");
+        }
+
+        BufferedImage image = new BufferedImage(graphicsWidth, graphicsHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+
+        long startNanos = System.nanoTime();
+        long compileStartMillis = monitored ? compiler.getTotalCompilationTime() : 0;
+        long lastCompileMillis = compileStartMillis;
+        long lastCompileChangeNanos = startNanos;
+        boolean settled = false;
+        int iteration = 0;
+
+        try {
+            while (iteration < iterations) {
+                for (Hook hook : hooks) {
+                    hook.invoke(iteration, graphics);
+                }
+                iteration++;
+
+                if (iteration % SAMPLE_INTERVAL != 0) {
+                    continue;
+                }
+                long now = System.nanoTime();
+                if (monitored) {
+                    long compileMillis = compiler.getTotalCompilationTime();
+                    if (compileMillis != lastCompileMillis) {
+                        lastCompileMillis = compileMillis;
+                        lastCompileChangeNanos = now;
+                    } else if (untilSettled && now - lastCompileChangeNanos >= settleWindowMillis * 1_000_000L) {
+                        settled = true;
+                        break;
+                    }
+                }
+                if (now - startNanos >= timeoutMillis * 1_000_000L) {
+                    break;
+                }
+            }
+        } finally {
+            graphics.dispose();
+        }
+
+        long endNanos = System.nanoTime();
+        long compileMillis = monitored ? compiler.getTotalCompilationTime() - compileStartMillis : -1;
+        WarmUpReport report = new WarmUpReport(hooks.size(), iteration, (endNanos - startNanos) / 1_000_000L,
+                compileMillis, settled, (lastCompileChangeNanos - startNanos) / 1_000_000L);
+        PajamaLogger.log("JIT warm-up finished: " + report);
+        return report;
+    }
+
+    private List<Hook> collectHooks(EngineContext context) {
+        List<Hook> hooks = new ArrayList<>();
+        for (Object component : context.getComponents().values()) {
+            for (Method method : component.getClass().getDeclaredMethods()) {
+                if (!method.isAnnotationPresent(WarmUp.class)) {
+                    continue;
+                }
+                Class<?>[] parameters = method.getParameterTypes();
+                boolean supported = parameters.length == 0
+                        || (parameters.length == 1 && (parameters[0] == int.class || parameters[0] == Graphics2D.class));
+                if (!supported) {
+                    throw new IllegalArgumentException("@WarmUp method must take no parameters, an int or a Graphics2D: " + method);
+                }
+                method.setAccessible(true);
+                hooks.add(new Hook(component, method, null));
+            }
+        }
+
+        Object gameLoop = context.getComponent(context.getMainClass());
+        if (includeGameLoop && gameLoop instanceof Tickable tickable) {
+            hooks.add(new Hook(null, null, tickable));
+        }
+        return hooks;
+    }
+
+    private record Hook(Object component, Method method, Tickable tickable) {
+
+        void invoke(int iteration, Graphics2D graphics) {
+            if (tickable != null) {
+                tickable.tick(iteration);
+                return;
+            }
+            try {
+                if (method.getParameterCount() == 0) {
+                    method.invoke(component);
+                } else if (method.getParameterTypes()[0] == int.class) {
+                    method.invoke(component, iteration);
+                } else {
+                    method.invoke(component, graphics);
+                }
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("Cannot call @WarmUp method " + method, e);
+            } catch (InvocationTargetException e) {
+                throw new RuntimeException("@WarmUp method " + method + " failed.", e.getCause());
+            }
+        }
+    }
+}
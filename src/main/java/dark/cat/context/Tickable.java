@@ -0,0 +1,38 @@
+package dark.cat.context;
+
+/**
+ * The {@code Tickable} interface is implemented by {@link dark.cat.annotations.GameLoop} classes
+ * that advance one step at a time instead of owning a blocking loop in {@link Runnable#run()}.
+ *
+ * <p>Tick-based game loops can be driven by an external scheduler, such as the
+ * {@link dark.cat.instances.InstanceScheduler}, which interleaves the ticks of many engine
+ * instances on a shared set of threads.
+ *
+ * <p>Usage:
+ * <pre>
+ *     {@code @GameLoop
+ * public class Room implements Runnable, Tickable {
+ *     public void tick(long tick) {
+ *         // advance the simulation by one step
+ *     }
+ *
+ *     public void run() {
+ *         // standalone loop, used by PajamaApplication.run
+ *     }
+ * }
+ *     }
+ * </pre>
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public interface Tickable {
+
+    /**
+     * Advances the game by one tick.
+     *
+     * @param tick the number of the tick, starting at 0
+     */
+    void tick(long tick);
+}
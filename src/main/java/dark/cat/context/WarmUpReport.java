@@ -0,0 +1,92 @@
+package dark.cat.context;
+
+/**
+ * The outcome of a {@link JitWarmUp}: how long it ran and how much compilation it triggered.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class WarmUpReport {
+
+    private final int hookCount;
+    private final int iterations;
+    private final long durationMillis;
+    private final long compilationMillis;
+    private final boolean settled;
+    private final long lastCompilationMillis;
+
+    WarmUpReport(int hookCount, int iterations, long durationMillis, long compilationMillis,
+                 boolean settled, long lastCompilationMillis) {
+        this.hookCount = hookCount;
+        this.iterations = iterations;
+        this.durationMillis = durationMillis;
+        this.compilationMillis = compilationMillis;
+        this.settled = settled;
+        this.lastCompilationMillis = lastCompilationMillis;
+    }
+
+    /**
+     * Returns the number of hooks called in every iteration.
+     *
+     * @return the hook count
+     */
+    public int getHookCount() {
+        return hookCount;
+    }
+
+    /**
+     * Returns the number of iterations run.
+     *
+     * @return the iteration count
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Returns how long the warm-up took.
+     *
+     * @return the duration in milliseconds
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * Returns the time the JIT compilers spent compiling during the warm-up, summed over all
+     * compiler threads.
+     *
+     * @return the compilation time in milliseconds, or {@code -1} if the JVM does not monitor it
+     */
+    public long getCompilationMillis() {
+        return compilationMillis;
+    }
+
+    /**
+     * Returns whether the warm-up stopped because compilation settled, rather than because it
+     * ran out of iterations or time.
+     *
+     * @return {@code true} if compilation settled
+     */
+    public boolean isSettled() {
+        return settled;
+    }
+
+    /**
+     * Returns when, counted from the start of the warm-up, compilation time last increased.
+     *
+     * @return the time of the last observed compilation in milliseconds
+     */
+    public long getLastCompilationMillis() {
+        return lastCompilationMillis;
+    }
+
+    @Override
+    public String toString() {
+        return hookCount + " hooks, " + iterations + " iterations in " + durationMillis + " ms, "
+                + (compilationMillis < 0 ? "compilation time unknown" : compilationMillis + " ms compiling")
+                + ", last compilation at " + lastCompilationMillis + " ms, "
+                + (settled ? "settled" : "not settled");
+    }
+}
@@ -0,0 +1,133 @@
+package dark.cat.input;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code InputEventRing} class is a bounded, lock-free single-producer/single-consumer
+ * queue for raw input events.
+ *
+ * <p>The producer is the AWT event dispatch thread, which publishes every key and mouse event
+ * captured by the {@link dark.cat.managers.InputManager}. The consumer is the game thread,
+ * which drains the ring once per tick. Events are stored in parallel primitive arrays so that
+ * neither side allocates on the hot path.
+ *
+ * <p>If the producer outruns the consumer and the ring is full, new events are dropped and
+ * counted instead of blocking the event dispatch thread.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class InputEventRing {
+
+    // Default number of slots, enough for several frames of heavy mouse movement
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final int mask;
+    private final int[] types;
+    private final int[] codes;
+    private final int[] xs;
+    private final int[] ys;
+
+    // Next slot to be written, only advanced by the producer
+    private final AtomicLong head = new AtomicLong();
+
+    // Next slot to be read, only advanced by the consumer
+    private final AtomicLong tail = new AtomicLong();
+
+    // Producer-local copy of the tail, refreshed only when the ring looks full
+    private long cachedTail;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Creates a ring with {@link #DEFAULT_CAPACITY} slots.
+     */
+    public InputEventRing() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a ring with the given number of slots.
+     *
+     * @param capacity the number of slots, must be a power of two
+     * @throws IllegalArgumentException if the capacity is not a positive power of two
+     */
+    public InputEventRing(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.types = new int[capacity];
+        this.codes = new int[capacity];
+        this.xs = new int[capacity];
+        this.ys = new int[capacity];
+    }
+
+    /**
+     * Publishes an event. Must only be called from the producer thread.
+     *
+     * @param type the event type, one of the {@link InputEventType} ordinals
+     * @param code the key code, mouse button or wheel rotation
+     * @param x    the x coordinate of mouse events
+     * @param y    the y coordinate of mouse events
+     * @return {@code true} if the event was queued, {@code false} if the ring was full
+     */
+    public boolean offer(int type, int code, int x, int y) {
+        long currentHead = head.get();
+        if (currentHead - cachedTail > mask) {
+            cachedTail = tail.getAcquire();
+            if (currentHead - cachedTail > mask) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        }
+
+        int slot = (int) currentHead & mask;
+        types[slot] = type;
+        codes[slot] = code;
+        xs[slot] = x;
+        ys[slot] = y;
+        head.setRelease(currentHead + 1);
+        return true;
+    }
+
+    /**
+     * Drains every published event into the given sink, usually an {@link InputState}. Must only
+     * be called from the consumer thread.
+     *
+     * @param sink the sink receiving the events
+     * @return the number of events drained
+     */
+    public int drainTo(InputEventSink sink) {
+        long currentTail = tail.get();
+        long currentHead = head.getAcquire();
+        int count = (int) (currentHead - currentTail);
+
+        for (long i = currentTail; i < currentHead; i++) {
+            int slot = (int) i & mask;
+            sink.onEvent(types[slot], codes[slot], xs[slot], ys[slot]);
+        }
+
+        tail.setRelease(currentHead);
+        return count;
+    }
+
+    /**
+     * Returns the number of events that were dropped because the ring was full.
+     *
+     * @return the dropped event count
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Returns the number of slots in the ring.
+     *
+     * @return the ring capacity
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+}
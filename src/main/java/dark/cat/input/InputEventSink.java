@@ -0,0 +1,27 @@
+package dark.cat.input;
+
+/**
+ * An {@code InputEventSink} consumes raw input events drained from an {@link InputEventRing}
+ * or read back from a replay file.
+ *
+ * <p>The {@link InputState} snapshot is the main sink. The
+ * {@link dark.cat.replay.ReplayRecorder} is another one, which records every event the game
+ * loop sees.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+@FunctionalInterface
+public interface InputEventSink {
+
+    /**
+     * Consumes a single raw event.
+     *
+     * @param type the {@link InputEventType} ordinal
+     * @param code the key code, mouse button or wheel rotation
+     * @param x    the x coordinate of mouse events
+     * @param y    the y coordinate of mouse events
+     */
+    void onEvent(int type, int code, int x, int y);
+}
@@ -0,0 +1,59 @@
+package dark.cat.input;
+
+/**
+ * The {@code InputEventType} enum lists the raw input events that travel through the
+ * {@link InputEventRing}. Only the ordinal is stored in the ring.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public enum InputEventType {
+
+    /**
+     * A key was pressed. The code is the AWT virtual key code.
+     */
+    KEY_PRESSED,
+
+    /**
+     * A key was released. The code is the AWT virtual key code.
+     */
+    KEY_RELEASED,
+
+    /**
+     * A mouse button was pressed. The code is the AWT button number.
+     */
+    MOUSE_PRESSED,
+
+    /**
+     * A mouse button was released. The code is the AWT button number.
+     */
+    MOUSE_RELEASED,
+
+    /**
+     * The mouse was moved or dragged to the given coordinates.
+     */
+    MOUSE_MOVED,
+
+    /**
+     * The mouse wheel was rotated. The code is the number of clicks.
+     */
+    MOUSE_WHEEL,
+
+    /**
+     * The input source lost focus, every held key and button should be released.
+     */
+    FOCUS_LOST;
+
+    private static final InputEventType[] VALUES = values();
+
+    /**
+     * Resolves an event type from the ordinal stored in the ring.
+     *
+     * @param ordinal the stored ordinal
+     * @return the matching event type
+     */
+    public static InputEventType fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
@@ -0,0 +1,276 @@
+package dark.cat.input;
+
+import java.util.Arrays;
+
+/**
+ * The {@code InputState} class is a per-frame snapshot of keyboard and mouse state.
+ *
+ * <p>The snapshot is owned by the game thread and rebuilt once per tick by the
+ * {@link dark.cat.managers.InputManager}. Held states survive between frames, while edge
+ * states (pressed and released this frame) and mouse deltas are reset at the start of
+ * every poll.
+ *
+ * <p>Key states cover every AWT virtual key code, including {@code VK_F13} to {@code VK_F24}
+ * and {@code VK_ALT_GRAPH}. Codes outside {@code 0x0000-0x03FF}, {@code 0xF000-0xF0FF} and
+ * {@code 0xFF00-0xFFFF}, such as extended key codes for Unicode characters, are ignored and
+ * always read as up.
+ *
+ * <p>Usage:
+ * <pre>
+ *     {@code
+ * InputState input = inputManager.poll();
+ * if (input.isKeyPressed(KeyEvent.VK_SPACE)) {
+ *     player.jump();
+ * }
+ * player.move(input.getMouseDeltaX(), input.getMouseDeltaY());
+ *     }
+ * </pre>
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class InputState implements InputEventSink {
+
+    // AWT virtual key codes are below 0x400, except for two blocks near the top of the 16-bit
+    // range, e.g. VK_F13 to VK_F24 at 0xF000 and VK_ALT_GRAPH at 0xFF7E. Both blocks are packed
+    // behind the low codes so the per-frame reset stays small.
+    private static final int LOW_KEY_CODES = 0x400;
+    private static final int HIGH_BLOCK_SIZE = 0x100;
+    private static final int FUNCTION_KEY_BLOCK = 0xF000;
+    private static final int SPECIAL_KEY_BLOCK = 0xFF00;
+    private static final int KEY_COUNT = LOW_KEY_CODES + 2 * HIGH_BLOCK_SIZE;
+
+    // AWT reports buttons starting at 1, extra buttons are numbered upwards
+    public static final int BUTTON_COUNT = 16;
+
+    private final boolean[] keysDown = new boolean[KEY_COUNT];
+    private final boolean[] keysPressed = new boolean[KEY_COUNT];
+    private final boolean[] keysReleased = new boolean[KEY_COUNT];
+
+    private final boolean[] buttonsDown = new boolean[BUTTON_COUNT];
+    private final boolean[] buttonsPressed = new boolean[BUTTON_COUNT];
+    private final boolean[] buttonsReleased = new boolean[BUTTON_COUNT];
+
+    private int mouseX;
+    private int mouseY;
+    private int mouseDeltaX;
+    private int mouseDeltaY;
+    private int wheelRotation;
+    private boolean mousePositionKnown;
+
+    /**
+     * Clears the per-frame edge states and deltas. Held keys and buttons are kept.
+     */
+    public void beginFrame() {
+        Arrays.fill(keysPressed, false);
+        Arrays.fill(keysReleased, false);
+        Arrays.fill(buttonsPressed, false);
+        Arrays.fill(buttonsReleased, false);
+        mouseDeltaX = 0;
+        mouseDeltaY = 0;
+        wheelRotation = 0;
+    }
+
+    /**
+     * Applies a single raw event to the snapshot.
+     *
+     * @param type the {@link InputEventType} ordinal
+     * @param code the key code, mouse button or wheel rotation
+     * @param x    the x coordinate of mouse events
+     * @param y    the y coordinate of mouse events
+     */
+    @Override
+    public void onEvent(int type, int code, int x, int y) {
+        switch (InputEventType.fromOrdinal(type)) {
+            case KEY_PRESSED -> {
+                int slot = keySlot(code);
+                if (slot >= 0) {
+                    if (!keysDown[slot]) {
+                        keysPressed[slot] = true;
+                    }
+                    keysDown[slot] = true;
+                }
+            }
+            case KEY_RELEASED -> {
+                int slot = keySlot(code);
+                if (slot >= 0) {
+                    keysDown[slot] = false;
+                    keysReleased[slot] = true;
+                }
+            }
+            case MOUSE_PRESSED -> {
+                if (code >= 0 && code < BUTTON_COUNT) {
+                    if (!buttonsDown[code]) {
+                        buttonsPressed[code] = true;
+                    }
+                    buttonsDown[code] = true;
+                }
+                moveMouse(x, y);
+            }
+            case MOUSE_RELEASED -> {
+                if (code >= 0 && code < BUTTON_COUNT) {
+                    buttonsDown[code] = false;
+                    buttonsReleased[code] = true;
+                }
+                moveMouse(x, y);
+            }
+            case MOUSE_MOVED -> moveMouse(x, y);
+            case MOUSE_WHEEL -> wheelRotation += code;
+            case FOCUS_LOST -> releaseAll();
+        }
+    }
+
+    /**
+     * Maps an AWT virtual key code to its slot in the key tables.
+     *
+     * @return the slot, or {@code -1} for codes outside {@code 0x0000-0x03FF},
+     *         {@code 0xF000-0xF0FF} and {@code 0xFF00-0xFFFF}, which are ignored
+     */
+    private static int keySlot(int keyCode) {
+        if (keyCode >= 0 && keyCode < LOW_KEY_CODES) {
+            return keyCode;
+        }
+        if (keyCode >= FUNCTION_KEY_BLOCK && keyCode < FUNCTION_KEY_BLOCK + HIGH_BLOCK_SIZE) {
+            return LOW_KEY_CODES + keyCode - FUNCTION_KEY_BLOCK;
+        }
+        if (keyCode >= SPECIAL_KEY_BLOCK && keyCode < SPECIAL_KEY_BLOCK + HIGH_BLOCK_SIZE) {
+            return LOW_KEY_CODES + HIGH_BLOCK_SIZE + keyCode - SPECIAL_KEY_BLOCK;
+        }
+        return -1;
+    }
+
+    private void moveMouse(int x, int y) {
+        if (mousePositionKnown) {
+            mouseDeltaX += x - mouseX;
+            mouseDeltaY += y - mouseY;
+        }
+        mouseX = x;
+        mouseY = y;
+        mousePositionKnown = true;
+    }
+
+    private void releaseAll() {
+        for (int i = 0; i < KEY_COUNT; i++) {
+            if (keysDown[i]) {
+                keysDown[i] = false;
+                keysReleased[i] = true;
+            }
+        }
+        for (int i = 0; i < BUTTON_COUNT; i++) {
+            if (buttonsDown[i]) {
+                buttonsDown[i] = false;
+                buttonsReleased[i] = true;
+            }
+        }
+    }
+
+    /**
+     * Returns whether a key is currently held down.
+     *
+     * @param keyCode the AWT virtual key code
+     * @return {@code true} if the key is held
+     */
+    public boolean isKeyDown(int keyCode) {
+        int slot = keySlot(keyCode);
+        return slot >= 0 && keysDown[slot];
+    }
+
+    /**
+     * Returns whether a key went down during the last frame.
+     *
+     * @param keyCode the AWT virtual key code
+     * @return {@code true} if the key was pressed this frame
+     */
+    public boolean isKeyPressed(int keyCode) {
+        int slot = keySlot(keyCode);
+        return slot >= 0 && keysPressed[slot];
+    }
+
+    /**
+     * Returns whether a key went up during the last frame.
+     *
+     * @param keyCode the AWT virtual key code
+     * @return {@code true} if the key was released this frame
+     */
+    public boolean isKeyReleased(int keyCode) {
+        int slot = keySlot(keyCode);
+        return slot >= 0 && keysReleased[slot];
+    }
+
+    /**
+     * Returns whether a mouse button is currently held down.
+     *
+     * @param button the AWT button number, e.g. {@link java.awt.event.MouseEvent#BUTTON1}
+     * @return {@code true} if the button is held
+     */
+    public boolean isButtonDown(int button) {
+        return button >= 0 && button < BUTTON_COUNT && buttonsDown[button];
+    }
+
+    /**
+     * Returns whether a mouse button went down during the last frame.
+     *
+     * @param button the AWT button number
+     * @return {@code true} if the button was pressed this frame
+     */
+    public boolean isButtonPressed(int button) {
+        return button >= 0 && button < BUTTON_COUNT && buttonsPressed[button];
+    }
+
+    /**
+     * Returns whether a mouse button went up during the last frame.
+     *
+     * @param button the AWT button number
+     * @return {@code true} if the button was released this frame
+     */
+    public boolean isButtonReleased(int button) {
+        return button >= 0 && button < BUTTON_COUNT && buttonsReleased[button];
+    }
+
+    /**
+     * Returns the last known mouse x coordinate, relative to the canvas.
+     *
+     * @return the mouse x coordinate
+     */
+    public int getMouseX() {
+        return mouseX;
+    }
+
+    /**
+     * Returns the last known mouse y coordinate, relative to the canvas.
+     *
+     * @return the mouse y coordinate
+     */
+    public int getMouseY() {
+        return mouseY;
+    }
+
+    /**
+     * Returns the horizontal mouse movement accumulated during the last frame.
+     *
+     * @return the mouse x delta in pixels
+     */
+    public int getMouseDeltaX() {
+        return mouseDeltaX;
+    }
+
+    /**
+     * Returns the vertical mouse movement accumulated during the last frame.
+     *
+     * @return the mouse y delta in pixels
+     */
+    public int getMouseDeltaY() {
+        return mouseDeltaY;
+    }
+
+    /**
+     * Returns the wheel clicks accumulated during the last frame. Negative values mean the
+     * wheel was rotated away from the user.
+     *
+     * @return the wheel rotation
+     */
+    public int getWheelRotation() {
+        return wheelRotation;
+    }
+}
@@ -0,0 +1,251 @@
+package dark.cat.instances;
+
+import dark.cat.context.EngineContext;
+import dark.cat.context.Tickable;
+import dark.cat.utils.PajamaLogger;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An {@code EngineInstance} is one isolated game room or simulation hosted by an
+ * {@link InstanceScheduler}. It owns its {@link EngineContext}, with its own components and
+ * thread manager pool, and its {@link Tickable} game loop.
+ *
+ * <p>Instances are created through {@link InstanceScheduler#launch} and stopped with
+ * {@link #shutdown()}, which leaves every other instance untouched.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class EngineInstance {
+
+    private final String name;
+    private final EngineContext context;
+    private final Tickable gameLoop;
+    private final InstanceScheduler scheduler;
+
+    private final long tickPeriodNanos;
+    private final long tickBudgetNanos;
+
+    private final ScheduledTick scheduledTick = new ScheduledTick();
+    private final AtomicBoolean stopped = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private volatile Throwable failure;
+    private volatile long ticks;
+    private volatile long overruns;
+    private volatile long lastTickNanos;
+    private volatile long maxTickNanos;
+
+    EngineInstance(String name, EngineContext context, Tickable gameLoop, InstanceScheduler scheduler,
+                   long tickPeriodNanos, long tickBudgetNanos) {
+        this.name = name;
+        this.context = context;
+        this.gameLoop = gameLoop;
+        this.scheduler = scheduler;
+        this.tickPeriodNanos = tickPeriodNanos;
+        this.tickBudgetNanos = tickBudgetNanos;
+    }
+
+    /**
+     * Runs a single tick on the calling worker thread and schedules the next one. A tick that
+     * exceeds its budget pushes the next tick back by the excess, so a slow instance cannot take
+     * more than its share of the cores away from the others.
+     *
+     * <p>Anything thrown by the game loop, including an {@link Error}, fails only this instance
+     * and never escapes to the worker, which goes on to tick the other instances.
+     */
+    void runTick() {
+        if (stopped.get()) {
+            close();
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            gameLoop.tick(ticks);
+        } catch (Throwable t) {
+            fail(t);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        ticks++;
+        lastTickNanos = elapsed;
+        maxTickNanos = Math.max(maxTickNanos, elapsed);
+        if (elapsed > tickBudgetNanos) {
+            overruns++;
+        }
+
+        if (stopped.get()) {
+            close();
+            return;
+        }
+
+        long now = System.nanoTime();
+        long next = scheduledTick.due + tickPeriodNanos + Math.max(0, elapsed - tickBudgetNanos);
+        scheduledTick.due = Math.max(next, now - tickPeriodNanos * InstanceScheduler.MAX_CATCH_UP_TICKS);
+        scheduler.enqueue(scheduledTick);
+    }
+
+    /**
+     * Schedules the first tick of the instance.
+     */
+    void start() {
+        scheduledTick.due = System.nanoTime();
+        scheduler.enqueue(scheduledTick);
+    }
+
+    /**
+     * Stops the instance and shuts its context down. A tick that is currently running finishes
+     * first. Other instances are not affected.
+     */
+    public void shutdown() {
+        if (stopped.compareAndSet(false, true) && scheduler.dequeue(scheduledTick)) {
+            close();
+        }
+    }
+
+    /**
+     * Marks the instance as failed and stops it. Called from the worker that caught the failure,
+     * so the instance is not in the queue and can be closed right away.
+     *
+     * @param cause what the game loop or the scheduler threw
+     */
+    void fail(Throwable cause) {
+        if (failure == null) {
+            failure = cause;
+        }
+        PajamaLogger.error("Instance " + name + " failed on tick " + ticks + ": " + cause);
+        stopped.set(true);
+    }
+
+    /**
+     * Closes the instance after a failure that escaped {@link #runTick()}, or when its next tick
+     * cannot be queued because the scheduler is shut down.
+     */
+    void abort() {
+        stopped.set(true);
+        close();
+    }
+
+    private void close() {
+        if (closed.compareAndSet(false, true)) {
+            scheduler.remove(this);
+            try {
+                context.shutdown();
+            } catch (RuntimeException e) {
+                PajamaLogger.error("Instance " + name + " failed to shut down its context: " + e);
+            }
+            PajamaLogger.log("Instance " + name + " stopped after " + ticks + " ticks.");
+        }
+    }
+
+    /**
+     * Returns whether the instance has been stopped, either by {@link #shutdown()} or because its
+     * game loop threw.
+     *
+     * @return {@code true} if the instance no longer ticks
+     */
+    public boolean isStopped() {
+        return stopped.get();
+    }
+
+    /**
+     * Returns what stopped the instance, if it did not stop through {@link #shutdown()}.
+     *
+     * @return the exception or error thrown by the game loop, or {@code null}
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Returns the name of the instance.
+     *
+     * @return the instance name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the context of the instance.
+     *
+     * @return the engine context
+     */
+    public EngineContext getContext() {
+        return context;
+    }
+
+    /**
+     * Returns the number of ticks run so far.
+     *
+     * @return the tick count
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Returns the number of ticks that took longer than the tick budget.
+     *
+     * @return the overrun count
+     */
+    public long getOverruns() {
+        return overruns;
+    }
+
+    /**
+     * Returns how long the last tick took.
+     *
+     * @return the last tick duration in nanoseconds
+     */
+    public long getLastTickNanos() {
+        return lastTickNanos;
+    }
+
+    /**
+     * Returns the longest tick seen so far.
+     *
+     * @return the maximum tick duration in nanoseconds
+     */
+    public long getMaxTickNanos() {
+        return maxTickNanos;
+    }
+
+    /**
+     * Returns the configured tick budget.
+     *
+     * @return the tick budget in nanoseconds
+     */
+    public long getTickBudgetNanos() {
+        return tickBudgetNanos;
+    }
+
+    /**
+     * The queue entry of an instance. Ordering by due time makes the scheduler run the most
+     * overdue instance first. Each instance owns exactly one entry, which is only in the queue
+     * while the instance is not ticking, so an instance never runs on two workers at once.
+     */
+    final class ScheduledTick implements Delayed {
+
+        private long due;
+
+        EngineInstance instance() {
+            return EngineInstance.this;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(due - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(due, ((ScheduledTick) other).due);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package dark.cat.instances;
+
+import dark.cat.annotations.GameLoop;
+import dark.cat.context.EngineContext;
+import dark.cat.context.Tickable;
+import dark.cat.utils.PajamaLogger;
+import dark.cat.utils.ThreadManagerPool;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+
+import static dark.cat.utils.PajamaResponses.GAME_LOOP_HAS_NOT_IMPLEMENTED_TICKABLE;
+import static dark.cat.utils.PajamaResponses.NO_GAME_LOOP_FOUND;
+
+/**
+ * The {@code InstanceScheduler} class hosts many isolated {@link EngineInstance}s in one JVM and
+ * shares a fixed set of worker threads between their game loops.
+ *
+ * <p>Every instance gets its own {@link EngineContext}, with its own components and its own
+ * {@link ThreadManagerPool}. Ticks are scheduled earliest-deadline-first from a single delay
+ * queue, and an instance whose tick exceeds its budget is pushed back by the excess, so every
+ * instance gets a fair share of the cores no matter how heavy its neighbours are.
+ *
+ * <p>Usage:
+ * <pre>
+ *     {@code
+ * InstanceScheduler scheduler = new InstanceScheduler(Runtime.getRuntime().availableProcessors());
+ * EngineInstance room = scheduler.launch("room-1", Room.class, 30);
+ * // ...
+ * room.shutdown();
+ * scheduler.shutdown();
+ *     }
+ * </pre>
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class InstanceScheduler {
+
+    // How far behind an instance may fall before missed ticks are dropped instead of replayed
+    static final long MAX_CATCH_UP_TICKS = 5;
+
+    private final DelayQueue<EngineInstance.ScheduledTick> queue = new DelayQueue<>();
+    private final Map<String, EngineInstance> instances = new ConcurrentHashMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+
+    private int instancePoolSize = 1;
+    private volatile boolean running = true;
+
+    /**
+     * Creates a scheduler with the given number of worker threads, usually one per core.
+     *
+     * @param workerCount the number of worker threads shared by all instances
+     */
+    public InstanceScheduler(int workerCount) {
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::work, "pajama-instance-worker-" + (i + 1));
+            workers.add(worker);
+            worker.start();
+        }
+        PajamaLogger.log("InstanceScheduler started with " + workerCount + " workers.");
+    }
+
+    /**
+     * Sets the number of asynchronous task threads given to each new instance.
+     *
+     * @param instancePoolSize the thread count of each instance's {@link ThreadManagerPool}
+     * @return the current instance of the InstanceScheduler
+     */
+    public InstanceScheduler setInstancePoolSize(int instancePoolSize) {
+        this.instancePoolSize = instancePoolSize;
+        return this;
+    }
+
+    /**
+     * Launches an instance whose tick budget is its whole tick period.
+     *
+     * @param name           the unique name of the instance
+     * @param mainClass      the {@link GameLoop} class, which must implement {@link Tickable}
+     * @param ticksPerSecond the tick rate of the instance
+     * @return the running instance
+     * @throws Exception if the context of the instance cannot be initialized
+     * @throws IllegalArgumentException if {@code ticksPerSecond} is not positive
+     */
+    public EngineInstance launch(String name, Class<?> mainClass, int ticksPerSecond) throws Exception {
+        checkTickRate(ticksPerSecond);
+        return launch(name, mainClass, ".", ticksPerSecond, Duration.ofNanos(1_000_000_000L / ticksPerSecond));
+    }
+
+    /**
+     * Launches an instance with its own context, scanned from the given base package.
+     *
+     * @param name           the unique name of the instance
+     * @param mainClass      the {@link GameLoop} class, which must implement {@link Tickable}
+     * @param basePackage    the base package to scan for components
+     * @param ticksPerSecond the tick rate of the instance
+     * @param tickBudget     the processing time a tick may take before it is counted as an overrun
+     *                       and the next tick is pushed back
+     * @return the running instance
+     * @throws Exception if the context of the instance cannot be initialized
+     * @throws IllegalArgumentException if {@code ticksPerSecond} or {@code tickBudget} is not positive
+     * @throws IllegalStateException if the scheduler is shut down or the name is already in use
+     */
+    public EngineInstance launch(String name, Class<?> mainClass, String basePackage,
+                                 int ticksPerSecond, Duration tickBudget) throws Exception {
+        checkTickRate(ticksPerSecond);
+        if (tickBudget == null || tickBudget.isNegative() || tickBudget.isZero()) {
+            throw new IllegalArgumentException("Tick budget must be positive: " + tickBudget);
+        }
+        if (!running) {
+            throw new IllegalStateException("InstanceScheduler is shut down.");
+        }
+        if (instances.containsKey(name)) {
+            throw new IllegalStateException("Instance already exists: " + name);
+        }
+
+        EngineContext context = new EngineContext(basePackage, mainClass, new ThreadManagerPool(instancePoolSize, name));
+        Object gameLoop = context.getComponent(mainClass);
+
+        if (gameLoop == null || !mainClass.isAnnotationPresent(GameLoop.class)) {
+            context.shutdown();
+            throw new RuntimeException(NO_GAME_LOOP_FOUND.getMessage());
+        }
+        if (!(gameLoop instanceof Tickable)) {
+            context.shutdown();
+            throw new RuntimeException(GAME_LOOP_HAS_NOT_IMPLEMENTED_TICKABLE.getMessage());
+        }
+
+        EngineInstance instance = new EngineInstance(name, context, (Tickable) gameLoop, this,
+                1_000_000_000L / ticksPerSecond, tickBudget.toNanos());
+        instances.put(name, instance);
+        instance.start();
+
+        PajamaLogger.log("Instance " + name + " launched at " + ticksPerSecond + " ticks per second.");
+        return instance;
+    }
+
+    private static void checkTickRate(int ticksPerSecond) {
+        if (ticksPerSecond <= 0) {
+            throw new IllegalArgumentException("Ticks per second must be positive: " + ticksPerSecond);
+        }
+    }
+
+    /**
+     * Returns the instance with the given name.
+     *
+     * @param name the instance name
+     * @return the instance, or {@code null} if no running instance has that name
+     */
+    public EngineInstance getInstance(String name) {
+        return instances.get(name);
+    }
+
+    /**
+     * Returns every running instance.
+     *
+     * @return a read-only view of the instances
+     */
+    public Collection<EngineInstance> getInstances() {
+        return Collections.unmodifiableCollection(instances.values());
+    }
+
+    /**
+     * Stops every instance and the worker threads. Instances whose tick is running finish it and
+     * are closed by the worker, so no instance keeps its pool threads alive afterwards.
+     */
+    public void shutdown() {
+        // Under the same lock as enqueue, so a tick running right now either gets its instance
+        // queued before this point and closed below, or closes the instance itself
+        synchronized (this) {
+            running = false;
+        }
+        for (EngineInstance instance : List.copyOf(instances.values())) {
+            instance.shutdown();
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        PajamaLogger.log("InstanceScheduler shut down.");
+    }
+
+    /**
+     * Queues the next tick of an instance. After {@link #shutdown()} no worker would take it, so
+     * the instance is closed instead.
+     */
+    void enqueue(EngineInstance.ScheduledTick tick) {
+        synchronized (this) {
+            if (running) {
+                queue.put(tick);
+                return;
+            }
+        }
+        tick.instance().abort();
+    }
+
+    boolean dequeue(EngineInstance.ScheduledTick tick) {
+        return queue.remove(tick);
+    }
+
+    void remove(EngineInstance instance) {
+        instances.remove(instance.getName(), instance);
+    }
+
+    /**
+     * Runs on every worker thread, ticking whichever instance is most overdue. A failure that
+     * escapes a tick closes that instance and leaves the worker running.
+     */
+    private void work() {
+        while (running) {
+            EngineInstance instance;
+            try {
+                instance = queue.take().instance();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                instance.runTick();
+            } catch (Throwable t) {
+                instance.fail(t);
+                instance.abort();
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package dark.cat.managers;
+
+import dark.cat.input.InputEventRing;
+import dark.cat.input.InputEventSink;
+import dark.cat.input.InputEventType;
+import dark.cat.input.InputState;
+import dark.cat.replay.ReplayPlayer;
+import dark.cat.replay.ReplayRecorder;
+import dark.cat.utils.PajamaLogger;
+
+import java.awt.*;
+import java.awt.event.*;
+import java.io.IOException;
+
+/**
+ * Captures keyboard and mouse input from the {@link RenderManager} canvas and exposes it to the
+ * game loop as a polled, per-frame {@link InputState} snapshot.
+ * <li>AWT listeners run on the event dispatch thread and only publish raw events into a
+ * lock-free {@link InputEventRing}. The game thread drains the ring once per tick through
+ * {@link #poll()}, so game state is never touched from the event dispatch thread and no locks
+ * are taken on the hot path.</li>
+ * <p>Usage Example:</p>
+ * <pre>
+ * {@code
+ * @InjectPajamaDependency
+ * private InputManager inputManager;
+ *
+ * inputManager.attach(renderManager);
+ * while (running) {
+ *     InputState input = inputManager.poll();
+ *     if (input.isKeyDown(KeyEvent.VK_LEFT)) {
+ *         player.moveLeft();
+ *     }
+ * }
+ * }
+ * </pre>
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class InputManager {
+
+    private final InputEventRing ring;
+    private final InputState state = new InputState();
+
+    private Component source;
+    private final Listener listener = new Listener();
+
+    // Drops live events while a replay is feeding the snapshot
+    private static final InputEventSink DISCARD = (type, code, x, y) -> { };
+
+    private ReplayRecorder recorder;
+    private ReplayPlayer replay;
+
+    // Forwards every drained event to both the snapshot and the recorder
+    private final InputEventSink recordingSink = (type, code, x, y) -> {
+        state.onEvent(type, code, x, y);
+        recorder.onEvent(type, code, x, y);
+    };
+
+    public InputManager() {
+        this.ring = new InputEventRing();
+    }
+
+    /**
+     * Starts capturing input from the canvas of the given render manager. The canvas is made
+     * focusable and focus is requested so keyboard events are delivered to it.
+     *
+     * @param renderManager an initialized render manager
+     * @return the current instance of the InputManager
+     */
+    public InputManager attach(RenderManager renderManager) {
+        return attach(renderManager.getCanvas());
+    }
+
+    /**
+     * Starts capturing input from the given component. Any previously attached component is
+     * detached first.
+     *
+     * @param component the component to listen to
+     * @return the current instance of the InputManager
+     */
+    public InputManager attach(Component component) {
+        detach();
+        source = component;
+        source.setFocusable(true);
+        source.addKeyListener(listener);
+        source.addMouseListener(listener);
+        source.addMouseMotionListener(listener);
+        source.addMouseWheelListener(listener);
+        source.addFocusListener(listener);
+        source.requestFocus();
+
+        PajamaLogger.log("InputManager attached to " + component.getClass().getSimpleName());
+        return this;
+    }
+
+    /**
+     * Stops capturing input from the currently attached component.
+     */
+    public void detach() {
+        if (source != null) {
+            source.removeKeyListener(listener);
+            source.removeMouseListener(listener);
+            source.removeMouseMotionListener(listener);
+            source.removeMouseWheelListener(listener);
+            source.removeFocusListener(listener);
+            source = null;
+        }
+    }
+
+    /**
+     * Drains every event captured since the previous call into the input snapshot. Must be
+     * called once per tick from the game thread.
+     *
+     * @return the updated input snapshot
+     */
+    public InputState poll() {
+        state.beginFrame();
+        if (replay != null) {
+            ring.drainTo(DISCARD);
+            try {
+                replay.drainTo(state);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read replay input.", e);
+            }
+        } else if (recorder != null) {
+            ring.drainTo(recordingSink);
+        } else {
+            ring.drainTo(state);
+        }
+        return state;
+    }
+
+    /**
+     * Records every event drained by {@link #poll()} into the given recorder.
+     *
+     * @param recorder the recorder, or {@code null} to stop recording
+     * @return the current instance of the InputManager
+     */
+    public InputManager setRecorder(ReplayRecorder recorder) {
+        this.recorder = recorder;
+        return this;
+    }
+
+    /**
+     * Feeds {@link #poll()} from the current tick of a replay instead of the attached component.
+     * Live events are discarded while a replay is set.
+     *
+     * @param replay the replay player, or {@code null} to return to live input
+     * @return the current instance of the InputManager
+     */
+    public InputManager setReplay(ReplayPlayer replay) {
+        this.replay = replay;
+        return this;
+    }
+
+    /**
+     * Returns the snapshot built by the last {@link #poll()} without draining new events.
+     *
+     * @return the current input snapshot
+     */
+    public InputState getState() {
+        return state;
+    }
+
+    /**
+     * Returns the number of events dropped because the game loop did not poll often enough.
+     *
+     * @return the dropped event count
+     */
+    public long getDroppedEventCount() {
+        return ring.getDroppedCount();
+    }
+
+    /**
+     * Publishes raw events into the ring. Every callback runs on the event dispatch thread,
+     * which is the single producer of the ring.
+     */
+    private final class Listener implements KeyListener, MouseListener, MouseMotionListener,
+            MouseWheelListener, FocusListener {
+
+        @Override
+        public void keyPressed(KeyEvent e) {
+            ring.offer(InputEventType.KEY_PRESSED.ordinal(), e.getKeyCode(), 0, 0);
+        }
+
+        @Override
+        public void keyReleased(KeyEvent e) {
+            ring.offer(InputEventType.KEY_RELEASED.ordinal(), e.getKeyCode(), 0, 0);
+        }
+
+        @Override
+        public void keyTyped(KeyEvent e) { }
+
+        @Override
+        public void mousePressed(MouseEvent e) {
+            ring.offer(InputEventType.MOUSE_PRESSED.ordinal(), e.getButton(), e.getX(), e.getY());
+        }
+
+        @Override
+        public void mouseReleased(MouseEvent e) {
+            ring.offer(InputEventType.MOUSE_RELEASED.ordinal(), e.getButton(), e.getX(), e.getY());
+        }
+
+        @Override
+        public void mouseMoved(MouseEvent e) {
+            ring.offer(InputEventType.MOUSE_MOVED.ordinal(), 0, e.getX(), e.getY());
+        }
+
+        @Override
+        public void mouseDragged(MouseEvent e) {
+            ring.offer(InputEventType.MOUSE_MOVED.ordinal(), 0, e.getX(), e.getY());
+        }
+
+        @Override
+        public void mouseWheelMoved(MouseWheelEvent e) {
+            ring.offer(InputEventType.MOUSE_WHEEL.ordinal(), e.getWheelRotation(), e.getX(), e.getY());
+        }
+
+        @Override
+        public void mouseClicked(MouseEvent e) { }
+
+        @Override
+        public void mouseEntered(MouseEvent e) { }
+
+        @Override
+        public void mouseExited(MouseEvent e) { }
+
+        @Override
+        public void focusGained(FocusEvent e) { }
+
+        @Override
+        public void focusLost(FocusEvent e) {
+            ring.offer(InputEventType.FOCUS_LOST.ordinal(), 0, 0, 0);
+        }
+    }
+}
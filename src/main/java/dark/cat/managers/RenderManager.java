@@ -1,12 +1,16 @@
 package dark.cat.managers;
 
 import dark.cat.annotations.GameLoop;
+import dark.cat.annotations.InjectPajamaDependency;
+import dark.cat.rendering.QualityController;
+import dark.cat.telemetry.SwapBuffersEvent;
 import dark.cat.utils.PajamaLogger;
 import dark.cat.utils.ThreadManagerPool;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
 import java.util.function.Consumer;
 
 /**
@@ -44,11 +48,16 @@ public class RenderManager {
     private int width;
     private String title;
 
+    @InjectPajamaDependency
     private ThreadManagerPool threadManagerPool;
 
-    public RenderManager() {
-        this.threadManagerPool = new ThreadManagerPool();
-    }
+    private final QualityController qualityController = new QualityController();
+    private boolean adaptiveQuality;
+
+    private BufferedImage scaledFrame;
+    private Graphics2D frameGraphics;
+    private boolean frameScaled;
+    private long frameStartNanos;
 
     /**
      * Initializes the RenderManager by creating a window and setting up the rendering canvas.
@@ -132,8 +141,93 @@ public class RenderManager {
      */
     public void swapBuffers() {
         if (bufferStrategy != null) {
+            SwapBuffersEvent event = new SwapBuffersEvent();
+            event.begin();
             bufferStrategy.show();
+            event.commit();
+        }
+    }
+
+    /**
+     * Starts a frame and returns the graphics to draw it with, in canvas coordinates.
+     *
+     * <p>With adaptive quality enabled and a render scale below 1, the frame is drawn into a
+     * smaller offscreen image and upscaled onto the buffer strategy by {@link #endFrame()}.
+     * Otherwise the graphics draw straight into the buffer strategy.
+     *
+     * @return the graphics for the frame, or {@code null} if the RenderManager is not initialized
+     */
+    public Graphics2D beginFrame() {
+        if (bufferStrategy == null) {
+            return null;
+        }
+
+        frameStartNanos = System.nanoTime();
+        float scale = adaptiveQuality ? qualityController.getRenderScale() : 1f;
+
+        if (scale >= 1f) {
+            frameScaled = false;
+            frameGraphics = (Graphics2D) bufferStrategy.getDrawGraphics();
+            return frameGraphics;
+        }
+
+        int scaledWidth = Math.max(1, Math.round(getWidth() * scale));
+        int scaledHeight = Math.max(1, Math.round(getHeight() * scale));
+        if (scaledFrame == null || scaledFrame.getWidth() != scaledWidth || scaledFrame.getHeight() != scaledHeight) {
+            scaledFrame = canvas.getGraphicsConfiguration().createCompatibleImage(scaledWidth, scaledHeight);
+        }
+
+        frameScaled = true;
+        frameGraphics = scaledFrame.createGraphics();
+        frameGraphics.scale((double) scaledWidth / getWidth(), (double) scaledHeight / getHeight());
+        return frameGraphics;
+    }
+
+    /**
+     * Finishes the frame started by {@link #beginFrame()}: upscales it if it was rendered at a
+     * lower resolution, reports its render time to the {@link QualityController} and shows it.
+     * Does nothing if no frame was started.
+     */
+    public void endFrame() {
+        if (frameGraphics == null) {
+            return;
+        }
+        frameGraphics.dispose();
+        frameGraphics = null;
+
+        if (frameScaled) {
+            Graphics2D screen = (Graphics2D) bufferStrategy.getDrawGraphics();
+            screen.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            screen.drawImage(scaledFrame, 0, 0, getWidth(), getHeight(), null);
+            screen.dispose();
+        }
+
+        if (adaptiveQuality) {
+            qualityController.recordFrame(System.nanoTime() - frameStartNanos);
         }
+        swapBuffers();
+    }
+
+    /**
+     * Enables or disables adaptive quality. While enabled, frames rendered through
+     * {@link #beginFrame()} and {@link #endFrame()} drive the {@link QualityController}.
+     *
+     * @param adaptiveQuality {@code true} to adapt quality to the frame budget
+     * @return the current instance of the RenderManager
+     */
+    public RenderManager setAdaptiveQuality(boolean adaptiveQuality) {
+        this.adaptiveQuality = adaptiveQuality;
+        return this;
+    }
+
+    /**
+     * Returns the controller that adapts the render resolution and optional features to the
+     * frame budget.
+     *
+     * @return the quality controller
+     */
+    public QualityController getQualityController() {
+        return qualityController;
     }
 
     /**
@@ -191,13 +285,31 @@ public class RenderManager {
 
     /**
      * Creates and starts a new thread using the provided thread manager pool callback.
+     * Injected managers hand out the pool of their engine context, so an isolated
+     * {@link dark.cat.instances.EngineInstance} keeps its tasks on its own threads. A manager
+     * created with {@code new} and no pool set falls back to the shared executors.
      *
      * @param threadManagerPoolConsumer the thread manager pool callback to execute asynchronously
      */
     public void newThread(Consumer<ThreadManagerPool> threadManagerPoolConsumer)  {
+        if (threadManagerPool == null) {
+            threadManagerPool = new ThreadManagerPool();
+        }
         threadManagerPoolConsumer.accept(threadManagerPool);
     }
 
+    /**
+     * Sets the pool handed out by {@link #newThread(Consumer)}. Injected managers use the pool
+     * of their engine context.
+     *
+     * @param threadManagerPool the pool
+     * @return the current instance of the RenderManager
+     */
+    public RenderManager setThreadManagerPool(ThreadManagerPool threadManagerPool) {
+        this.threadManagerPool = threadManagerPool;
+        return this;
+    }
+
     /**
      * Cleans up resources associated with the RenderManager and closes the rendering window.
      *
@@ -210,6 +322,15 @@ public class RenderManager {
         }
     }
 
+    /**
+     * Returns the rendering canvas, e.g. for attaching an {@link InputManager}.
+     *
+     * @return the canvas, or {@code null} if the RenderManager is not initialized
+     */
+    public Canvas getCanvas() {
+        return canvas;
+    }
+
     /**
      * Returns the width of the rendering canvas.
      *
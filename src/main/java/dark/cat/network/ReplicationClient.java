@@ -0,0 +1,370 @@
+package dark.cat.network;
+
+import dark.cat.annotations.Snapshot;
+import dark.cat.context.EngineContext;
+import dark.cat.snapshot.DeltaCodec;
+import dark.cat.snapshot.SnapshotManager;
+import dark.cat.utils.DirectBufferPool;
+import dark.cat.utils.PajamaLogger;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import static dark.cat.network.ReplicationProtocol.*;
+
+/**
+ * Receives replicated state from a {@link ReplicationServer} and applies it to the registered
+ * components.
+ * <li>A selector thread receives datagrams and reassembles the fragments of each tick into a
+ * pooled direct buffer. The game thread applies completed ticks through {@link #poll()}, which
+ * decodes them into the local snapshot history, restores the newest tick in place and
+ * acknowledges it so the server can use it as the next delta baseline.</li>
+ * <p>Usage Example:</p>
+ * <pre>
+ * {@code
+ * replicationClient.registerAll(context).connect(new InetSocketAddress("localhost", 7777));
+ * while (running) {
+ *     replicationClient.poll();
+ *     render();
+ * }
+ * replicationClient.close();
+ * }
+ * </pre>
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class ReplicationClient {
+
+    // Completed ticks the selector thread may queue before the game thread polls
+    private static final int RECEIVE_QUEUE_SIZE = 16;
+
+    // Header of a queued delta: tick, base tick and delta length
+    private static final int QUEUED_HEADER_SIZE = Long.BYTES + Long.BYTES + Integer.BYTES;
+
+    // Fragments of a tick are tracked in a single long bit mask
+    private static final int MAX_FRAGMENTS = Long.SIZE;
+
+    private static final long SELECT_TIMEOUT_MILLIS = 50;
+    private static final long HELLO_INTERVAL_NANOS = 500_000_000L;
+
+    private final SnapshotManager snapshotManager = new SnapshotManager();
+    private final ArrayBlockingQueue<ByteBuffer> completed = new ArrayBlockingQueue<>(RECEIVE_QUEUE_SIZE);
+    private DirectBufferPool deltaPool;
+
+    private DatagramChannel channel;
+    private Selector selector;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    private int snapshotSize;
+    private ByteBuffer zeroBaseline;
+    private ByteBuffer scratch;
+
+    // Game thread state
+    private final ByteBuffer ack = ByteBuffer.allocateDirect(MAX_PACKET_SIZE);
+    private long appliedTick = NO_TICK;
+    private volatile long lastAppliedNanos;
+
+    // Selector thread state
+    private final ByteBuffer received = ByteBuffer.allocateDirect(MAX_PACKET_SIZE);
+    private final ByteBuffer hello = ByteBuffer.allocateDirect(HELLO_SIZE);
+    private long cookie = NO_COOKIE;
+    private ByteBuffer assembly;
+    private long assemblingTick = NO_TICK;
+    private long assemblingBaseTick;
+    private int assemblingLength;
+    private long receivedFragments;
+    private long expectedFragments;
+    private int lastSequence = -1;
+
+    private volatile long bytesReceived;
+    private volatile long packetsReceived;
+    private volatile long packetsLost;
+    private volatile int lastDeltaBytes;
+
+    /**
+     * Registers a component that receives replicated state. Components must be registered in
+     * the same order as on the server, before {@link #connect(SocketAddress)}.
+     *
+     * @param component the component to update
+     * @return the current instance of the ReplicationClient
+     */
+    public ReplicationClient register(Object component) {
+        snapshotManager.register(component);
+        return this;
+    }
+
+    /**
+     * Registers every component of the context that declares {@link Snapshot} fields.
+     *
+     * @param context the engine context to take components from
+     * @return the current instance of the ReplicationClient
+     */
+    public ReplicationClient registerAll(EngineContext context) {
+        snapshotManager.registerAll(context);
+        return this;
+    }
+
+    /**
+     * Connects to a replication server and starts the selector thread.
+     *
+     * @param server the address of the server
+     * @return the current instance of the ReplicationClient
+     * @throws IOException if the channel cannot be opened
+     */
+    public ReplicationClient connect(SocketAddress server) throws IOException {
+        snapshotManager.freeze();
+        snapshotSize = snapshotManager.getSnapshotSize();
+        int maxDelta = DeltaCodec.maxEncodedLength(snapshotSize);
+        deltaPool = new DirectBufferPool(QUEUED_HEADER_SIZE + maxDelta, RECEIVE_QUEUE_SIZE * 2);
+        assembly = ByteBuffer.allocateDirect(maxDelta);
+        zeroBaseline = ByteBuffer.allocateDirect(snapshotSize);
+        scratch = ByteBuffer.allocateDirect(snapshotSize);
+
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.connect(server);
+        selector = Selector.open();
+        channel.register(selector, SelectionKey.OP_READ);
+
+        running = true;
+        selectorThread = new Thread(this::selectLoop, "pajama-replication-client");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+
+        PajamaLogger.log("ReplicationClient connecting to " + server);
+        return this;
+    }
+
+    /**
+     * Applies every tick received since the previous call and restores the newest one into the
+     * registered components. Must be called from the game thread.
+     *
+     * @return the newest applied tick, or {@code -1} if nothing new arrived
+     * @throws IOException if the acknowledgement cannot be sent
+     */
+    public long poll() throws IOException {
+        long newest = NO_TICK;
+        ByteBuffer buffer;
+
+        while ((buffer = completed.poll()) != null) {
+            long tick = buffer.getLong();
+            long baseTick = buffer.getLong();
+            int length = buffer.getInt();
+            buffer.limit(buffer.position() + length);
+
+            if (tick > appliedTick) {
+                if (baseTick == NO_TICK) {
+                    DeltaCodec.decode(zeroBaseline, buffer, snapshotSize, scratch);
+                    snapshotManager.readFrom(tick, scratch.clear());
+                    newest = tick;
+                } else if (snapshotManager.hasSnapshot(baseTick)) {
+                    snapshotManager.applyDelta(baseTick, tick, buffer);
+                    newest = tick;
+                }
+            }
+            deltaPool.release(buffer);
+        }
+
+        if (newest != NO_TICK) {
+            snapshotManager.restore(newest);
+            appliedTick = newest;
+            lastAppliedNanos = System.nanoTime();
+
+            ack.clear();
+            writeControl(ack, ACK);
+            ack.putLong(newest).flip();
+            channel.write(ack);
+        }
+        return newest;
+    }
+
+    /**
+     * Tells the server the client is leaving, stops the selector thread and closes the channel.
+     */
+    public void close() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        try {
+            if (selectorThread != null) {
+                selectorThread.join();
+            }
+            if (channel != null) {
+                ack.clear();
+                writeControl(ack, BYE);
+                channel.write(ack.flip());
+                channel.close();
+            }
+            if (selector != null) {
+                selector.close();
+            }
+        } catch (IOException e) {
+            PajamaLogger.error("Could not close ReplicationClient: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs on the selector thread until the client is closed. Sends hellos while no ticks are
+     * being applied, which both connects the client and keeps an idle client alive. A challenge
+     * from the server is answered right away with a hello carrying its cookie.
+     */
+    private void selectLoop() {
+        long lastHelloNanos = 0;
+        try {
+            while (running) {
+                long now = System.nanoTime();
+                if (now - lastHelloNanos > HELLO_INTERVAL_NANOS && now - lastAppliedNanos > HELLO_INTERVAL_NANOS) {
+                    sendHello();
+                    lastHelloNanos = now;
+                }
+
+                selector.select(SELECT_TIMEOUT_MILLIS);
+                selector.selectedKeys().clear();
+                receivePackets();
+            }
+        } catch (IOException e) {
+            if (running) {
+                PajamaLogger.error("ReplicationClient stopped: " + e.getMessage());
+            }
+        }
+    }
+
+    // Padded to the full hello size, which the server requires before answering
+    private void sendHello() throws IOException {
+        hello.clear();
+        writeControl(hello, HELLO);
+        hello.putLong(cookie);
+        channel.write(hello.position(HELLO_SIZE).flip());
+    }
+
+    private void receivePackets() throws IOException {
+        int read;
+        while ((read = channel.read(received.clear())) > 0) {
+            received.flip();
+            bytesReceived += read;
+            packetsReceived++;
+
+            byte type = readType(received);
+            if (type == CHALLENGE && received.remaining() >= Long.BYTES) {
+                cookie = received.getLong();
+                sendHello();
+                continue;
+            }
+            if (type != SNAPSHOT || received.remaining() < SNAPSHOT_HEADER_SIZE - 3) {
+                continue;
+            }
+
+            int sequence = received.getInt();
+            if (lastSequence >= 0 && sequence > lastSequence + 1) {
+                packetsLost += sequence - lastSequence - 1;
+            }
+            lastSequence = Math.max(lastSequence, sequence);
+
+            long tick = received.getLong();
+            long baseTick = received.getLong();
+            int remoteSnapshotSize = received.getInt();
+            int deltaLength = received.getInt();
+            int fragment = received.getShort();
+            int fragmentCount = received.getShort();
+
+            if (remoteSnapshotSize != snapshotSize) {
+                PajamaLogger.error("Replicated state size mismatch: server " + remoteSnapshotSize
+                        + " bytes, client " + snapshotSize + " bytes.");
+                continue;
+            }
+            int length = received.remaining();
+            int offset = fragment * MAX_FRAGMENT_PAYLOAD;
+            if (fragmentCount > MAX_FRAGMENTS || fragment < 0 || fragment >= fragmentCount
+                    || deltaLength > assembly.capacity() || offset + length > deltaLength || tick < assemblingTick) {
+                continue;
+            }
+
+            if (tick != assemblingTick) {
+                assemblingTick = tick;
+                assemblingBaseTick = baseTick;
+                assemblingLength = deltaLength;
+                receivedFragments = 0;
+                expectedFragments = fragmentCount == MAX_FRAGMENTS ? -1L : (1L << fragmentCount) - 1;
+            }
+
+            assembly.put(offset, received, received.position(), length);
+            receivedFragments |= 1L << fragment;
+
+            if (receivedFragments == expectedFragments) {
+                completeTick();
+            }
+        }
+    }
+
+    /**
+     * Hands a fully reassembled tick to the game thread.
+     */
+    private void completeTick() {
+        ByteBuffer buffer = deltaPool.acquire();
+        buffer.putLong(assemblingTick).putLong(assemblingBaseTick).putInt(assemblingLength);
+        buffer.put(buffer.position(), assembly, 0, assemblingLength);
+        buffer.position(buffer.position() + assemblingLength).flip();
+
+        if (!completed.offer(buffer)) {
+            deltaPool.release(buffer);
+        }
+        lastDeltaBytes = assemblingLength;
+        receivedFragments = 0;
+    }
+
+    /**
+     * Returns the newest tick applied by {@link #poll()}.
+     *
+     * @return the applied tick, or {@code -1} before the first update
+     */
+    public long getAppliedTick() {
+        return appliedTick;
+    }
+
+    /**
+     * Returns the total number of bytes received.
+     *
+     * @return the bytes received
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * Returns the total number of datagrams received.
+     *
+     * @return the packets received
+     */
+    public long getPacketsReceived() {
+        return packetsReceived;
+    }
+
+    /**
+     * Returns the number of datagrams detected as lost from gaps in the sequence numbers.
+     *
+     * @return the lost packet count
+     */
+    public long getPacketsLost() {
+        return packetsLost;
+    }
+
+    /**
+     * Returns the size of the last reassembled delta.
+     *
+     * @return the delta size in bytes
+     */
+    public int getLastDeltaBytes() {
+        return lastDeltaBytes;
+    }
+}
@@ -0,0 +1,76 @@
+package dark.cat.network;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Constants and header helpers of the replication wire format shared by the
+ * {@link ReplicationServer} and the {@link ReplicationClient}.
+ *
+ * <p>Every datagram starts with a two byte magic and a one byte packet type. Snapshot packets
+ * carry one fragment of the delta of a tick against the last tick the client acknowledged:
+ * <pre>
+ * magic:short type:byte sequence:int tick:long baseTick:long snapshotSize:int
+ * deltaLength:int fragmentIndex:short fragmentCount:short payload
+ * </pre>
+ * A {@code baseTick} of {@code -1} means the delta is encoded against an all-zero snapshot,
+ * i.e. it is a full update.
+ *
+ * <p>A client connects with a stateless cookie handshake. Its first hello carries no cookie and
+ * is answered with a challenge holding a cookie derived from the client's address. The client
+ * echoes the cookie in its next hello, which proves it owns the address, and only then is it
+ * registered and sent snapshots. Hellos are padded to {@link #HELLO_SIZE}, so the challenge
+ * sent to an unverified address is never larger than the hello that caused it.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+final class ReplicationProtocol {
+
+    static final short MAGIC = 0x504A;
+
+    static final byte HELLO = 1;
+    static final byte SNAPSHOT = 2;
+    static final byte ACK = 3;
+    static final byte BYE = 4;
+    static final byte CHALLENGE = 5;
+
+    // Stays below the usual path MTU so datagrams are never fragmented by IP
+    static final int MAX_PACKET_SIZE = 1200;
+
+    static final int SNAPSHOT_HEADER_SIZE = 2 + 1 + 4 + 8 + 8 + 4 + 4 + 2 + 2;
+
+    static final int MAX_FRAGMENT_PAYLOAD = MAX_PACKET_SIZE - SNAPSHOT_HEADER_SIZE;
+
+    static final long NO_TICK = -1;
+
+    static final long NO_COOKIE = 0;
+
+    // Padded size of a hello, well above the 11 bytes of the challenge it may trigger
+    static final int HELLO_SIZE = 64;
+
+    private ReplicationProtocol() { }
+
+    /**
+     * Reads and validates the magic and type of a received datagram.
+     *
+     * @param packet the datagram, flipped for reading
+     * @return the packet type, or {@code 0} if the datagram is not a replication packet
+     */
+    static byte readType(ByteBuffer packet) {
+        if (packet.remaining() < 3 || packet.getShort() != MAGIC) {
+            return 0;
+        }
+        return packet.get();
+    }
+
+    /**
+     * Writes a control packet without payload.
+     *
+     * @param packet the destination buffer, cleared
+     * @param type   the packet type
+     */
+    static void writeControl(ByteBuffer packet, byte type) {
+        packet.putShort(MAGIC).put(type);
+    }
+}
@@ -0,0 +1,563 @@
+package dark.cat.network;
+
+import dark.cat.annotations.Snapshot;
+import dark.cat.context.EngineContext;
+import dark.cat.snapshot.DeltaCodec;
+import dark.cat.snapshot.SnapshotManager;
+import dark.cat.utils.DirectBufferPool;
+import dark.cat.utils.PajamaLogger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import static dark.cat.network.ReplicationProtocol.*;
+
+/**
+ * Replicates the {@link Snapshot} state of registered components to any number of clients over
+ * a non-blocking {@link DatagramChannel}.
+ * <li>The game thread only captures the state and hands a pooled direct buffer to the selector
+ * thread through {@link #publish(long)}. The selector thread keeps a short history of published
+ * ticks, delta-compresses the newest tick against the last tick each client acknowledged, and
+ * sends the whole update in as few datagrams as possible. Clients are grouped by baseline before
+ * sending, so each delta is encoded once per tick however many clients share it.</li>
+ * <li>Clients are registered only after echoing a stateless address cookie, so the server
+ * cannot be used to reflect traffic at a spoofed address. Until then it answers at most
+ * {@value #MAX_CHALLENGES_PER_PERIOD} hellos per cookie period, each with a challenge smaller
+ * than the hello.</li>
+ * <p>Usage Example:</p>
+ * <pre>
+ * {@code
+ * replicationServer.registerAll(context).bind(7777);
+ * while (running) {
+ *     update();
+ *     replicationServer.publish(tick++);
+ * }
+ * replicationServer.close();
+ * }
+ * </pre>
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class ReplicationServer {
+
+    // Ticks kept on the selector thread as delta baselines
+    private static final int HISTORY_SIZE = 64;
+
+    // Ticks the game thread may run ahead of the selector thread before ticks are dropped
+    private static final int PUBLISH_QUEUE_SIZE = 16;
+
+    private static final long SELECT_TIMEOUT_MILLIS = 50;
+    private static final long CLIENT_TIMEOUT_NANOS = 5_000_000_000L;
+
+    // Cookies are accepted during the period they were issued in and the next one
+    private static final long COOKIE_PERIOD_NANOS = 2_000_000_000L;
+
+    // Unverified addresses answered per cookie period, further hellos are dropped
+    private static final int MAX_CHALLENGES_PER_PERIOD = 512;
+
+    private final SnapshotManager snapshotManager = new SnapshotManager().initialize(2);
+    private final ArrayBlockingQueue<ByteBuffer> published = new ArrayBlockingQueue<>(PUBLISH_QUEUE_SIZE);
+    private volatile DirectBufferPool snapshotPool;
+
+    private DatagramChannel channel;
+    private Selector selector;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    // Selector thread state
+    private final Map<SocketAddress, ClientState> clients = new HashMap<>();
+    private final ByteBuffer[] history = new ByteBuffer[HISTORY_SIZE];
+    private final long[] historyTicks = new long[HISTORY_SIZE];
+    private long latestTick = NO_TICK;
+    private int snapshotSize;
+    private ByteBuffer zeroBaseline;
+    private ByteBuffer delta;
+    private ClientState[] sendOrder = new ClientState[16];
+    private final int[] baselineStarts = new int[HISTORY_SIZE + 2];
+    private final ByteBuffer packet = ByteBuffer.allocateDirect(MAX_PACKET_SIZE);
+    private final ByteBuffer received = ByteBuffer.allocateDirect(MAX_PACKET_SIZE);
+    private final Mac cookieMac = newCookieMac();
+    private final byte[] cookieInput = new byte[16 + Integer.BYTES + Long.BYTES];
+    private long challengePeriod = -1;
+    private int challengesInPeriod;
+
+    private volatile int clientCount;
+    private volatile long bytesSent;
+    private volatile long packetsSent;
+    private volatile long lastTickBytes;
+    private volatile long droppedTicks;
+    private volatile long droppedHellos;
+
+    /**
+     * Registers a component whose {@link Snapshot} fields are replicated. Must be called before
+     * {@link #bind(int)}, in the same order on the server and on the clients.
+     *
+     * @param component the component to replicate
+     * @return the current instance of the ReplicationServer
+     */
+    public ReplicationServer register(Object component) {
+        snapshotManager.register(component);
+        return this;
+    }
+
+    /**
+     * Registers every component of the context that declares {@link Snapshot} fields.
+     *
+     * @param context the engine context to take components from
+     * @return the current instance of the ReplicationServer
+     */
+    public ReplicationServer registerAll(EngineContext context) {
+        snapshotManager.registerAll(context);
+        return this;
+    }
+
+    /**
+     * Binds the server to the given UDP port and starts the selector thread.
+     *
+     * @param port the port to listen on, or {@code 0} for an ephemeral port
+     * @return the current instance of the ReplicationServer
+     * @throws IOException if the channel cannot be opened or bound
+     */
+    public ReplicationServer bind(int port) throws IOException {
+        return bind(new InetSocketAddress(port));
+    }
+
+    /**
+     * Binds the server to the given address and starts the selector thread.
+     *
+     * @param address the local address to listen on
+     * @return the current instance of the ReplicationServer
+     * @throws IOException if the channel cannot be opened or bound
+     */
+    public ReplicationServer bind(SocketAddress address) throws IOException {
+        snapshotManager.freeze();
+        snapshotSize = snapshotManager.getSnapshotSize();
+        snapshotPool = new DirectBufferPool(snapshotSize + Long.BYTES, PUBLISH_QUEUE_SIZE + HISTORY_SIZE);
+        zeroBaseline = ByteBuffer.allocateDirect(snapshotSize);
+        delta = ByteBuffer.allocateDirect(DeltaCodec.maxEncodedLength(snapshotSize));
+        for (int i = 0; i < HISTORY_SIZE; i++) {
+            historyTicks[i] = NO_TICK;
+        }
+
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.bind(address);
+        selector = Selector.open();
+        channel.register(selector, SelectionKey.OP_READ);
+
+        running = true;
+        selectorThread = new Thread(this::selectLoop, "pajama-replication-server");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+
+        PajamaLogger.log("ReplicationServer listening on " + channel.getLocalAddress()
+                + " with " + snapshotSize + " bytes of replicated state.");
+        return this;
+    }
+
+    /**
+     * Captures the replicated state for the given tick and hands it to the selector thread.
+     * Called once per tick from the game thread after {@link #bind(int)}. If the selector thread falls behind, the tick
+     * is dropped, clients simply receive the next one.
+     *
+     * @param tick the tick number, increasing and not negative
+     */
+    public void publish(long tick) {
+        snapshotManager.capture(tick);
+
+        ByteBuffer buffer = snapshotPool.acquire();
+        snapshotManager.writeTo(tick, buffer);
+        buffer.putLong(tick).flip();
+
+        if (!published.offer(buffer)) {
+            snapshotPool.release(buffer);
+            droppedTicks++;
+        }
+        selector.wakeup();
+    }
+
+    /**
+     * Stops the selector thread and closes the channel.
+     */
+    public void close() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        try {
+            if (selectorThread != null) {
+                selectorThread.join();
+            }
+            if (channel != null) {
+                channel.close();
+            }
+            if (selector != null) {
+                selector.close();
+            }
+        } catch (IOException e) {
+            PajamaLogger.error("Could not close ReplicationServer: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        PajamaLogger.log("ReplicationServer closed.");
+    }
+
+    /**
+     * Runs on the selector thread until the server is closed.
+     */
+    private void selectLoop() {
+        try {
+            while (running) {
+                selector.select(SELECT_TIMEOUT_MILLIS);
+                selector.selectedKeys().clear();
+
+                receivePackets();
+                if (drainPublished()) {
+                    sendLatest();
+                }
+                expireClients();
+            }
+        } catch (IOException e) {
+            PajamaLogger.error("ReplicationServer stopped: " + e.getMessage());
+        }
+    }
+
+    private void receivePackets() throws IOException {
+        SocketAddress address;
+        while ((address = channel.receive(received.clear())) != null) {
+            received.flip();
+            byte type = readType(received);
+            ClientState client = clients.get(address);
+
+            if (type == HELLO) {
+                if (client != null) {
+                    client.lastHeardNanos = System.nanoTime();
+                } else {
+                    receiveHello(address);
+                }
+            } else if (type == ACK && client != null && received.remaining() >= Long.BYTES) {
+                // Only ticks actually sent to this client may become its delta baseline
+                long ackedTick = received.getLong();
+                if (ackedTick > client.ackedTick && client.wasSent(ackedTick)) {
+                    client.ackedTick = ackedTick;
+                }
+                client.lastHeardNanos = System.nanoTime();
+            } else if (type == BYE && client != null) {
+                clients.remove(address);
+                clientCount = clients.size();
+                PajamaLogger.log("Replication client disconnected: " + address);
+            }
+        }
+    }
+
+    /**
+     * Registers the sender of a hello carrying a valid cookie, or answers it with a challenge.
+     * Nothing is stored for unverified addresses, and short hellos are dropped so a challenge is
+     * never larger than the datagram that caused it.
+     */
+    private void receiveHello(SocketAddress address) throws IOException {
+        if (received.limit() < HELLO_SIZE || !(address instanceof InetSocketAddress inetAddress)) {
+            droppedHellos++;
+            return;
+        }
+
+        long period = System.nanoTime() / COOKIE_PERIOD_NANOS;
+        long cookie = received.getLong();
+        if (cookie != NO_COOKIE && (cookie == cookieOf(inetAddress, period) || cookie == cookieOf(inetAddress, period - 1))) {
+            clients.put(address, new ClientState(address));
+            clientCount = clients.size();
+            PajamaLogger.log("Replication client connected: " + address);
+            return;
+        }
+
+        if (period != challengePeriod) {
+            challengePeriod = period;
+            challengesInPeriod = 0;
+        }
+        if (challengesInPeriod >= MAX_CHALLENGES_PER_PERIOD) {
+            droppedHellos++;
+            return;
+        }
+        challengesInPeriod++;
+
+        packet.clear();
+        writeControl(packet, CHALLENGE);
+        packet.putLong(cookieOf(inetAddress, period)).flip();
+        channel.send(packet, address);
+    }
+
+    /**
+     * Derives the cookie of an address for a cookie period from the server's random key.
+     */
+    private long cookieOf(InetSocketAddress address, long period) {
+        byte[] ip = address.getAddress().getAddress();
+        ByteBuffer input = ByteBuffer.wrap(cookieInput);
+        input.put(ip).putInt(address.getPort()).putLong(period);
+        cookieMac.update(cookieInput, 0, input.position());
+        return ByteBuffer.wrap(cookieMac.doFinal()).getLong();
+    }
+
+    private static Mac newCookieMac() {
+        try {
+            byte[] key = new byte[32];
+            new SecureRandom().nextBytes(key);
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available for replication cookies.", e);
+        }
+    }
+
+    /**
+     * Moves published ticks into the history ring, releasing the buffers they evict.
+     *
+     * @return {@code true} if a new tick became available
+     */
+    private boolean drainPublished() {
+        boolean updated = false;
+        ByteBuffer buffer;
+        while ((buffer = published.poll()) != null) {
+            long tick = buffer.getLong(snapshotSize);
+            int slot = (int) (tick % HISTORY_SIZE);
+            snapshotPool.release(history[slot]);
+            history[slot] = buffer;
+            historyTicks[slot] = tick;
+            latestTick = tick;
+            updated = true;
+        }
+        return updated;
+    }
+
+    private ByteBuffer historyOf(long tick) {
+        if (tick == NO_TICK) {
+            return null;
+        }
+        int slot = (int) (tick % HISTORY_SIZE);
+        return historyTicks[slot] == tick ? history[slot] : null;
+    }
+
+    /**
+     * Sends the newest tick to every client as a delta against the client's acknowledged tick.
+     */
+    private void sendLatest() throws IOException {
+        ByteBuffer current = historyOf(latestTick);
+        int count = groupByBaseline();
+        long encodedBase = Long.MIN_VALUE;
+        int deltaLength = 0;
+        long tickBytes = 0;
+
+        for (int i = 0; i < count; i++) {
+            ClientState client = sendOrder[i];
+            sendOrder[i] = null;
+
+            if (client.baseTick != encodedBase) {
+                ByteBuffer base = client.baseTick != NO_TICK ? historyOf(client.baseTick) : zeroBaseline;
+                delta.clear();
+                deltaLength = DeltaCodec.encode(base, current, snapshotSize, delta);
+                encodedBase = client.baseTick;
+            }
+            tickBytes += sendDelta(client, client.baseTick, deltaLength);
+        }
+
+        lastTickBytes = tickBytes;
+    }
+
+    /**
+     * Orders the clients in {@code sendOrder} so that clients with the same delta baseline are
+     * adjacent and the delta against it is encoded only once. Baselines are either a tick in the
+     * history ring, one per slot, or none, so a counting sort over the slots groups them.
+     *
+     * @return the number of clients to send to
+     */
+    private int groupByBaseline() {
+        int count = clients.size();
+        if (sendOrder.length < count) {
+            sendOrder = new ClientState[Math.max(count, sendOrder.length * 2)];
+        }
+
+        Arrays.fill(baselineStarts, 0);
+        for (ClientState client : clients.values()) {
+            client.baseTick = historyOf(client.ackedTick) != null ? client.ackedTick : NO_TICK;
+            baselineStarts[baselineSlot(client.baseTick) + 1]++;
+        }
+        for (int i = 1; i < baselineStarts.length; i++) {
+            baselineStarts[i] += baselineStarts[i - 1];
+        }
+        for (ClientState client : clients.values()) {
+            sendOrder[baselineStarts[baselineSlot(client.baseTick)]++] = client;
+        }
+        return count;
+    }
+
+    private static int baselineSlot(long baseTick) {
+        return baseTick == NO_TICK ? HISTORY_SIZE : (int) (baseTick % HISTORY_SIZE);
+    }
+
+    private int sendDelta(ClientState client, long baseTick, int deltaLength) throws IOException {
+        int fragmentCount = Math.max(1, (deltaLength + MAX_FRAGMENT_PAYLOAD - 1) / MAX_FRAGMENT_PAYLOAD);
+        int sent = 0;
+
+        for (int fragment = 0; fragment < fragmentCount; fragment++) {
+            int offset = fragment * MAX_FRAGMENT_PAYLOAD;
+            int length = Math.min(MAX_FRAGMENT_PAYLOAD, deltaLength - offset);
+
+            packet.clear();
+            packet.putShort(MAGIC).put(SNAPSHOT)
+                    .putInt(client.sequence++)
+                    .putLong(latestTick)
+                    .putLong(baseTick)
+                    .putInt(snapshotSize)
+                    .putInt(deltaLength)
+                    .putShort((short) fragment)
+                    .putShort((short) fragmentCount);
+            packet.put(packet.position(), delta, offset, length);
+            packet.position(packet.position() + length).flip();
+
+            sent += channel.send(packet, client.address);
+        }
+        client.markSent(latestTick);
+
+        bytesSent += sent;
+        packetsSent += fragmentCount;
+        return sent;
+    }
+
+    private void expireClients() {
+        long now = System.nanoTime();
+        for (Iterator<ClientState> iterator = clients.values().iterator(); iterator.hasNext(); ) {
+            ClientState client = iterator.next();
+            if (now - client.lastHeardNanos > CLIENT_TIMEOUT_NANOS) {
+                iterator.remove();
+                clientCount = clients.size();
+                PajamaLogger.log("Replication client timed out: " + client.address);
+            }
+        }
+    }
+
+    /**
+     * Returns the local address the server is bound to.
+     *
+     * @return the local address
+     * @throws IOException if the channel is closed
+     */
+    public SocketAddress getLocalAddress() throws IOException {
+        return channel.getLocalAddress();
+    }
+
+    /**
+     * Returns the number of connected clients.
+     *
+     * @return the client count
+     */
+    public int getClientCount() {
+        return clientCount;
+    }
+
+    /**
+     * Returns the size of the replicated state of a single tick before delta compression.
+     *
+     * @return the snapshot size in bytes
+     */
+    public int getSnapshotSize() {
+        return snapshotSize;
+    }
+
+    /**
+     * Returns the bytes sent to all clients for the last replicated tick.
+     *
+     * @return the bytes per tick
+     */
+    public long getLastTickBytes() {
+        return lastTickBytes;
+    }
+
+    /**
+     * Returns the total number of bytes sent.
+     *
+     * @return the bytes sent
+     */
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * Returns the total number of datagrams sent.
+     *
+     * @return the packets sent
+     */
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
+    /**
+     * Returns the number of ticks dropped because the selector thread fell behind.
+     *
+     * @return the dropped tick count
+     */
+    public long getDroppedTicks() {
+        return droppedTicks;
+    }
+
+    /**
+     * Returns the number of hellos dropped because they were too short or because too many
+     * unverified addresses were answered in the current cookie period.
+     *
+     * @return the dropped hello count
+     */
+    public long getDroppedHellos() {
+        return droppedHellos;
+    }
+
+    /**
+     * Replication state of a single client, only touched by the selector thread.
+     */
+    private static final class ClientState {
+
+        private final SocketAddress address;
+        private long ackedTick = NO_TICK;
+        private long baseTick = NO_TICK;
+        private int sequence;
+        private long lastHeardNanos = System.nanoTime();
+
+        // The newest tick sent and a bit per tick sent in the 64 ticks up to it, bit 0 being the newest
+        private long lastSentTick = NO_TICK;
+        private long sentTicks;
+
+        private ClientState(SocketAddress address) {
+            this.address = address;
+        }
+
+        private void markSent(long tick) {
+            long shift = tick - lastSentTick;
+            if (lastSentTick == NO_TICK || shift >= Long.SIZE) {
+                sentTicks = 1;
+            } else if (shift > 0) {
+                sentTicks = sentTicks << shift | 1;
+            }
+            lastSentTick = Math.max(lastSentTick, tick);
+        }
+
+        private boolean wasSent(long tick) {
+            long age = lastSentTick - tick;
+            return lastSentTick != NO_TICK && age >= 0 && age < Long.SIZE && (sentTicks >>> age & 1) != 0;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package dark.cat.particles;
+
+import dark.cat.utils.PajamaLogger;
+
+/**
+ * The inner loops of a {@link ParticleSystem}, working on its structure-of-arrays storage.
+ *
+ * <p>Two implementations exist: {@link ScalarParticleKernels}, which runs everywhere, and a
+ * SIMD implementation built on the incubating Vector API. {@link #best()} picks the SIMD one
+ * when the {@code jdk.incubator.vector} module is present at runtime (the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}) and falls back to the scalar one otherwise.
+ *
+ * <p>Every kernel works on the index range {@code [from, to)} only, so ranges can be processed
+ * on different threads at the same time.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public interface ParticleKernels {
+
+    /**
+     * Applies gravity to the velocities, moves the positions by the velocities and ages the
+     * particles by {@code dt}.
+     *
+     * @param x the x positions
+     * @param y the y positions
+     * @param vx the x velocities
+     * @param vy the y velocities
+     * @param life the remaining life times in seconds
+     * @param from the first index, inclusive
+     * @param to the last index, exclusive
+     * @param dt the time step in seconds
+     * @param gravityX the x acceleration
+     * @param gravityY the y acceleration
+     */
+    void integrate(float[] x, float[] y, float[] vx, float[] vy, float[] life,
+                   int from, int to, float dt, float gravityX, float gravityY);
+
+    /**
+     * Removes the particles whose life ran out or which left the bounds, moving the survivors
+     * of the range to the front of it while keeping their order.
+     *
+     * @param x the x positions
+     * @param y the y positions
+     * @param vx the x velocities
+     * @param vy the y velocities
+     * @param life the remaining life times in seconds
+     * @param from the first index, inclusive
+     * @param to the last index, exclusive
+     * @param minX the smallest x a particle may have
+     * @param minY the smallest y a particle may have
+     * @param maxX the largest x a particle may have
+     * @param maxY the largest y a particle may have
+     * @return the number of survivors, now stored at {@code [from, from + survivors)}
+     */
+    int compact(float[] x, float[] y, float[] vx, float[] vy, float[] life,
+                int from, int to, float minX, float minY, float maxX, float maxY);
+
+    /**
+     * Returns a short name of the implementation, e.g. for logging.
+     *
+     * @return the name
+     */
+    String getName();
+
+    /**
+     * Returns the fastest kernels available in the running JVM.
+     *
+     * @return the SIMD kernels if the Vector API is available, the scalar kernels otherwise
+     */
+    static ParticleKernels best() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return new VectorParticleKernels();
+            } catch (LinkageError e) {
+                PajamaLogger.log("Vector API unavailable, falling back to scalar particle kernels: " + e.getMessage());
+            }
+        }
+        return ScalarParticleKernels.INSTANCE;
+    }
+}
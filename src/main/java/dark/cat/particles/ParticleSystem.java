@@ -0,0 +1,404 @@
+package dark.cat.particles;
+
+import dark.cat.managers.RenderManager;
+import dark.cat.utils.PajamaLogger;
+import dark.cat.utils.ThreadManagerPool;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * A fixed-capacity particle system storing its particles as a structure of arrays: one
+ * {@code float[]} each for the x and y positions, the x and y velocities and the remaining life.
+ *
+ * <p>Every {@link #update(float)} runs two passes of {@link ParticleKernels} over the live
+ * particles: one that integrates them and one that removes the dead and out-of-bounds ones by
+ * compacting the survivors to the front of the arrays. Both passes stream through contiguous
+ * arrays, which lets the SIMD kernels process a whole vector of particles per instruction.
+ * Systems with at least {@link #PARALLEL_THRESHOLD} particles are split into ranges which are
+ * updated in parallel on the {@link ThreadManagerPool}.
+ *
+ * <p>{@link #render(Graphics2D, int, int)} writes the particles straight into the pixel array of
+ * an offscreen layer and draws that layer with a single {@code drawImage} call, instead of one
+ * {@code fillRect} per particle.
+ * <p>Usage Example:</p>
+ * <pre>
+ * {@code
+ * ParticleSystem sparks = new ParticleSystem(200_000)
+ *         .setGravity(0f, 400f)
+ *         .setBounds(0f, 0f, 800f, 600f)
+ *         .setColor(0xFFFFC040)
+ *         .setThreadManagerPool(threadManagerPool);
+ *
+ * sparks.emit(400f, 300f, vx, vy, 2f);
+ * sparks.update(deltaSeconds);
+ *
+ * Graphics2D graphics = renderManager.beginFrame();
+ * sparks.render(graphics, renderManager.getWidth(), renderManager.getHeight());
+ * renderManager.endFrame();
+ * }
+ * </pre>
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class ParticleSystem {
+
+    /**
+     * The smallest number of live particles for which {@link #update(float)} splits the work
+     * over the {@link ThreadManagerPool}; below it the hand-off costs more than it saves.
+     */
+    public static final int PARALLEL_THRESHOLD = 65_536;
+
+    private static final int RANGE_ALIGNMENT = 64;
+
+    private final float[] x;
+    private final float[] y;
+    private final float[] vx;
+    private final float[] vy;
+    private final float[] life;
+    private int count;
+
+    private ParticleKernels kernels = ParticleKernels.best();
+    private ThreadManagerPool threadManagerPool;
+
+    private float gravityX;
+    private float gravityY;
+    private float minX = Float.NEGATIVE_INFINITY;
+    private float minY = Float.NEGATIVE_INFINITY;
+    private float maxX = Float.POSITIVE_INFINITY;
+    private float maxY = Float.POSITIVE_INFINITY;
+
+    private int color = 0xFFFFFFFF;
+    private int particleSize = 1;
+
+    private int[] rangeStarts = new int[0];
+    private int[] rangeSurvivors = new int[0];
+
+    private BufferedImage layer;
+    private int[] layerPixels;
+
+    private long droppedCount;
+    private long lastUpdateNanos;
+    private long lastRenderNanos;
+    private int lastUpdateRanges;
+
+    /**
+     * Creates a particle system holding at most {@code capacity} particles.
+     *
+     * @param capacity the maximum number of live particles
+     * @throws IllegalArgumentException if {@code capacity} is not positive
+     */
+    public ParticleSystem(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Particle capacity must be positive: " + capacity);
+        }
+        this.x = new float[capacity];
+        this.y = new float[capacity];
+        this.vx = new float[capacity];
+        this.vy = new float[capacity];
+        this.life = new float[capacity];
+        PajamaLogger.log("ParticleSystem created with capacity " + capacity + " using " + kernels.getName() + " kernels.");
+    }
+
+    /**
+     * Spawns a particle.
+     *
+     * @param x the x position
+     * @param y the y position
+     * @param vx the x velocity, per second
+     * @param vy the y velocity, per second
+     * @param lifeSeconds how long the particle lives
+     * @return {@code true} if the particle was spawned, {@code false} if the system is full
+     */
+    public boolean emit(float x, float y, float vx, float vy, float lifeSeconds) {
+        if (count == this.x.length) {
+            droppedCount++;
+            return false;
+        }
+        this.x[count] = x;
+        this.y[count] = y;
+        this.vx[count] = vx;
+        this.vy[count] = vy;
+        this.life[count] = lifeSeconds;
+        count++;
+        return true;
+    }
+
+    /**
+     * Advances all particles by {@code dt} seconds and removes the ones that died or left the
+     * bounds.
+     *
+     * @param dt the time step in seconds
+     */
+    public void update(float dt) {
+        long start = System.nanoTime();
+        int ranges = rangeCount();
+
+        if (ranges <= 1) {
+            kernels.integrate(x, y, vx, vy, life, 0, count, dt, gravityX, gravityY);
+            count = kernels.compact(x, y, vx, vy, life, 0, count, minX, minY, maxX, maxY);
+        } else {
+            updateParallel(ranges, dt);
+        }
+
+        lastUpdateRanges = Math.max(1, ranges);
+        lastUpdateNanos = System.nanoTime() - start;
+    }
+
+    private int rangeCount() {
+        if (threadManagerPool == null || count < PARALLEL_THRESHOLD) {
+            return 1;
+        }
+        return Math.min(threadManagerPool.getParallelism(), count / (PARALLEL_THRESHOLD / 4));
+    }
+
+    private void updateParallel(int ranges, float dt) {
+        if (rangeStarts.length < ranges + 1) {
+            rangeStarts = new int[ranges + 1];
+            rangeSurvivors = new int[ranges];
+        }
+
+        int perRange = (count / ranges + RANGE_ALIGNMENT - 1) / RANGE_ALIGNMENT * RANGE_ALIGNMENT;
+        for (int range = 0; range < ranges; range++) {
+            rangeStarts[range] = Math.min(count, range * perRange);
+        }
+        rangeStarts[ranges] = count;
+
+        int[] starts = rangeStarts;
+        int[] survivors = rangeSurvivors;
+        threadManagerPool.parallelFor(ranges, range -> {
+            int from = starts[range];
+            int to = starts[range + 1];
+            kernels.integrate(x, y, vx, vy, life, from, to, dt, gravityX, gravityY);
+            survivors[range] = kernels.compact(x, y, vx, vy, life, from, to, minX, minY, maxX, maxY);
+        });
+
+        // Every range compacted in place; close the gaps between them.
+        int out = survivors[0];
+        for (int range = 1; range < ranges; range++) {
+            int from = starts[range];
+            int length = survivors[range];
+            if (length > 0 && from != out) {
+                System.arraycopy(x, from, x, out, length);
+                System.arraycopy(y, from, y, out, length);
+                System.arraycopy(vx, from, vx, out, length);
+                System.arraycopy(vy, from, vy, out, length);
+                System.arraycopy(life, from, life, out, length);
+            }
+            out += length;
+        }
+        count = out;
+    }
+
+    /**
+     * Draws all particles as squares of {@link #setParticleSize(int) the particle size}.
+     *
+     * <p>The particles are written into the pixel array of an offscreen layer of the given size,
+     * which is then drawn with a single {@code drawImage} call. Pass the graphics returned by
+     * {@link RenderManager#beginFrame()} to render into the current frame.
+     *
+     * @param graphics the graphics to draw the layer with
+     * @param width the width of the area to draw, in pixels
+     * @param height the height of the area to draw, in pixels
+     */
+    public void render(Graphics2D graphics, int width, int height) {
+        long start = System.nanoTime();
+        if (layer == null || layer.getWidth() != width || layer.getHeight() != height) {
+            layer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+            layerPixels = ((DataBufferInt) layer.getRaster().getDataBuffer()).getData();
+        } else {
+            Arrays.fill(layerPixels, 0);
+        }
+
+        int[] pixels = layerPixels;
+        int argb = premultiply(color);
+        int size = particleSize;
+        int maxPx = width - size;
+        int maxPy = height - size;
+
+        for (int i = 0; i < count; i++) {
+            int px = (int) x[i];
+            int py = (int) y[i];
+            if (px < 0 || py < 0 || px > maxPx || py > maxPy) {
+                continue;
+            }
+            int row = py * width + px;
+            if (size == 1) {
+                pixels[row] = argb;
+            } else {
+                for (int dy = 0; dy < size; dy++, row += width) {
+                    Arrays.fill(pixels, row, row + size, argb);
+                }
+            }
+        }
+
+        graphics.drawImage(layer, 0, 0, null);
+        lastRenderNanos = System.nanoTime() - start;
+    }
+
+    private static int premultiply(int argb) {
+        int alpha = argb >>> 24;
+        if (alpha == 0xFF) {
+            return argb;
+        }
+        int red = ((argb >> 16) & 0xFF) * alpha / 0xFF;
+        int green = ((argb >> 8) & 0xFF) * alpha / 0xFF;
+        int blue = (argb & 0xFF) * alpha / 0xFF;
+        return (alpha << 24) | (red << 16) | (green << 8) | blue;
+    }
+
+    /**
+     * Removes all particles.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Sets the acceleration applied to every particle.
+     *
+     * @param gravityX the x acceleration, per second squared
+     * @param gravityY the y acceleration, per second squared
+     * @return the current instance of the ParticleSystem
+     */
+    public ParticleSystem setGravity(float gravityX, float gravityY) {
+        this.gravityX = gravityX;
+        this.gravityY = gravityY;
+        return this;
+    }
+
+    /**
+     * Sets the area particles may live in; particles leaving it are removed on the next update.
+     *
+     * @param minX the smallest x
+     * @param minY the smallest y
+     * @param maxX the largest x
+     * @param maxY the largest y
+     * @return the current instance of the ParticleSystem
+     */
+    public ParticleSystem setBounds(float minX, float minY, float maxX, float maxY) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        return this;
+    }
+
+    /**
+     * Sets the color particles are drawn with.
+     *
+     * @param argb the color as {@code 0xAARRGGBB}
+     * @return the current instance of the ParticleSystem
+     */
+    public ParticleSystem setColor(int argb) {
+        this.color = argb;
+        return this;
+    }
+
+    /**
+     * Sets the edge length of the square drawn for each particle.
+     *
+     * @param particleSize the size in pixels
+     * @return the current instance of the ParticleSystem
+     * @throws IllegalArgumentException if {@code particleSize} is not positive
+     */
+    public ParticleSystem setParticleSize(int particleSize) {
+        if (particleSize <= 0) {
+            throw new IllegalArgumentException("Particle size must be positive: " + particleSize);
+        }
+        this.particleSize = particleSize;
+        return this;
+    }
+
+    /**
+     * Sets the pool large systems are updated on. Without a pool every update runs on the
+     * calling thread.
+     *
+     * @param threadManagerPool the pool, or {@code null} to update on the calling thread
+     * @return the current instance of the ParticleSystem
+     */
+    public ParticleSystem setThreadManagerPool(ThreadManagerPool threadManagerPool) {
+        this.threadManagerPool = threadManagerPool;
+        return this;
+    }
+
+    /**
+     * Overrides the kernels chosen by {@link ParticleKernels#best()}, e.g. to compare against
+     * {@link ScalarParticleKernels#INSTANCE}.
+     *
+     * @param kernels the kernels to use
+     * @return the current instance of the ParticleSystem
+     */
+    public ParticleSystem setKernels(ParticleKernels kernels) {
+        this.kernels = kernels;
+        return this;
+    }
+
+    /**
+     * Returns the kernels the particles are updated with.
+     *
+     * @return the kernels
+     */
+    public ParticleKernels getKernels() {
+        return kernels;
+    }
+
+    /**
+     * Returns the number of live particles.
+     *
+     * @return the particle count
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the maximum number of live particles.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return x.length;
+    }
+
+    /**
+     * Returns the number of particles that were not spawned because the system was full.
+     *
+     * @return the dropped particle count
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Returns how long the last {@link #update(float)} took.
+     *
+     * @return the duration in nanoseconds
+     */
+    public long getLastUpdateNanos() {
+        return lastUpdateNanos;
+    }
+
+    /**
+     * Returns how many ranges the last {@link #update(float)} was split into; {@code 1} means it
+     * ran on the calling thread only.
+     *
+     * @return the number of ranges
+     */
+    public int getLastUpdateRanges() {
+        return lastUpdateRanges;
+    }
+
+    /**
+     * Returns how long the last {@link #render(Graphics2D, int, int)} took.
+     *
+     * @return the duration in nanoseconds
+     */
+    public long getLastRenderNanos() {
+        return lastRenderNanos;
+    }
+}
@@ -0,0 +1,62 @@
+package dark.cat.particles;
+
+/**
+ * Plain Java {@link ParticleKernels}. Used when the Vector API is not available, and for the
+ * tails of the ranges that do not fill a whole vector in {@link VectorParticleKernels}.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public final class ScalarParticleKernels implements ParticleKernels {
+
+    /**
+     * The shared instance; the kernels are stateless.
+     */
+    public static final ScalarParticleKernels INSTANCE = new ScalarParticleKernels();
+
+    private ScalarParticleKernels() {
+    }
+
+    @Override
+    public void integrate(float[] x, float[] y, float[] vx, float[] vy, float[] life,
+                          int from, int to, float dt, float gravityX, float gravityY) {
+        float gravityXdt = gravityX * dt;
+        float gravityYdt = gravityY * dt;
+        for (int i = from; i < to; i++) {
+            float nextVx = vx[i] + gravityXdt;
+            float nextVy = vy[i] + gravityYdt;
+            vx[i] = nextVx;
+            vy[i] = nextVy;
+            x[i] += nextVx * dt;
+            y[i] += nextVy * dt;
+            life[i] -= dt;
+        }
+    }
+
+    @Override
+    public int compact(float[] x, float[] y, float[] vx, float[] vy, float[] life,
+                       int from, int to, float minX, float minY, float maxX, float maxY) {
+        int out = from;
+        for (int i = from; i < to; i++) {
+            float px = x[i];
+            float py = y[i];
+            if (life[i] > 0f && px >= minX && px <= maxX && py >= minY && py <= maxY) {
+                if (out != i) {
+                    x[out] = px;
+                    y[out] = py;
+                    vx[out] = vx[i];
+                    vy[out] = vy[i];
+                    life[out] = life[i];
+                }
+                out++;
+            }
+        }
+        return out - from;
+    }
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,199 @@
+package dark.cat.pathfinding;
+
+import java.util.Arrays;
+
+import static dark.cat.pathfinding.PathSearch.DIAGONAL_COST;
+import static dark.cat.pathfinding.PathSearch.DX;
+import static dark.cat.pathfinding.PathSearch.DY;
+import static dark.cat.pathfinding.PathSearch.OPPOSITE;
+import static dark.cat.pathfinding.PathSearch.STRAIGHT_COST;
+
+/**
+ * The cheapest way to one goal from every cell of a {@link NavigationGrid}.
+ *
+ * <p>A flow field is built with a single Dijkstra search outwards from the goal and then shared
+ * by all agents heading there: each agent reads the direction of its current cell instead of
+ * searching a path of its own. Distances use the same costs as {@link Path#getCost()}, so
+ * following a flow field is as cheap as following an A* path. Fields are handed out by
+ * {@link PathfindingManager#getFlowField(int, int)}, which rebuilds them after grid edits.
+ *
+ * <p>Usage:
+ * <pre>
+ *     {@code
+ * FlowField field = pathfindingManager.getFlowField(baseX, baseY);
+ * for (Agent agent : attackers) {
+ *     agent.move(field.getDirectionX(agent.x, agent.y), field.getDirectionY(agent.x, agent.y));
+ * }
+ *     }
+ * </pre>
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class FlowField {
+
+    /**
+     * The distance of a cell the goal cannot be reached from.
+     */
+    public static final long UNREACHABLE = Long.MAX_VALUE;
+
+    // Direction of cells without a next step: the goal and unreachable cells
+    private static final byte NO_DIRECTION = -1;
+
+    private final NavigationGrid grid;
+    private final int goalX;
+    private final int goalY;
+    private final long[] distances;
+    private final byte[] directions;
+    private final boolean[] settled;
+    private final NodeHeap open;
+    private long builtStamp = -1;
+
+    FlowField(NavigationGrid grid, int goalX, int goalY) {
+        this.grid = grid;
+        this.goalX = goalX;
+        this.goalY = goalY;
+        int cells = grid.getWidth() * grid.getHeight();
+        this.distances = new long[cells];
+        this.directions = new byte[cells];
+        this.settled = new boolean[cells];
+        this.open = new NodeHeap(Math.min(cells, 4096));
+    }
+
+    // Reverse Dijkstra: relaxing n through m costs the step into m, as the agent pays it
+    void build() {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        Arrays.fill(distances, UNREACHABLE);
+        Arrays.fill(directions, NO_DIRECTION);
+        Arrays.fill(settled, false);
+        builtStamp = grid.getEditStamp();
+        open.clear();
+
+        if (!grid.isWalkable(goalX, goalY)) {
+            return;
+        }
+        int goal = goalY * width + goalX;
+        distances[goal] = 0;
+        open.push(goal, 0);
+
+        while (!open.isEmpty()) {
+            int current = open.pop();
+            if (settled[current]) {
+                continue;
+            }
+            settled[current] = true;
+            int x = current % width;
+            int y = current / width;
+            int enterCost = grid.rawCost(current);
+            long currentDistance = distances[current];
+
+            for (int direction = 0; direction < 8; direction++) {
+                int nx = x + DX[direction];
+                int ny = y + DY[direction];
+                if (nx < 0 || ny < 0 || nx >= width || ny >= height) {
+                    continue;
+                }
+                int neighbour = ny * width + nx;
+                if (grid.rawCost(neighbour) == NavigationGrid.BLOCKED) {
+                    continue;
+                }
+                int step;
+                if (direction < 4) {
+                    step = STRAIGHT_COST;
+                } else if (grid.rawCost(y * width + nx) == NavigationGrid.BLOCKED
+                        || grid.rawCost(ny * width + x) == NavigationGrid.BLOCKED) {
+                    continue;
+                } else {
+                    step = DIAGONAL_COST;
+                }
+
+                long distance = currentDistance + step * enterCost;
+                if (distance < distances[neighbour]) {
+                    distances[neighbour] = distance;
+                    directions[neighbour] = (byte) OPPOSITE[direction];
+                    open.push(neighbour, distance);
+                }
+            }
+        }
+    }
+
+    boolean isStale() {
+        return builtStamp != grid.getEditStamp();
+    }
+
+    /**
+     * Returns the cost of the cheapest path from a cell to the goal.
+     *
+     * @param x the column
+     * @param y the row
+     * @return the distance, or {@link #UNREACHABLE} for blocked, cut-off or outside cells
+     */
+    public long getDistance(int x, int y) {
+        if (x < 0 || y < 0 || x >= grid.getWidth() || y >= grid.getHeight()) {
+            return UNREACHABLE;
+        }
+        return distances[y * grid.getWidth() + x];
+    }
+
+    /**
+     * Returns whether the goal can be reached from a cell.
+     *
+     * @param x the column
+     * @param y the row
+     * @return {@code true} if reachable
+     */
+    public boolean isReachable(int x, int y) {
+        return getDistance(x, y) != UNREACHABLE;
+    }
+
+    /**
+     * Returns the column step of the next move from a cell.
+     *
+     * @param x the column
+     * @param y the row
+     * @return {@code -1}, {@code 0} or {@code 1}; {@code 0} on the goal and where it is unreachable
+     */
+    public int getDirectionX(int x, int y) {
+        int direction = direction(x, y);
+        return direction == NO_DIRECTION ? 0 : DX[direction];
+    }
+
+    /**
+     * Returns the row step of the next move from a cell.
+     *
+     * @param x the column
+     * @param y the row
+     * @return {@code -1}, {@code 0} or {@code 1}; {@code 0} on the goal and where it is unreachable
+     */
+    public int getDirectionY(int x, int y) {
+        int direction = direction(x, y);
+        return direction == NO_DIRECTION ? 0 : DY[direction];
+    }
+
+    private int direction(int x, int y) {
+        if (x < 0 || y < 0 || x >= grid.getWidth() || y >= grid.getHeight()) {
+            return NO_DIRECTION;
+        }
+        return directions[y * grid.getWidth() + x];
+    }
+
+    /**
+     * Returns the column of the goal.
+     *
+     * @return the goal column
+     */
+    public int getGoalX() {
+        return goalX;
+    }
+
+    /**
+     * Returns the row of the goal.
+     *
+     * @return the goal row
+     */
+    public int getGoalY() {
+        return goalY;
+    }
+}
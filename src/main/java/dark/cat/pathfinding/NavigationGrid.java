@@ -0,0 +1,262 @@
+package dark.cat.pathfinding;
+
+import dark.cat.rendering.TileMap;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A {@code NavigationGrid} is a grid of movement costs searched by the {@link PathfindingManager}.
+ *
+ * <p>Each cell costs {@code 1} to {@code 255} to enter, or is {@link #BLOCKED}. Agents move to
+ * the eight neighbouring cells, diagonally only when both adjacent straight cells are walkable.
+ * The grid is split into square regions whose edit stamps tell cached paths and flow fields
+ * which edits concern them. Edit the grid between queries, not while a batch is running.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class NavigationGrid {
+
+    /**
+     * The cost of a cell that cannot be entered.
+     */
+    public static final int BLOCKED = 0;
+
+    // Default region edge in cells; an edit invalidates the cached paths that looked at its region
+    public static final int DEFAULT_REGION_SIZE = 16;
+
+    private final int width;
+    private final int height;
+    private final int regionSize;
+    private final int regionColumns;
+    private final int regionRows;
+
+    private final byte[] costs;
+    private final long[] regionEditStamps;
+
+    // Region lookups per column and row, searches map every cell they look at to its region
+    private final int[] columnRegions;
+    private final int[] rowRegions;
+    private long editStamp;
+
+    /**
+     * Creates a grid of walkable cells costing {@code 1} with the default region size.
+     *
+     * @param width  the width in cells
+     * @param height the height in cells
+     */
+    public NavigationGrid(int width, int height) {
+        this(width, height, DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * Creates a grid of walkable cells costing {@code 1}.
+     *
+     * @param width      the width in cells
+     * @param height     the height in cells
+     * @param regionSize the edge of a region in cells
+     * @throws IllegalArgumentException if a size is not positive or the grid has more cells than an array can hold
+     */
+    public NavigationGrid(int width, int height, int regionSize) {
+        if (width <= 0 || height <= 0 || regionSize <= 0) {
+            throw new IllegalArgumentException("Grid and region sizes must be positive.");
+        }
+        if ((long) width * height > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Grid of " + width + "x" + height + " cells is too large to index.");
+        }
+        this.width = width;
+        this.height = height;
+        this.regionSize = regionSize;
+        this.regionColumns = (width + regionSize - 1) / regionSize;
+        this.regionRows = (height + regionSize - 1) / regionSize;
+        this.costs = new byte[width * height];
+        this.regionEditStamps = new long[regionColumns * regionRows];
+        this.columnRegions = new int[width];
+        this.rowRegions = new int[height];
+        Arrays.fill(costs, (byte) 1);
+        for (int x = 0; x < width; x++) {
+            columnRegions[x] = x / regionSize;
+        }
+        for (int y = 0; y < height; y++) {
+            rowRegions[y] = (y / regionSize) * regionColumns;
+        }
+    }
+
+    /**
+     * Creates a grid matching a tile map, with the cost of each cell derived from its tile.
+     *
+     * @param tileMap  the tile map
+     * @param tileCost maps a tile id, possibly {@link TileMap#EMPTY}, to a cost from {@code 0} to {@code 255}
+     * @return the new grid
+     */
+    public static NavigationGrid fromTileMap(TileMap tileMap, IntUnaryOperator tileCost) {
+        NavigationGrid grid = new NavigationGrid(tileMap.getWidth(), tileMap.getHeight());
+        for (int y = 0; y < tileMap.getHeight(); y++) {
+            for (int x = 0; x < tileMap.getWidth(); x++) {
+                grid.setCost(x, y, tileCost.applyAsInt(tileMap.getTile(x, y)));
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Returns the cost of entering a cell.
+     *
+     * @param x the column
+     * @param y the row
+     * @return the cost, or {@link #BLOCKED} outside the grid
+     */
+    public int getCost(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return BLOCKED;
+        }
+        return costs[y * width + x] & 0xFF;
+    }
+
+    /**
+     * Returns whether a cell can be entered.
+     *
+     * @param x the column
+     * @param y the row
+     * @return {@code true} if the cell is inside the grid and not blocked
+     */
+    public boolean isWalkable(int x, int y) {
+        return getCost(x, y) != BLOCKED;
+    }
+
+    /**
+     * Sets the cost of entering a cell.
+     *
+     * @param x    the column
+     * @param y    the row
+     * @param cost the cost from {@code 1} to {@code 255}, or {@link #BLOCKED}
+     * @throws IndexOutOfBoundsException if the cell is outside the grid
+     * @throws IllegalArgumentException  if the cost is out of range
+     */
+    public void setCost(int x, int y, int cost) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            throw new IndexOutOfBoundsException("Cell " + x + "," + y + " is outside the grid.");
+        }
+        if (cost < 0 || cost > 255) {
+            throw new IllegalArgumentException("Cell cost must be between 0 and 255: " + cost);
+        }
+        int index = y * width + x;
+        if ((costs[index] & 0xFF) != cost) {
+            costs[index] = (byte) cost;
+            regionEditStamps[region(x, y)] = ++editStamp;
+        }
+    }
+
+    /**
+     * Blocks or unblocks a cell. Unblocked cells cost {@code 1}.
+     *
+     * @param x       the column
+     * @param y       the row
+     * @param blocked {@code true} to block the cell
+     */
+    public void setBlocked(int x, int y, boolean blocked) {
+        setCost(x, y, blocked ? BLOCKED : 1);
+    }
+
+    /**
+     * Sets the cost of a rectangle of cells.
+     *
+     * @param x    the first column
+     * @param y    the first row
+     * @param w    the width in cells
+     * @param h    the height in cells
+     * @param cost the cost from {@code 1} to {@code 255}, or {@link #BLOCKED}
+     */
+    public void fill(int x, int y, int w, int h, int cost) {
+        for (int row = Math.max(0, y); row < Math.min(height, y + h); row++) {
+            for (int column = Math.max(0, x); column < Math.min(width, x + w); column++) {
+                setCost(column, row, cost);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of a cell, as used by paths and batch queries.
+     *
+     * @param x the column
+     * @param y the row
+     * @return the cell index {@code y * width + x}
+     */
+    public int cell(int x, int y) {
+        return y * width + x;
+    }
+
+    /**
+     * Returns the number of edits made to the grid. Grows with every cell whose cost changed.
+     *
+     * @return the current edit stamp
+     */
+    public long getEditStamp() {
+        return editStamp;
+    }
+
+    /**
+     * Returns the edit stamp of the last edit inside a region, or {@code 0} if it was never edited.
+     *
+     * @param region the region index, {@code regionY * regionColumns + regionX}
+     * @return the edit stamp of the region
+     */
+    public long getRegionEditStamp(int region) {
+        return regionEditStamps[region];
+    }
+
+    int region(int x, int y) {
+        return rowRegions[y] + columnRegions[x];
+    }
+
+    int rawCost(int cell) {
+        return costs[cell] & 0xFF;
+    }
+
+    /**
+     * Returns the width of the grid.
+     *
+     * @return the width in cells
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the grid.
+     *
+     * @return the height in cells
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the edge of a region.
+     *
+     * @return the region size in cells
+     */
+    public int getRegionSize() {
+        return regionSize;
+    }
+
+    /**
+     * Returns the number of region columns.
+     *
+     * @return the region column count
+     */
+    public int getRegionColumns() {
+        return regionColumns;
+    }
+
+    /**
+     * Returns the number of region rows.
+     *
+     * @return the region row count
+     */
+    public int getRegionRows() {
+        return regionRows;
+    }
+}
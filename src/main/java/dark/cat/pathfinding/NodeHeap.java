@@ -0,0 +1,73 @@
+package dark.cat.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of cell indices on primitive arrays. Cells are pushed again instead of
+ * having their keys decreased; searches skip the stale entries when they pop them.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+final class NodeHeap {
+
+    private int[] nodes;
+    private long[] keys;
+    private int size;
+
+    NodeHeap(int initialCapacity) {
+        nodes = new int[initialCapacity];
+        keys = new long[initialCapacity];
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void push(int node, long key) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        int index = size++;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            nodes[index] = nodes[parent];
+            keys[index] = keys[parent];
+            index = parent;
+        }
+        nodes[index] = node;
+        keys[index] = key;
+    }
+
+    int pop() {
+        int top = nodes[0];
+        int lastNode = nodes[--size];
+        long lastKey = keys[size];
+        int index = 0;
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child]) {
+                child++;
+            }
+            if (lastKey <= keys[child]) {
+                break;
+            }
+            nodes[index] = nodes[child];
+            keys[index] = keys[child];
+            index = child;
+        }
+        nodes[index] = lastNode;
+        keys[index] = lastKey;
+        return top;
+    }
+}
@@ -0,0 +1,102 @@
+package dark.cat.pathfinding;
+
+/**
+ * The result of a path query: the cells from the start to the goal, both included.
+ *
+ * <p>A path is meant to be kept by its agent and handed to every query, which overwrites it.
+ * Its storage only grows when a longer path comes along, so repeated queries do not allocate.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class Path {
+
+    private int[] cells = new int[64];
+    private int length;
+    private long cost = -1;
+    private int width = 1;
+
+    /**
+     * Returns whether the goal was reached.
+     *
+     * @return {@code true} if the path has cells
+     */
+    public boolean isFound() {
+        return length > 0;
+    }
+
+    /**
+     * Returns the number of cells, start and goal included.
+     *
+     * @return the length, {@code 0} if no path was found
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the total cost of the path: {@code 10} per straight and {@code 14} per diagonal
+     * step, multiplied by the cost of the entered cell. A {@code long}, as a long path over
+     * expensive cells can cost more than an {@code int} holds.
+     *
+     * @return the cost, or {@code -1} if no path was found
+     */
+    public long getCost() {
+        return cost;
+    }
+
+    /**
+     * Returns the index of a cell of the path.
+     *
+     * @param index the position along the path, {@code 0} being the start
+     * @return the cell index
+     */
+    public int getCell(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Path index " + index + " out of bounds for length " + length);
+        }
+        return cells[index];
+    }
+
+    /**
+     * Returns the column of a cell of the path.
+     *
+     * @param index the position along the path
+     * @return the column
+     */
+    public int getX(int index) {
+        return getCell(index) % width;
+    }
+
+    /**
+     * Returns the row of a cell of the path.
+     *
+     * @param index the position along the path
+     * @return the row
+     */
+    public int getY(int index) {
+        return getCell(index) / width;
+    }
+
+    void clear(int width) {
+        this.width = width;
+        this.length = 0;
+        this.cost = -1;
+    }
+
+    // Grows the storage without keeping its content, callers fill all of it
+    int[] reset(int length, long cost, int width) {
+        if (cells.length < length) {
+            cells = new int[Math.max(length, cells.length * 2)];
+        }
+        this.length = length;
+        this.cost = cost;
+        this.width = width;
+        return cells;
+    }
+
+    int[] cells() {
+        return cells;
+    }
+}
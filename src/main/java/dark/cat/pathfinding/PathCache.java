@@ -0,0 +1,278 @@
+package dark.cat.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * A least-recently-used cache of paths keyed by start and goal cell, built on primitive arrays:
+ * an open-addressing table of slot indices and a doubly linked recency list threaded through
+ * int arrays. Slots keep their arrays when they are reused, so a warm cache stops allocating.
+ *
+ * <p>Every entry remembers the edit stamp of the grid when it was searched and the regions its
+ * search looked at. An entry is dropped when one of those regions was edited after it was
+ * cached, the next time it is looked up. All methods are synchronized, so batch workers share
+ * the cache.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+final class PathCache {
+
+    private static final int NONE = -1;
+
+    private final int capacity;
+    private final long[] keys;
+    private final long[] stamps;
+    private final long[] costs;
+    private final int[] lengths;
+    private final int[][] cells;
+    private final int[][] regions;
+    private final int[] regionCounts;
+
+    // Recency list, head is the most recently used slot
+    private final int[] previous;
+    private final int[] next;
+    private int head = NONE;
+    private int tail = NONE;
+
+    private final int[] freeSlots;
+    private int freeCount;
+    private int size;
+
+    private final int[] table;
+    private final int mask;
+
+    private long hits;
+    private long misses;
+    private long invalidations;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param capacity the maximum number of paths kept
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    PathCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Path cache capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.keys = new long[capacity];
+        this.stamps = new long[capacity];
+        this.costs = new long[capacity];
+        this.lengths = new int[capacity];
+        this.cells = new int[capacity][];
+        this.regions = new int[capacity][];
+        this.regionCounts = new int[capacity];
+        this.previous = new int[capacity];
+        this.next = new int[capacity];
+        this.freeSlots = new int[capacity];
+        this.table = new int[Integer.highestOneBit(Math.max(2, capacity * 2 - 1)) << 1];
+        this.mask = table.length - 1;
+        Arrays.fill(table, NONE);
+    }
+
+    /**
+     * Returns the key of a query.
+     *
+     * @param start the start cell
+     * @param goal the goal cell
+     * @return the cache key
+     */
+    static long key(int start, int goal) {
+        return ((long) start << 32) | (goal & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Copies a cached path into the given path if it is still valid for the grid.
+     *
+     * @param key the key of the query
+     * @param grid the grid the path was searched on
+     * @param path the path to overwrite on a hit
+     * @return {@code true} on a hit
+     */
+    synchronized boolean get(long key, NavigationGrid grid, Path path) {
+        int index = find(key);
+        if (index == NONE) {
+            misses++;
+            return false;
+        }
+        int slot = table[index];
+        int[] slotRegions = regions[slot];
+        for (int i = 0, count = regionCounts[slot]; i < count; i++) {
+            if (grid.getRegionEditStamp(slotRegions[i]) > stamps[slot]) {
+                remove(index);
+                invalidations++;
+                misses++;
+                return false;
+            }
+        }
+
+        moveToHead(slot);
+        hits++;
+        int length = lengths[slot];
+        if (length == 0) {
+            path.clear(grid.getWidth());
+        } else {
+            System.arraycopy(cells[slot], 0, path.reset(length, costs[slot], grid.getWidth()), 0, length);
+        }
+        return true;
+    }
+
+    /**
+     * Caches the result of a search, evicting the least recently used path when full.
+     *
+     * @param key the key of the query
+     * @param path the result, found or not
+     * @param stamp the edit stamp of the grid when the search ran
+     * @param searchedRegions the regions the search looked at
+     * @param regionCount the number of searched regions
+     */
+    synchronized void put(long key, Path path, long stamp, int[] searchedRegions, int regionCount) {
+        int index = find(key);
+        int slot;
+        if (index != NONE) {
+            slot = table[index];
+            moveToHead(slot);
+        } else {
+            if (size == capacity) {
+                remove(find(keys[tail]));
+            }
+            slot = freeCount > 0 ? freeSlots[--freeCount] : size;
+            size++;
+            keys[slot] = key;
+            index = mix(key) & mask;
+            while (table[index] != NONE) {
+                index = (index + 1) & mask;
+            }
+            table[index] = slot;
+            linkAtHead(slot);
+        }
+
+        int length = path.getLength();
+        if (cells[slot] == null || cells[slot].length < length) {
+            cells[slot] = new int[Math.max(length, 16)];
+        }
+        System.arraycopy(path.cells(), 0, cells[slot], 0, length);
+        if (regions[slot] == null || regions[slot].length < regionCount) {
+            regions[slot] = new int[Math.max(regionCount, 8)];
+        }
+        System.arraycopy(searchedRegions, 0, regions[slot], 0, regionCount);
+        lengths[slot] = length;
+        costs[slot] = path.getCost();
+        stamps[slot] = stamp;
+        regionCounts[slot] = regionCount;
+    }
+
+    /**
+     * Removes every path.
+     */
+    synchronized void clear() {
+        Arrays.fill(table, NONE);
+        head = NONE;
+        tail = NONE;
+        size = 0;
+        freeCount = 0;
+    }
+
+    private int find(long key) {
+        for (int index = mix(key) & mask; table[index] != NONE; index = (index + 1) & mask) {
+            if (keys[table[index]] == key) {
+                return index;
+            }
+        }
+        return NONE;
+    }
+
+    // Linear probing removal: shifts later entries of the same cluster back into the gap
+    private void remove(int index) {
+        int slot = table[index];
+        unlink(slot);
+        freeSlots[freeCount++] = slot;
+        size--;
+
+        int gap = index;
+        for (int probe = (gap + 1) & mask; table[probe] != NONE; probe = (probe + 1) & mask) {
+            int home = mix(keys[table[probe]]) & mask;
+            boolean movable = gap <= probe ? home <= gap || home > probe : home <= gap && home > probe;
+            if (movable) {
+                table[gap] = table[probe];
+                gap = probe;
+            }
+        }
+        table[gap] = NONE;
+    }
+
+    private void moveToHead(int slot) {
+        if (head != slot) {
+            unlink(slot);
+            linkAtHead(slot);
+        }
+    }
+
+    private void linkAtHead(int slot) {
+        previous[slot] = NONE;
+        next[slot] = head;
+        if (head != NONE) {
+            previous[head] = slot;
+        }
+        head = slot;
+        if (tail == NONE) {
+            tail = slot;
+        }
+    }
+
+    private void unlink(int slot) {
+        if (previous[slot] != NONE) {
+            next[previous[slot]] = next[slot];
+        } else {
+            head = next[slot];
+        }
+        if (next[slot] != NONE) {
+            previous[next[slot]] = previous[slot];
+        } else {
+            tail = previous[slot];
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Returns the number of cached paths.
+     *
+     * @return the size
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of lookups that found a valid path.
+     *
+     * @return the hit count
+     */
+    synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that found no path or a stale one.
+     *
+     * @return the miss count
+     */
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of paths dropped because their regions were edited.
+     *
+     * @return the invalidation count
+     */
+    synchronized long getInvalidations() {
+        return invalidations;
+    }
+}
@@ -0,0 +1,199 @@
+package dark.cat.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * An A* search over a {@link NavigationGrid} whose open and closed sets live in primitive
+ * arrays sized to the grid. Membership is tracked with per-query stamps instead of clearing the
+ * arrays, so a query allocates nothing once the heap has grown to the size of the map.
+ *
+ * <p>Besides the path, a search records every region it looked at, including blocked cells next
+ * to expanded ones. An edit outside those regions cannot change the result, which is what makes
+ * cached paths safe to reuse. One search serves one thread.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+final class PathSearch {
+
+    static final int STRAIGHT_COST = 10;
+    static final int DIAGONAL_COST = 14;
+
+    // The four straight directions come first; direction d and OPPOSITE[d] point at each other
+    static final int[] DX = {1, -1, 0, 0, 1, 1, -1, -1};
+    static final int[] DY = {0, 0, 1, -1, 1, -1, 1, -1};
+    static final int[] OPPOSITE = {1, 0, 3, 2, 7, 6, 5, 4};
+
+    // Low bits of a heap key holding the tie-breaking heuristic. The cost of any path, at most
+    // 3570 per cell for under 2^31 cells, fits the 43 bits above them.
+    private static final int HEURISTIC_BITS = 20;
+    private static final long HEURISTIC_MASK = (1L << HEURISTIC_BITS) - 1;
+
+    private final NavigationGrid grid;
+    private final int width;
+    private final int height;
+
+    private final long[] g;
+    private final int[] parent;
+    private final int[] openStamps;
+    private final int[] closedStamps;
+    private final NodeHeap open;
+    private int stamp;
+
+    private final int[] regionStamps;
+    private int[] touchedRegions = new int[64];
+    private int touchedCount;
+
+    long nodesExpanded;
+    long queries;
+
+    PathSearch(NavigationGrid grid) {
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        int cells = width * height;
+        this.g = new long[cells];
+        this.parent = new int[cells];
+        this.openStamps = new int[cells];
+        this.closedStamps = new int[cells];
+        this.open = new NodeHeap(Math.min(cells, 4096));
+        this.regionStamps = new int[grid.getRegionColumns() * grid.getRegionRows()];
+    }
+
+    NavigationGrid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Searches the cheapest path and writes it to the given path.
+     *
+     * @param start the start cell
+     * @param goal the goal cell
+     * @param path the path to overwrite
+     * @return {@code true} if the goal was reached
+     */
+    boolean find(int start, int goal, Path path) {
+        queries++;
+        nextStamp();
+        touchedCount = 0;
+        open.clear();
+
+        int goalX = goal % width;
+        int goalY = goal / width;
+        touch(start % width, start / width);
+        touch(goalX, goalY);
+        if (grid.rawCost(start) == NavigationGrid.BLOCKED || grid.rawCost(goal) == NavigationGrid.BLOCKED) {
+            path.clear(width);
+            return false;
+        }
+
+        g[start] = 0;
+        parent[start] = -1;
+        openStamps[start] = stamp;
+        open.push(start, key(0, heuristic(start % width, start / width, goalX, goalY)));
+
+        while (!open.isEmpty()) {
+            int current = open.pop();
+            if (closedStamps[current] == stamp) {
+                continue;
+            }
+            closedStamps[current] = stamp;
+            nodesExpanded++;
+            if (current == goal) {
+                writePath(start, goal, path);
+                return true;
+            }
+
+            int x = current % width;
+            int y = current / width;
+            long currentG = g[current];
+            for (int direction = 0; direction < 8; direction++) {
+                int nx = x + DX[direction];
+                int ny = y + DY[direction];
+                if (nx < 0 || ny < 0 || nx >= width || ny >= height) {
+                    continue;
+                }
+                touch(nx, ny);
+                int neighbour = ny * width + nx;
+                int cost = grid.rawCost(neighbour);
+                if (cost == NavigationGrid.BLOCKED || closedStamps[neighbour] == stamp) {
+                    continue;
+                }
+                int step;
+                if (direction < 4) {
+                    step = STRAIGHT_COST;
+                } else if (grid.rawCost(y * width + nx) == NavigationGrid.BLOCKED
+                        || grid.rawCost(ny * width + x) == NavigationGrid.BLOCKED) {
+                    continue;
+                } else {
+                    step = DIAGONAL_COST;
+                }
+
+                long neighbourG = currentG + step * cost;
+                if (openStamps[neighbour] != stamp || neighbourG < g[neighbour]) {
+                    openStamps[neighbour] = stamp;
+                    g[neighbour] = neighbourG;
+                    parent[neighbour] = current;
+                    long h = heuristic(nx, ny, goalX, goalY);
+                    open.push(neighbour, key(neighbourG + h, h));
+                }
+            }
+        }
+
+        path.clear(width);
+        return false;
+    }
+
+    private void writePath(int start, int goal, Path path) {
+        int length = 1;
+        for (int cell = goal; cell != start; cell = parent[cell]) {
+            length++;
+        }
+        int[] cells = path.reset(length, g[goal], width);
+        int index = length - 1;
+        for (int cell = goal; index >= 0; cell = parent[cell]) {
+            cells[index--] = cell;
+        }
+    }
+
+    // Octile distance at the cheapest cell cost, never more than the real cost
+    private static long heuristic(int x, int y, int goalX, int goalY) {
+        long dx = Math.abs(x - goalX);
+        long dy = Math.abs(y - goalY);
+        return STRAIGHT_COST * Math.max(dx, dy) + (DIAGONAL_COST - STRAIGHT_COST) * Math.min(dx, dy);
+    }
+
+    // Ties on f go to the node closer to the goal, which keeps the search narrow on open ground
+    private static long key(long f, long h) {
+        return f << HEURISTIC_BITS | Math.min(h, HEURISTIC_MASK);
+    }
+
+    private void touch(int x, int y) {
+        int region = grid.region(x, y);
+        if (regionStamps[region] != stamp) {
+            regionStamps[region] = stamp;
+            if (touchedCount == touchedRegions.length) {
+                touchedRegions = Arrays.copyOf(touchedRegions, touchedCount * 2);
+            }
+            touchedRegions[touchedCount++] = region;
+        }
+    }
+
+    private void nextStamp() {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(openStamps, 0);
+            Arrays.fill(closedStamps, 0);
+            Arrays.fill(regionStamps, 0);
+            stamp = 1;
+        }
+    }
+
+    int[] touchedRegions() {
+        return touchedRegions;
+    }
+
+    int touchedCount() {
+        return touchedCount;
+    }
+}
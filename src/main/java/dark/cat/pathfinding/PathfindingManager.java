@@ -0,0 +1,427 @@
+package dark.cat.pathfinding;
+
+import dark.cat.annotations.InjectPajamaDependency;
+import dark.cat.utils.ThreadManagerPool;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds paths on a {@link NavigationGrid} for the agents of a game.
+ *
+ * <p>The manager offers three ways to move many agents cheaply:
+ * <ul>
+ *   <li>A* queries whose open and closed sets are primitive arrays reused from query to query,
+ *   so a query allocates nothing once warm. Results go into a {@link Path} owned by the agent.</li>
+ *   <li>Batches of queries, spread over the workers of the context's {@link ThreadManagerPool},
+ *   each with its own search arrays. A batch started on one of those workers, or without a
+ *   pool, runs on the calling thread.</li>
+ *   <li>{@link FlowField}s shared by all agents heading to the same goal.</li>
+ * </ul>
+ * Results are kept in a least-recently-used cache keyed by start and goal. A cached path is
+ * dropped as soon as a region its search looked at is edited, so edits far away from a path do
+ * not throw it away.
+ *
+ * <p>The manager is injected with {@code @InjectPajamaDependency}. Path queries may run on
+ * several threads at once, e.g. the game loop and tasks on the pool: each query borrows its own
+ * search arrays and the path cache is synchronized. Everything else, setting the grid or the
+ * options, {@link #getFlowField(int, int)} and editing the grid, belongs to the game loop and
+ * must not overlap with queries.
+ * <p>Usage Example:</p>
+ * <pre>
+ * {@code
+ * @InjectPajamaDependency
+ * private PathfindingManager pathfindingManager;
+ *
+ * pathfindingManager.setGrid(NavigationGrid.fromTileMap(tileMap, tile -> tile == WALL ? 0 : 1));
+ *
+ * for (int i = 0; i < agents.size(); i++) {
+ *     starts[i] = grid.cell(agents.get(i).x, agents.get(i).y);
+ *     goals[i] = grid.cell(agents.get(i).targetX, agents.get(i).targetY);
+ * }
+ * pathfindingManager.findPaths(agents.size(), starts, goals, paths);
+ * }
+ * </pre>
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class PathfindingManager {
+
+    // Default number of cached paths and shared flow fields
+    public static final int DEFAULT_CACHE_CAPACITY = 4096;
+    public static final int DEFAULT_FLOW_FIELD_CAPACITY = 16;
+
+    // Queries claimed by a worker at a time, small enough to balance long and short searches
+    private static final int BATCH_CHUNK = 16;
+
+    private NavigationGrid grid;
+
+    @InjectPajamaDependency
+    private ThreadManagerPool threadManagerPool;
+
+    private PathCache pathCache = new PathCache(DEFAULT_CACHE_CAPACITY);
+    private boolean cacheEnabled = true;
+
+    private final Map<Integer, FlowField> flowFields = new LinkedHashMap<>(16, 0.75f, true);
+    private int flowFieldCapacity = DEFAULT_FLOW_FIELD_CAPACITY;
+    private long flowFieldsBuilt;
+
+    // Every search created for the current grid, and the first idleCount of them in idleSearches
+    // that no query is using. Each query borrows its own, so queries from several threads at once
+    // never share search arrays.
+    private PathSearch[] searches = new PathSearch[0];
+    private PathSearch[] idleSearches = new PathSearch[0];
+    private int idleCount;
+
+    private long lastBatchNanos;
+    private int lastBatchQueries;
+
+    /**
+     * Sets the grid to search. Clears the path cache and the flow fields.
+     *
+     * @param grid the navigation grid
+     * @return the current instance of the PathfindingManager
+     */
+    public PathfindingManager setGrid(NavigationGrid grid) {
+        synchronized (this) {
+            this.grid = grid;
+            this.searches = new PathSearch[0];
+            this.idleSearches = new PathSearch[0];
+            this.idleCount = 0;
+        }
+        pathCache.clear();
+        flowFields.clear();
+        return this;
+    }
+
+    /**
+     * Sets the pool batch queries are spread over. Injected managers use the pool of their
+     * engine context.
+     *
+     * @param threadManagerPool the pool, or {@code null} to run batches on the calling thread
+     * @return the current instance of the PathfindingManager
+     */
+    public PathfindingManager setThreadManagerPool(ThreadManagerPool threadManagerPool) {
+        this.threadManagerPool = threadManagerPool;
+        return this;
+    }
+
+    /**
+     * Sets the number of cached paths, dropping the cached ones.
+     *
+     * @param capacity the cache capacity
+     * @return the current instance of the PathfindingManager
+     */
+    public PathfindingManager setCacheCapacity(int capacity) {
+        this.pathCache = new PathCache(capacity);
+        return this;
+    }
+
+    /**
+     * Sets whether query results are cached. Worth turning off when starts rarely repeat.
+     *
+     * @param cacheEnabled {@code false} to search every query
+     * @return the current instance of the PathfindingManager
+     */
+    public PathfindingManager setCacheEnabled(boolean cacheEnabled) {
+        this.cacheEnabled = cacheEnabled;
+        return this;
+    }
+
+    /**
+     * Sets the number of flow fields kept. The least recently requested one is dropped first.
+     *
+     * @param flowFieldCapacity the flow field capacity
+     * @return the current instance of the PathfindingManager
+     */
+    public PathfindingManager setFlowFieldCapacity(int flowFieldCapacity) {
+        if (flowFieldCapacity <= 0) {
+            throw new IllegalArgumentException("Flow field capacity must be positive: " + flowFieldCapacity);
+        }
+        this.flowFieldCapacity = flowFieldCapacity;
+        return this;
+    }
+
+    /**
+     * Finds the cheapest path between two cells.
+     *
+     * @param startX the start column
+     * @param startY the start row
+     * @param goalX the goal column
+     * @param goalY the goal row
+     * @param path the path to overwrite with the result
+     * @return {@code true} if the goal can be reached
+     * @throws IllegalStateException if no grid is set
+     * @throws IndexOutOfBoundsException if a cell is outside the grid
+     */
+    public boolean findPath(int startX, int startY, int goalX, int goalY, Path path) {
+        NavigationGrid grid = requireGrid();
+        checkCell(grid, startX, startY);
+        checkCell(grid, goalX, goalY);
+        PathSearch search = borrowSearch(grid);
+        try {
+            return find(search, grid.cell(startX, startY), grid.cell(goalX, goalY), path);
+        } finally {
+            releaseSearch(search);
+        }
+    }
+
+    /**
+     * Finds the paths of many agents at once, spread over the workers of the pool. Query
+     * {@code i} goes from {@code startCells[i]} to {@code goalCells[i]} and its result is written
+     * to {@code paths[i]}. Blocks until every path is found. Called from a worker of the pool,
+     * the batch runs on that worker alone instead of waiting for the others.
+     *
+     * @param count the number of queries
+     * @param startCells the start cells, see {@link NavigationGrid#cell(int, int)}
+     * @param goalCells the goal cells
+     * @param paths the paths to overwrite with the results
+     * @throws IllegalStateException if no grid is set
+     * @throws IllegalArgumentException if an array is shorter than the query count
+     */
+    public void findPaths(int count, int[] startCells, int[] goalCells, Path[] paths) {
+        NavigationGrid grid = requireGrid();
+        if (startCells.length < count || goalCells.length < count || paths.length < count) {
+            throw new IllegalArgumentException("Query arrays are shorter than the query count " + count);
+        }
+        int cells = grid.getWidth() * grid.getHeight();
+        for (int i = 0; i < count; i++) {
+            if (startCells[i] < 0 || startCells[i] >= cells || goalCells[i] < 0 || goalCells[i] >= cells) {
+                throw new IndexOutOfBoundsException("Query " + i + " has a cell outside the grid.");
+            }
+        }
+
+        long startNanos = System.nanoTime();
+        int tasks = threadManagerPool == null || threadManagerPool.isWorkerThread() ? 1
+                : Math.max(1, Math.min(threadManagerPool.getParallelism(), (count + BATCH_CHUNK - 1) / BATCH_CHUNK));
+
+        if (tasks == 1) {
+            PathSearch search = borrowSearch(grid);
+            try {
+                for (int i = 0; i < count; i++) {
+                    find(search, startCells[i], goalCells[i], paths[i]);
+                }
+            } finally {
+                releaseSearch(search);
+            }
+        } else {
+            AtomicInteger nextQuery = new AtomicInteger();
+            threadManagerPool.parallelFor(tasks, worker -> {
+                PathSearch search = borrowSearch(grid);
+                try {
+                    int from;
+                    while ((from = nextQuery.getAndAdd(BATCH_CHUNK)) < count) {
+                        for (int i = from, end = Math.min(from + BATCH_CHUNK, count); i < end; i++) {
+                            find(search, startCells[i], goalCells[i], paths[i]);
+                        }
+                    }
+                } finally {
+                    releaseSearch(search);
+                }
+            });
+        }
+
+        lastBatchNanos = System.nanoTime() - startNanos;
+        lastBatchQueries = count;
+    }
+
+    /**
+     * Returns the flow field towards a goal, building it on first use and rebuilding it when the
+     * grid was edited since.
+     *
+     * @param goalX the goal column
+     * @param goalY the goal row
+     * @return the flow field shared by every agent heading to the goal
+     * @throws IllegalStateException if no grid is set
+     * @throws IndexOutOfBoundsException if the goal is outside the grid
+     */
+    public FlowField getFlowField(int goalX, int goalY) {
+        NavigationGrid grid = requireGrid();
+        checkCell(grid, goalX, goalY);
+        int goal = grid.cell(goalX, goalY);
+
+        FlowField field = flowFields.get(goal);
+        if (field == null) {
+            field = new FlowField(grid, goalX, goalY);
+            flowFields.put(goal, field);
+            Iterator<FlowField> eldest = flowFields.values().iterator();
+            while (flowFields.size() > flowFieldCapacity) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        if (field.isStale()) {
+            field.build();
+            flowFieldsBuilt++;
+        }
+        return field;
+    }
+
+    /**
+     * Drops every cached path.
+     */
+    public void clearCache() {
+        pathCache.clear();
+    }
+
+    private boolean find(PathSearch search, int start, int goal, Path path) {
+        if (!cacheEnabled) {
+            return search.find(start, goal, path);
+        }
+        NavigationGrid grid = search.getGrid();
+        long key = PathCache.key(start, goal);
+        if (pathCache.get(key, grid, path)) {
+            return path.isFound();
+        }
+        long stamp = grid.getEditStamp();
+        boolean found = search.find(start, goal, path);
+        pathCache.put(key, path, stamp, search.touchedRegions(), search.touchedCount());
+        return found;
+    }
+
+    /**
+     * Takes a search for the given grid that no other query is using, creating one if needed.
+     */
+    private synchronized PathSearch borrowSearch(NavigationGrid grid) {
+        while (idleCount > 0) {
+            PathSearch search = idleSearches[--idleCount];
+            idleSearches[idleCount] = null;
+            if (search.getGrid() == grid) {
+                return search;
+            }
+        }
+        PathSearch search = new PathSearch(grid);
+        if (grid == this.grid) {
+            searches = Arrays.copyOf(searches, searches.length + 1);
+            searches[searches.length - 1] = search;
+            idleSearches = Arrays.copyOf(idleSearches, searches.length);
+        }
+        return search;
+    }
+
+    /**
+     * Returns a borrowed search. Searches of a grid that was replaced meanwhile are dropped.
+     */
+    private synchronized void releaseSearch(PathSearch search) {
+        if (search.getGrid() == grid) {
+            idleSearches[idleCount++] = search;
+        }
+    }
+
+    private NavigationGrid requireGrid() {
+        if (grid == null) {
+            throw new IllegalStateException("No navigation grid set on the PathfindingManager.");
+        }
+        return grid;
+    }
+
+    private static void checkCell(NavigationGrid grid, int x, int y) {
+        if (x < 0 || y < 0 || x >= grid.getWidth() || y >= grid.getHeight()) {
+            throw new IndexOutOfBoundsException("Cell " + x + "," + y + " is outside the grid.");
+        }
+    }
+
+    /**
+     * Returns the grid being searched.
+     *
+     * @return the grid, or {@code null} if none was set
+     */
+    public NavigationGrid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Returns the number of A* searches run, not counting queries answered from the cache.
+     *
+     * @return the search count
+     */
+    public synchronized long getSearches() {
+        long total = 0;
+        for (PathSearch search : searches) {
+            total += search.queries;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of cells expanded by all A* searches, a measure of the work done.
+     *
+     * @return the expanded node count
+     */
+    public synchronized long getNodesExpanded() {
+        long total = 0;
+        for (PathSearch search : searches) {
+            total += search.nodesExpanded;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of queries answered from the cache.
+     *
+     * @return the cache hit count
+     */
+    public long getCacheHits() {
+        return pathCache.getHits();
+    }
+
+    /**
+     * Returns the number of queries the cache could not answer.
+     *
+     * @return the cache miss count
+     */
+    public long getCacheMisses() {
+        return pathCache.getMisses();
+    }
+
+    /**
+     * Returns the number of cached paths dropped because the grid was edited where their
+     * search looked.
+     *
+     * @return the invalidation count
+     */
+    public long getCacheInvalidations() {
+        return pathCache.getInvalidations();
+    }
+
+    /**
+     * Returns the number of paths in the cache.
+     *
+     * @return the cached path count
+     */
+    public int getCachedPaths() {
+        return pathCache.size();
+    }
+
+    /**
+     * Returns the number of flow fields built or rebuilt.
+     *
+     * @return the build count
+     */
+    public long getFlowFieldsBuilt() {
+        return flowFieldsBuilt;
+    }
+
+    /**
+     * Returns how long the last {@link #findPaths} took.
+     *
+     * @return the duration in nanoseconds
+     */
+    public long getLastBatchNanos() {
+        return lastBatchNanos;
+    }
+
+    /**
+     * Returns the number of queries of the last {@link #findPaths}.
+     *
+     * @return the query count
+     */
+    public int getLastBatchQueries() {
+        return lastBatchQueries;
+    }
+}
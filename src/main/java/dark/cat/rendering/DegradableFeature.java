@@ -0,0 +1,27 @@
+package dark.cat.rendering;
+
+/**
+ * A {@code DegradableFeature} is an optional rendering effect that the {@link QualityController}
+ * may switch off when frames exceed their budget, and back on once there is headroom again.
+ *
+ * <p>Usage:
+ * <pre>
+ *     {@code
+ * qualityController.register(3, enabled -> bloom.setEnabled(enabled));
+ *     }
+ * </pre>
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+@FunctionalInterface
+public interface DegradableFeature {
+
+    /**
+     * Called when the quality level crosses the minimum level the feature was registered with.
+     *
+     * @param enabled {@code true} if the feature should be rendered
+     */
+    void setEnabled(boolean enabled);
+}
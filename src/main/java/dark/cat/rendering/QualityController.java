@@ -0,0 +1,210 @@
+package dark.cat.rendering;
+
+import dark.cat.utils.PajamaLogger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@code QualityController} class adapts rendering quality to a frame time budget.
+ *
+ * <p>The {@link dark.cat.managers.RenderManager} reports the render time of every frame. When
+ * the average over a short window exceeds the budget, the controller lowers the quality level;
+ * when the average stays well below the budget, it raises it again. Each level maps to an
+ * internal render resolution scale and enables the {@link DegradableFeature}s registered at or
+ * below it. Upgrades need more headroom and a longer cooldown than downgrades, so the level does
+ * not oscillate around the budget.
+ *
+ * <p>Usage:
+ * <pre>
+ *     {@code
+ * QualityController quality = renderManager.getQualityController();
+ * quality.setFrameBudgetNanos(16_666_666L);
+ * quality.register(3, enabled -> shadows = enabled);
+ * renderManager.setAdaptiveQuality(true);
+ *     }
+ * </pre>
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class QualityController {
+
+    // Render scale of each quality level, from the lowest level to the highest
+    private static final float[] DEFAULT_RESOLUTION_SCALES = {0.5f, 0.6f, 0.75f, 0.85f, 1.0f};
+
+    // Frames averaged before a decision is made
+    private static final int WINDOW_SIZE = 30;
+
+    // Downgrade when the average exceeds the budget, upgrade only below this share of it
+    private static final double UPGRADE_THRESHOLD = 0.7;
+
+    // Frames to wait after a change before the level may be raised again
+    private static final int UPGRADE_COOLDOWN_FRAMES = 120;
+
+    private float[] resolutionScales = DEFAULT_RESOLUTION_SCALES;
+    private long frameBudgetNanos = 1_000_000_000L / 60;
+
+    private final long[] window = new long[WINDOW_SIZE];
+    private int windowCount;
+    private int windowIndex;
+    private long windowSum;
+    private int framesSinceChange;
+
+    private int level = DEFAULT_RESOLUTION_SCALES.length - 1;
+
+    private final List<RegisteredFeature> features = new ArrayList<>();
+
+    /**
+     * Sets the render time budget of a frame.
+     *
+     * @param frameBudgetNanos the budget in nanoseconds
+     * @return the current instance of the QualityController
+     */
+    public QualityController setFrameBudgetNanos(long frameBudgetNanos) {
+        this.frameBudgetNanos = frameBudgetNanos;
+        return this;
+    }
+
+    /**
+     * Sets the internal render resolution scale of every quality level. The number of scales
+     * defines the number of levels, and the controller starts at the highest one.
+     *
+     * @param scales the scales from the lowest level to the highest, each in {@code (0, 1]}
+     * @return the current instance of the QualityController
+     * @throws IllegalArgumentException if no scale is given or a scale is not in {@code (0, 1]}
+     */
+    public QualityController setResolutionScales(float... scales) {
+        if (scales.length == 0) {
+            throw new IllegalArgumentException("At least one resolution scale is required.");
+        }
+        for (float scale : scales) {
+            if (!(scale > 0f && scale <= 1f)) {
+                throw new IllegalArgumentException("Resolution scales must be in (0, 1]: " + scale);
+            }
+        }
+        this.resolutionScales = scales.clone();
+        setQualityLevel(scales.length - 1);
+        return this;
+    }
+
+    /**
+     * Registers an optional feature that is only enabled at or above the given quality level.
+     * The feature is immediately told whether it is enabled at the current level.
+     *
+     * @param minimumLevel the lowest quality level at which the feature is rendered
+     * @param feature      the feature to toggle
+     * @return the current instance of the QualityController
+     */
+    public QualityController register(int minimumLevel, DegradableFeature feature) {
+        features.add(new RegisteredFeature(minimumLevel, feature));
+        feature.setEnabled(level >= minimumLevel);
+        return this;
+    }
+
+    /**
+     * Records the render time of a frame and adjusts the quality level if needed.
+     *
+     * @param renderNanos the time spent rendering the frame
+     */
+    public void recordFrame(long renderNanos) {
+        windowSum += renderNanos - window[windowIndex];
+        window[windowIndex] = renderNanos;
+        windowIndex = (windowIndex + 1) % WINDOW_SIZE;
+        windowCount = Math.min(windowCount + 1, WINDOW_SIZE);
+        framesSinceChange++;
+
+        if (windowCount < WINDOW_SIZE) {
+            return;
+        }
+
+        long average = windowSum / WINDOW_SIZE;
+        if (average > frameBudgetNanos && level > 0) {
+            setQualityLevel(level - 1);
+        } else if (average < frameBudgetNanos * UPGRADE_THRESHOLD
+                && framesSinceChange >= UPGRADE_COOLDOWN_FRAMES && level < getMaxQualityLevel()) {
+            setQualityLevel(level + 1);
+        }
+    }
+
+    /**
+     * Forces the quality level, e.g. from a settings menu. Features are toggled and the frame
+     * window is reset.
+     *
+     * @param newLevel the quality level, clamped to {@code [0, getMaxQualityLevel()]}
+     */
+    public void setQualityLevel(int newLevel) {
+        newLevel = Math.max(0, Math.min(newLevel, getMaxQualityLevel()));
+        int oldLevel = level;
+        level = newLevel;
+
+        for (RegisteredFeature registered : features) {
+            boolean wasEnabled = oldLevel >= registered.minimumLevel;
+            boolean enabled = newLevel >= registered.minimumLevel;
+            if (wasEnabled != enabled) {
+                registered.feature.setEnabled(enabled);
+            }
+        }
+
+        Arrays.fill(window, 0);
+        windowSum = 0;
+        windowCount = 0;
+        windowIndex = 0;
+        framesSinceChange = 0;
+
+        if (oldLevel != newLevel) {
+            PajamaLogger.log("Render quality level " + oldLevel + " -> " + newLevel
+                    + " (scale " + getRenderScale() + ")");
+        }
+    }
+
+    /**
+     * Returns the current quality level, {@code 0} being the lowest.
+     *
+     * @return the quality level
+     */
+    public int getQualityLevel() {
+        return level;
+    }
+
+    /**
+     * Returns the highest quality level.
+     *
+     * @return the maximum quality level
+     */
+    public int getMaxQualityLevel() {
+        return resolutionScales.length - 1;
+    }
+
+    /**
+     * Returns whether a feature registered at the given minimum level is currently enabled.
+     *
+     * @param minimumLevel the minimum level of the feature
+     * @return {@code true} if the current level allows the feature
+     */
+    public boolean allows(int minimumLevel) {
+        return level >= minimumLevel;
+    }
+
+    /**
+     * Returns the internal render resolution scale of the current level.
+     *
+     * @return the scale in {@code (0, 1]}
+     */
+    public float getRenderScale() {
+        return resolutionScales[level];
+    }
+
+    /**
+     * Returns the configured frame budget.
+     *
+     * @return the budget in nanoseconds
+     */
+    public long getFrameBudgetNanos() {
+        return frameBudgetNanos;
+    }
+
+    private record RegisteredFeature(int minimumLevel, DegradableFeature feature) { }
+}
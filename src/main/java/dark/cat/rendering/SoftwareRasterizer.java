@@ -0,0 +1,549 @@
+package dark.cat.rendering;
+
+import dark.cat.managers.RenderManager;
+import dark.cat.utils.ThreadManagerPool;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@code SoftwareRasterizer} class draws filled primitives and sprites into an
+ * {@code int[]} framebuffer, splitting the work over the workers of a {@link ThreadManagerPool}.
+ *
+ * <p>Draw calls only record commands. {@link #rasterize()} then bins every command into the
+ * square screen tiles its bounds touch, and the workers claim tiles one at a time and rasterize
+ * each of them on their own: a tile is cleared and every command binned into it is drawn,
+ * clipped to the tile, in submission order. Tiles cover disjoint pixels, so no locks are needed
+ * and the result does not depend on which worker drew which tile. {@link #present(Graphics2D)}
+ * composites the finished framebuffer with a single {@code drawImage} call.
+ *
+ * <p>Colors are {@code 0xAARRGGBB}; colors with an alpha below {@code 0xFF} are blended over the
+ * framebuffer, fully transparent sprite pixels are skipped.
+ *
+ * <p>Usage:
+ * <pre>
+ *     {@code
+ * SoftwareRasterizer rasterizer = new SoftwareRasterizer(1920, 1080, threadManagerPool);
+ *
+ * rasterizer.beginFrame(0xFF101020);
+ * rasterizer.fillRect(100, 100, 200, 50, 0xFFFF0000);
+ * rasterizer.fillTriangle(400, 100, 600, 400, 200, 400, 0x8000FF00);
+ * rasterizer.rasterize();
+ *
+ * Graphics2D graphics = renderManager.beginFrame();
+ * rasterizer.present(graphics);
+ * renderManager.endFrame();
+ *     }
+ * </pre>
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class SoftwareRasterizer {
+
+    private static final int DEFAULT_TILE_SIZE = 64;
+
+    private static final int RECT = 0;
+    private static final int TRIANGLE = 1;
+    private static final int CIRCLE = 2;
+    private static final int SPRITE = 3;
+
+    // Floats stored per command; the meaning depends on the kind
+    private static final int PARAMS = 6;
+
+    private final int width;
+    private final int height;
+    private final BufferedImage framebuffer;
+    private final int[] pixels;
+
+    private ThreadManagerPool threadManagerPool;
+
+    private int tileSize;
+    private int tilesX;
+    private int tilesY;
+    private int[][] bins;
+    private int[] binCounts;
+
+    private int clearColor;
+    private int commandCount;
+    private int[] kinds = new int[256];
+    private int[] colors = new int[256];
+    private float[] params = new float[256 * PARAMS];
+    private int[] bounds = new int[256 * 4];
+    private int[][] sprites = new int[256][];
+
+    private final AtomicInteger nextTile = new AtomicInteger();
+
+    private long lastBinNanos;
+    private long lastRasterNanos;
+    private long lastBinnedCount;
+
+    /**
+     * Creates a rasterizer with a framebuffer of the given size and 64x64 pixel tiles.
+     *
+     * @param width the framebuffer width in pixels
+     * @param height the framebuffer height in pixels
+     * @param threadManagerPool the pool whose workers rasterize the tiles, or {@code null} to
+     *                          rasterize on the calling thread
+     */
+    public SoftwareRasterizer(int width, int height, ThreadManagerPool threadManagerPool) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Framebuffer size must be positive: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.framebuffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        this.pixels = ((DataBufferInt) framebuffer.getRaster().getDataBuffer()).getData();
+        this.threadManagerPool = threadManagerPool;
+        binTiles(DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * Creates a rasterizer with a framebuffer the size of the {@link RenderManager} canvas.
+     *
+     * @param renderManager the initialized render manager
+     * @param threadManagerPool the pool whose workers rasterize the tiles
+     */
+    public SoftwareRasterizer(RenderManager renderManager, ThreadManagerPool threadManagerPool) {
+        this(renderManager.getWidth(), renderManager.getHeight(), threadManagerPool);
+    }
+
+    /**
+     * Sets the edge length of the screen tiles. Smaller tiles balance uneven scenes better over
+     * many workers, larger tiles bin fewer commands.
+     *
+     * @param tileSize the tile size in pixels
+     * @return the current instance of the SoftwareRasterizer
+     */
+    public SoftwareRasterizer setTileSize(int tileSize) {
+        if (tileSize < 8) {
+            throw new IllegalArgumentException("Tile size must be at least 8 pixels: " + tileSize);
+        }
+        binTiles(tileSize);
+        return this;
+    }
+
+    // Also called from the constructor, which must not call the overridable setter
+    private void binTiles(int tileSize) {
+        this.tileSize = tileSize;
+        this.tilesX = (width + tileSize - 1) / tileSize;
+        this.tilesY = (height + tileSize - 1) / tileSize;
+        this.bins = new int[tilesX * tilesY][16];
+        this.binCounts = new int[tilesX * tilesY];
+    }
+
+    /**
+     * Sets the pool whose workers rasterize the tiles.
+     *
+     * @param threadManagerPool the pool, or {@code null} to rasterize on the calling thread
+     * @return the current instance of the SoftwareRasterizer
+     */
+    public SoftwareRasterizer setThreadManagerPool(ThreadManagerPool threadManagerPool) {
+        this.threadManagerPool = threadManagerPool;
+        return this;
+    }
+
+    /**
+     * Discards the commands of the previous frame and sets the color every tile is cleared to.
+     *
+     * @param clearColor the background color
+     */
+    public void beginFrame(int clearColor) {
+        this.clearColor = clearColor;
+        Arrays.fill(sprites, 0, commandCount, null);
+        commandCount = 0;
+    }
+
+    /**
+     * Records a filled axis-aligned rectangle.
+     *
+     * @param x the left edge
+     * @param y the top edge
+     * @param w the width
+     * @param h the height
+     * @param argb the color
+     */
+    public void fillRect(int x, int y, int w, int h, int argb) {
+        // The clipped bounds are all a rectangle needs
+        addCommand(RECT, argb, x, y, x + w, y + h);
+    }
+
+    /**
+     * Records a filled triangle. The winding order does not matter.
+     *
+     * @param x0 the x of the first corner
+     * @param y0 the y of the first corner
+     * @param x1 the x of the second corner
+     * @param y1 the y of the second corner
+     * @param x2 the x of the third corner
+     * @param y2 the y of the third corner
+     * @param argb the color
+     */
+    public void fillTriangle(float x0, float y0, float x1, float y1, float x2, float y2, int argb) {
+        float area = (x1 - x0) * (y2 - y0) - (y1 - y0) * (x2 - x0);
+        if (area == 0f) {
+            return;
+        }
+        if (area < 0f) {
+            float swapX = x1;
+            float swapY = y1;
+            x1 = x2;
+            y1 = y2;
+            x2 = swapX;
+            y2 = swapY;
+        }
+
+        int command = addCommand(TRIANGLE, argb,
+                (int) Math.floor(Math.min(x0, Math.min(x1, x2))),
+                (int) Math.floor(Math.min(y0, Math.min(y1, y2))),
+                (int) Math.ceil(Math.max(x0, Math.max(x1, x2))),
+                (int) Math.ceil(Math.max(y0, Math.max(y1, y2))));
+        if (command >= 0) {
+            int base = command * PARAMS;
+            params[base] = x0;
+            params[base + 1] = y0;
+            params[base + 2] = x1;
+            params[base + 3] = y1;
+            params[base + 4] = x2;
+            params[base + 5] = y2;
+        }
+    }
+
+    /**
+     * Records a filled circle.
+     *
+     * @param centerX the x of the center
+     * @param centerY the y of the center
+     * @param radius the radius
+     * @param argb the color
+     */
+    public void fillCircle(float centerX, float centerY, float radius, int argb) {
+        int command = addCommand(CIRCLE, argb,
+                (int) Math.floor(centerX - radius), (int) Math.floor(centerY - radius),
+                (int) Math.ceil(centerX + radius), (int) Math.ceil(centerY + radius));
+        if (command >= 0) {
+            int base = command * PARAMS;
+            params[base] = centerX;
+            params[base + 1] = centerY;
+            params[base + 2] = radius;
+        }
+    }
+
+    /**
+     * Records a sprite given as {@code 0xAARRGGBB} pixels, row by row. The array is read during
+     * {@link #rasterize()} and must not change before it returns.
+     *
+     * @param sprite the sprite pixels
+     * @param spriteWidth the sprite width
+     * @param spriteHeight the sprite height
+     * @param x the left edge on screen
+     * @param y the top edge on screen
+     */
+    public void drawSprite(int[] sprite, int spriteWidth, int spriteHeight, int x, int y) {
+        if (sprite.length < spriteWidth * spriteHeight) {
+            throw new IllegalArgumentException("Sprite has fewer than " + spriteWidth + "x" + spriteHeight + " pixels.");
+        }
+        int command = addCommand(SPRITE, 0, x, y, x + spriteWidth, y + spriteHeight);
+        if (command >= 0) {
+            int base = command * PARAMS;
+            params[base] = x;
+            params[base + 1] = y;
+            params[base + 2] = spriteWidth;
+            sprites[command] = sprite;
+        }
+    }
+
+    // Stores the kind, color and screen-clipped bounds; returns -1 for commands off screen
+    private int addCommand(int kind, int argb, int minX, int minY, int maxX, int maxY) {
+        minX = Math.max(minX, 0);
+        minY = Math.max(minY, 0);
+        maxX = Math.min(maxX, width);
+        maxY = Math.min(maxY, height);
+        if (minX >= maxX || minY >= maxY || (kind != SPRITE && (argb >>> 24) == 0)) {
+            return -1;
+        }
+
+        if (commandCount == kinds.length) {
+            int capacity = commandCount * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            colors = Arrays.copyOf(colors, capacity);
+            params = Arrays.copyOf(params, capacity * PARAMS);
+            bounds = Arrays.copyOf(bounds, capacity * 4);
+            sprites = Arrays.copyOf(sprites, capacity);
+        }
+
+        int command = commandCount++;
+        kinds[command] = kind;
+        colors[command] = argb;
+        bounds[command * 4] = minX;
+        bounds[command * 4 + 1] = minY;
+        bounds[command * 4 + 2] = maxX;
+        bounds[command * 4 + 3] = maxY;
+        return command;
+    }
+
+    /**
+     * Bins the recorded commands into tiles and rasterizes all tiles, in parallel when a pool is
+     * set. Returns once the framebuffer is complete.
+     */
+    public void rasterize() {
+        long start = System.nanoTime();
+        binCommands();
+        long binned = System.nanoTime();
+
+        int tileCount = tilesX * tilesY;
+        nextTile.set(0);
+        int workers = threadManagerPool == null ? 1 : Math.min(threadManagerPool.getParallelism(), tileCount);
+        if (workers <= 1) {
+            rasterizeTiles();
+        } else {
+            threadManagerPool.parallelFor(workers, worker -> rasterizeTiles());
+        }
+
+        lastBinNanos = binned - start;
+        lastRasterNanos = System.nanoTime() - binned;
+    }
+
+    private void binCommands() {
+        Arrays.fill(binCounts, 0);
+        long binnedCount = 0;
+
+        for (int command = 0; command < commandCount; command++) {
+            int firstTileX = bounds[command * 4] / tileSize;
+            int firstTileY = bounds[command * 4 + 1] / tileSize;
+            int lastTileX = (bounds[command * 4 + 2] - 1) / tileSize;
+            int lastTileY = (bounds[command * 4 + 3] - 1) / tileSize;
+
+            for (int tileY = firstTileY; tileY <= lastTileY; tileY++) {
+                for (int tileX = firstTileX; tileX <= lastTileX; tileX++) {
+                    int tile = tileY * tilesX + tileX;
+                    int count = binCounts[tile];
+                    if (count == bins[tile].length) {
+                        bins[tile] = Arrays.copyOf(bins[tile], count * 2);
+                    }
+                    bins[tile][count] = command;
+                    binCounts[tile] = count + 1;
+                }
+            }
+            binnedCount += (long) (lastTileX - firstTileX + 1) * (lastTileY - firstTileY + 1);
+        }
+        lastBinnedCount = binnedCount;
+    }
+
+    // Run by every worker: claims tiles until none are left
+    private void rasterizeTiles() {
+        int tileCount = tilesX * tilesY;
+        int tile;
+        while ((tile = nextTile.getAndIncrement()) < tileCount) {
+            rasterizeTile(tile);
+        }
+    }
+
+    private void rasterizeTile(int tile) {
+        int tileMinX = (tile % tilesX) * tileSize;
+        int tileMinY = (tile / tilesX) * tileSize;
+        int tileMaxX = Math.min(tileMinX + tileSize, width);
+        int tileMaxY = Math.min(tileMinY + tileSize, height);
+
+        for (int y = tileMinY; y < tileMaxY; y++) {
+            Arrays.fill(pixels, y * width + tileMinX, y * width + tileMaxX, clearColor);
+        }
+
+        int[] bin = bins[tile];
+        for (int i = 0, count = binCounts[tile]; i < count; i++) {
+            int command = bin[i];
+            int minX = Math.max(bounds[command * 4], tileMinX);
+            int minY = Math.max(bounds[command * 4 + 1], tileMinY);
+            int maxX = Math.min(bounds[command * 4 + 2], tileMaxX);
+            int maxY = Math.min(bounds[command * 4 + 3], tileMaxY);
+
+            switch (kinds[command]) {
+                case RECT -> rasterizeRect(command, minX, minY, maxX, maxY);
+                case TRIANGLE -> rasterizeTriangle(command, minX, minY, maxX, maxY);
+                case CIRCLE -> rasterizeCircle(command, minX, minY, maxX, maxY);
+                case SPRITE -> rasterizeSprite(command, minX, minY, maxX, maxY);
+                default -> throw new IllegalStateException("Unknown command kind: " + kinds[command]);
+            }
+        }
+    }
+
+    private void rasterizeRect(int command, int minX, int minY, int maxX, int maxY) {
+        int argb = colors[command];
+        for (int y = minY; y < maxY; y++) {
+            fillSpan(y * width, minX, maxX, argb);
+        }
+    }
+
+    private void rasterizeTriangle(int command, int minX, int minY, int maxX, int maxY) {
+        int base = command * PARAMS;
+        float x0 = params[base];
+        float y0 = params[base + 1];
+        float x1 = params[base + 2];
+        float y1 = params[base + 3];
+        float x2 = params[base + 4];
+        float y2 = params[base + 5];
+        int argb = colors[command];
+
+        // Edge functions are positive inside for the winding stored by fillTriangle; these are
+        // their steps per pixel along x
+        float step0 = y1 - y2;
+        float step1 = y2 - y0;
+        float step2 = y0 - y1;
+
+        for (int y = minY; y < maxY; y++) {
+            float sampleX = minX + 0.5f;
+            float sampleY = y + 0.5f;
+            float w0 = (x2 - x1) * (sampleY - y1) - (y2 - y1) * (sampleX - x1);
+            float w1 = (x0 - x2) * (sampleY - y2) - (y0 - y2) * (sampleX - x2);
+            float w2 = (x1 - x0) * (sampleY - y0) - (y1 - y0) * (sampleX - x0);
+            int row = y * width;
+            int spanStart = -1;
+            for (int x = minX; x < maxX; x++) {
+                boolean inside = w0 >= 0f && w1 >= 0f && w2 >= 0f;
+                if (inside && spanStart < 0) {
+                    spanStart = x;
+                } else if (!inside && spanStart >= 0) {
+                    fillSpan(row, spanStart, x, argb);
+                    spanStart = -1;
+                }
+                w0 += step0;
+                w1 += step1;
+                w2 += step2;
+            }
+            if (spanStart >= 0) {
+                fillSpan(row, spanStart, maxX, argb);
+            }
+        }
+    }
+
+    private void rasterizeCircle(int command, int minX, int minY, int maxX, int maxY) {
+        int base = command * PARAMS;
+        float centerX = params[base];
+        float centerY = params[base + 1];
+        float radius = params[base + 2];
+        int argb = colors[command];
+
+        for (int y = minY; y < maxY; y++) {
+            float dy = y + 0.5f - centerY;
+            float squared = radius * radius - dy * dy;
+            if (squared < 0f) {
+                continue;
+            }
+            float halfSpan = (float) Math.sqrt(squared);
+            int start = Math.max(minX, (int) Math.ceil(centerX - halfSpan - 0.5f));
+            int end = Math.min(maxX, (int) Math.floor(centerX + halfSpan - 0.5f) + 1);
+            if (start < end) {
+                fillSpan(y * width, start, end, argb);
+            }
+        }
+    }
+
+    private void rasterizeSprite(int command, int minX, int minY, int maxX, int maxY) {
+        int base = command * PARAMS;
+        int spriteX = (int) params[base];
+        int spriteY = (int) params[base + 1];
+        int spriteWidth = (int) params[base + 2];
+        int[] sprite = sprites[command];
+
+        for (int y = minY; y < maxY; y++) {
+            int source = (y - spriteY) * spriteWidth + (minX - spriteX);
+            int target = y * width + minX;
+            for (int x = minX; x < maxX; x++, source++, target++) {
+                int argb = sprite[source];
+                int alpha = argb >>> 24;
+                if (alpha == 0xFF) {
+                    pixels[target] = argb;
+                } else if (alpha != 0) {
+                    pixels[target] = blend(pixels[target], argb, alpha);
+                }
+            }
+        }
+    }
+
+    private void fillSpan(int row, int fromX, int toX, int argb) {
+        int alpha = argb >>> 24;
+        if (alpha == 0xFF) {
+            Arrays.fill(pixels, row + fromX, row + toX, argb);
+            return;
+        }
+        for (int i = row + fromX, end = row + toX; i < end; i++) {
+            pixels[i] = blend(pixels[i], argb, alpha);
+        }
+    }
+
+    private static int blend(int destination, int source, int alpha) {
+        int inverse = 0xFF - alpha;
+        int redBlue = ((source & 0xFF00FF) * alpha + (destination & 0xFF00FF) * inverse) >>> 8;
+        int green = ((source & 0x00FF00) * alpha + (destination & 0x00FF00) * inverse) >>> 8;
+        return (redBlue & 0xFF00FF) | (green & 0x00FF00);
+    }
+
+    /**
+     * Composites the framebuffer with a single {@code drawImage} call. Pass the graphics from
+     * {@link RenderManager#beginFrame()} to show it through the buffer strategy.
+     *
+     * @param graphics the graphics to draw with
+     */
+    public void present(Graphics2D graphics) {
+        graphics.drawImage(framebuffer, 0, 0, null);
+    }
+
+    /**
+     * Returns the framebuffer the tiles are rasterized into.
+     *
+     * @return the framebuffer image
+     */
+    public BufferedImage getFramebuffer() {
+        return framebuffer;
+    }
+
+    /**
+     * Returns the number of commands recorded since {@link #beginFrame(int)}.
+     *
+     * @return the command count
+     */
+    public int getCommandCount() {
+        return commandCount;
+    }
+
+    /**
+     * Returns the number of screen tiles.
+     *
+     * @return the tile count
+     */
+    public int getTileCount() {
+        return tilesX * tilesY;
+    }
+
+    /**
+     * Returns how many tile entries the last {@link #rasterize()} binned; commands spanning
+     * several tiles count once per tile.
+     *
+     * @return the binned entry count
+     */
+    public long getLastBinnedCount() {
+        return lastBinnedCount;
+    }
+
+    /**
+     * Returns how long binning took in the last {@link #rasterize()}.
+     *
+     * @return the duration in nanoseconds
+     */
+    public long getLastBinNanos() {
+        return lastBinNanos;
+    }
+
+    /**
+     * Returns how long rasterizing the tiles took in the last {@link #rasterize()}.
+     *
+     * @return the duration in nanoseconds
+     */
+    public long getLastRasterNanos() {
+        return lastRasterNanos;
+    }
+}
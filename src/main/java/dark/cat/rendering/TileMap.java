@@ -0,0 +1,168 @@
+package dark.cat.rendering;
+
+import java.util.Arrays;
+
+/**
+ * A {@code TileMap} is a grid of tile ids, split into square chunks for rendering.
+ *
+ * <p>Every chunk carries a version number that is bumped whenever one of its tiles changes, so
+ * a {@link TileMapRenderer} only re-renders the chunks that were actually edited. Tile ids below
+ * {@code 0} are empty.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class TileMap {
+
+    /**
+     * The tile id of an empty cell.
+     */
+    public static final int EMPTY = -1;
+
+    // Default chunk edge in tiles, 16x16 tiles of 16px is a 256px chunk image
+    public static final int DEFAULT_CHUNK_SIZE = 16;
+
+    private final int width;
+    private final int height;
+    private final int chunkSize;
+    private final int chunkColumns;
+    private final int chunkRows;
+
+    private final int[] tiles;
+    private final int[] chunkVersions;
+
+    /**
+     * Creates an empty map with the default chunk size.
+     *
+     * @param width  the width in tiles
+     * @param height the height in tiles
+     */
+    public TileMap(int width, int height) {
+        this(width, height, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates an empty map.
+     *
+     * @param width     the width in tiles
+     * @param height    the height in tiles
+     * @param chunkSize the edge of a chunk in tiles
+     */
+    public TileMap(int width, int height, int chunkSize) {
+        this.width = width;
+        this.height = height;
+        this.chunkSize = chunkSize;
+        this.chunkColumns = (width + chunkSize - 1) / chunkSize;
+        this.chunkRows = (height + chunkSize - 1) / chunkSize;
+        this.tiles = new int[width * height];
+        this.chunkVersions = new int[chunkColumns * chunkRows];
+        Arrays.fill(tiles, EMPTY);
+    }
+
+    /**
+     * Returns the tile at the given cell.
+     *
+     * @param x the column
+     * @param y the row
+     * @return the tile id, or {@link #EMPTY} outside the map
+     */
+    public int getTile(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return EMPTY;
+        }
+        return tiles[y * width + x];
+    }
+
+    /**
+     * Sets the tile at the given cell and marks its chunk dirty if the tile changed.
+     *
+     * @param x      the column
+     * @param y      the row
+     * @param tileId the tile id, or {@link #EMPTY}
+     * @throws IndexOutOfBoundsException if the cell is outside the map
+     */
+    public void setTile(int x, int y, int tileId) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            throw new IndexOutOfBoundsException("Tile " + x + "," + y + " is outside the map.");
+        }
+        int index = y * width + x;
+        if (tiles[index] != tileId) {
+            tiles[index] = tileId;
+            chunkVersions[(y / chunkSize) * chunkColumns + x / chunkSize]++;
+        }
+    }
+
+    /**
+     * Fills a rectangle of cells with a tile.
+     *
+     * @param x      the first column
+     * @param y      the first row
+     * @param w      the width in tiles
+     * @param h      the height in tiles
+     * @param tileId the tile id, or {@link #EMPTY}
+     */
+    public void fill(int x, int y, int w, int h, int tileId) {
+        for (int row = Math.max(0, y); row < Math.min(height, y + h); row++) {
+            for (int column = Math.max(0, x); column < Math.min(width, x + w); column++) {
+                setTile(column, row, tileId);
+            }
+        }
+    }
+
+    /**
+     * Returns the version of a chunk, which changes whenever one of its tiles changes.
+     *
+     * @param chunkX the chunk column
+     * @param chunkY the chunk row
+     * @return the chunk version
+     */
+    public int getChunkVersion(int chunkX, int chunkY) {
+        return chunkVersions[chunkY * chunkColumns + chunkX];
+    }
+
+    /**
+     * Returns the width of the map.
+     *
+     * @return the width in tiles
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the map.
+     *
+     * @return the height in tiles
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the edge of a chunk.
+     *
+     * @return the chunk size in tiles
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Returns the number of chunk columns.
+     *
+     * @return the chunk column count
+     */
+    public int getChunkColumns() {
+        return chunkColumns;
+    }
+
+    /**
+     * Returns the number of chunk rows.
+     *
+     * @return the chunk row count
+     */
+    public int getChunkRows() {
+        return chunkRows;
+    }
+}
@@ -0,0 +1,250 @@
+package dark.cat.rendering;
+
+import dark.cat.managers.RenderManager;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Renders a {@link TileMap} through per-chunk image caches.
+ * <li>Each chunk is pre-rendered once into a compatible image and then drawn with a single blit,
+ * so a static layer costs one {@code drawImage} per visible chunk instead of one per tile.
+ * Chunks are re-rendered only when their version in the map changes, and cached images of
+ * chunks that drift far from the viewport are recycled for other chunks. Per-frame work only
+ * touches cached chunks, so it does not grow with the size of the map.</li>
+ * <p>Usage Example:</p>
+ * <pre>
+ * {@code
+ * TileMapRenderer ground = new TileMapRenderer(map, tileSet, renderManager);
+ * Graphics2D graphics = renderManager.beginFrame();
+ * ground.render(graphics, cameraX, cameraY, renderManager.getWidth(), renderManager.getHeight());
+ * renderManager.endFrame();
+ * }
+ * </pre>
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class TileMapRenderer {
+
+    // Chunks further than this from the viewport, in chunks, lose their cached image
+    private static final int DEFAULT_EVICTION_MARGIN = 2;
+
+    private final TileMap map;
+    private final TileSet tileSet;
+    private final GraphicsConfiguration graphicsConfiguration;
+
+    private final int chunkPixelWidth;
+    private final int chunkPixelHeight;
+
+    private final BufferedImage[] chunkImages;
+    private final int[] chunkImageVersions;
+    private final ArrayDeque<BufferedImage> freeImages = new ArrayDeque<>();
+
+    // Indices of the chunks holding an image, the first cachedChunks entries are valid
+    private int[] cachedIndices = new int[16];
+
+    private int evictionMargin = DEFAULT_EVICTION_MARGIN;
+
+    private int chunksRendered;
+    private int chunksDrawn;
+    private int cachedChunks;
+
+    /**
+     * Creates a renderer whose chunk images are compatible with the render manager's canvas,
+     * so blitting them can stay in video memory.
+     *
+     * @param map           the map to render
+     * @param tileSet       the tiles to draw the map with
+     * @param renderManager an initialized render manager
+     */
+    public TileMapRenderer(TileMap map, TileSet tileSet, RenderManager renderManager) {
+        this(map, tileSet, renderManager.getCanvas().getGraphicsConfiguration());
+    }
+
+    /**
+     * Creates a renderer for the given graphics configuration.
+     *
+     * @param map                   the map to render
+     * @param tileSet               the tiles to draw the map with
+     * @param graphicsConfiguration the target configuration, or {@code null} for plain ARGB images
+     */
+    public TileMapRenderer(TileMap map, TileSet tileSet, GraphicsConfiguration graphicsConfiguration) {
+        this.map = map;
+        this.tileSet = tileSet;
+        this.graphicsConfiguration = graphicsConfiguration;
+        this.chunkPixelWidth = map.getChunkSize() * tileSet.getTileWidth();
+        this.chunkPixelHeight = map.getChunkSize() * tileSet.getTileHeight();
+
+        int chunkCount = map.getChunkColumns() * map.getChunkRows();
+        this.chunkImages = new BufferedImage[chunkCount];
+        this.chunkImageVersions = new int[chunkCount];
+    }
+
+    /**
+     * Sets how many chunks beyond the viewport keep their cached image.
+     *
+     * @param evictionMargin the margin in chunks
+     * @return the current instance of the TileMapRenderer
+     */
+    public TileMapRenderer setEvictionMargin(int evictionMargin) {
+        this.evictionMargin = evictionMargin;
+        return this;
+    }
+
+    /**
+     * Draws the part of the map visible through the given viewport.
+     *
+     * @param graphics   the graphics to draw with
+     * @param cameraX    the map pixel shown at the left edge of the viewport
+     * @param cameraY    the map pixel shown at the top edge of the viewport
+     * @param viewWidth  the viewport width in pixels
+     * @param viewHeight the viewport height in pixels
+     */
+    public void render(Graphics2D graphics, int cameraX, int cameraY, int viewWidth, int viewHeight) {
+        chunksRendered = 0;
+        chunksDrawn = 0;
+
+        int firstColumn = Math.max(0, Math.floorDiv(cameraX, chunkPixelWidth));
+        int firstRow = Math.max(0, Math.floorDiv(cameraY, chunkPixelHeight));
+        int lastColumn = Math.min(map.getChunkColumns() - 1, Math.floorDiv(cameraX + viewWidth - 1, chunkPixelWidth));
+        int lastRow = Math.min(map.getChunkRows() - 1, Math.floorDiv(cameraY + viewHeight - 1, chunkPixelHeight));
+
+        evictDistantChunks(firstColumn, firstRow, lastColumn, lastRow);
+        trimFreeImages((lastColumn - firstColumn + 1) * (lastRow - firstRow + 1));
+
+        for (int chunkY = firstRow; chunkY <= lastRow; chunkY++) {
+            for (int chunkX = firstColumn; chunkX <= lastColumn; chunkX++) {
+                BufferedImage image = chunkImage(chunkX, chunkY);
+                graphics.drawImage(image, chunkX * chunkPixelWidth - cameraX, chunkY * chunkPixelHeight - cameraY, null);
+                chunksDrawn++;
+            }
+        }
+    }
+
+    /**
+     * Returns the cached image of a chunk, rendering it first if it is missing or outdated.
+     */
+    private BufferedImage chunkImage(int chunkX, int chunkY) {
+        int index = chunkY * map.getChunkColumns() + chunkX;
+        int version = map.getChunkVersion(chunkX, chunkY);
+        BufferedImage image = chunkImages[index];
+
+        if (image == null) {
+            image = freeImages.isEmpty() ? createChunkImage() : freeImages.pop();
+            chunkImages[index] = image;
+            if (cachedChunks == cachedIndices.length) {
+                cachedIndices = Arrays.copyOf(cachedIndices, cachedChunks * 2);
+            }
+            cachedIndices[cachedChunks++] = index;
+        } else if (chunkImageVersions[index] == version) {
+            return image;
+        }
+
+        renderChunk(image, chunkX, chunkY);
+        chunkImageVersions[index] = version;
+        chunksRendered++;
+        return image;
+    }
+
+    private void renderChunk(BufferedImage image, int chunkX, int chunkY) {
+        Graphics2D graphics = image.createGraphics();
+        graphics.setComposite(AlphaComposite.Clear);
+        graphics.fillRect(0, 0, chunkPixelWidth, chunkPixelHeight);
+        graphics.setComposite(AlphaComposite.SrcOver);
+
+        int chunkSize = map.getChunkSize();
+        int firstTileX = chunkX * chunkSize;
+        int firstTileY = chunkY * chunkSize;
+        for (int y = 0; y < chunkSize; y++) {
+            for (int x = 0; x < chunkSize; x++) {
+                int tileId = map.getTile(firstTileX + x, firstTileY + y);
+                if (tileId >= 0) {
+                    tileSet.drawTile(graphics, tileId, x * tileSet.getTileWidth(), y * tileSet.getTileHeight());
+                }
+            }
+        }
+        graphics.dispose();
+    }
+
+    private BufferedImage createChunkImage() {
+        if (graphicsConfiguration != null) {
+            return graphicsConfiguration.createCompatibleImage(chunkPixelWidth, chunkPixelHeight, Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(chunkPixelWidth, chunkPixelHeight, BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+
+    /**
+     * Recycles the images of cached chunks outside the viewport plus the eviction margin. Only
+     * the cached chunks are visited, so the cost does not grow with the size of the map.
+     */
+    private void evictDistantChunks(int firstColumn, int firstRow, int lastColumn, int lastRow) {
+        int columns = map.getChunkColumns();
+        int kept = 0;
+        for (int i = 0; i < cachedChunks; i++) {
+            int index = cachedIndices[i];
+            int chunkX = index % columns;
+            int chunkY = index / columns;
+            if (chunkX < firstColumn - evictionMargin || chunkX > lastColumn + evictionMargin
+                    || chunkY < firstRow - evictionMargin || chunkY > lastRow + evictionMargin) {
+                freeImages.push(chunkImages[index]);
+                chunkImages[index] = null;
+            } else {
+                cachedIndices[kept++] = index;
+            }
+        }
+        cachedChunks = kept;
+    }
+
+    /**
+     * Releases spare images beyond what one viewport of new chunks could need, so a camera jump
+     * or {@link #invalidate()} does not pin their memory for the rest of the game.
+     */
+    private void trimFreeImages(int visibleChunks) {
+        while (freeImages.size() > visibleChunks) {
+            freeImages.pop().flush();
+        }
+    }
+
+    /**
+     * Drops every cached chunk image, e.g. after the tile set changed.
+     */
+    public void invalidate() {
+        for (int i = 0; i < cachedChunks; i++) {
+            int index = cachedIndices[i];
+            freeImages.push(chunkImages[index]);
+            chunkImages[index] = null;
+        }
+        cachedChunks = 0;
+    }
+
+    /**
+     * Returns the number of chunks re-rendered by the last {@link #render} call.
+     *
+     * @return the re-rendered chunk count
+     */
+    public int getChunksRendered() {
+        return chunksRendered;
+    }
+
+    /**
+     * Returns the number of chunk images blitted by the last {@link #render} call.
+     *
+     * @return the drawn chunk count
+     */
+    public int getChunksDrawn() {
+        return chunksDrawn;
+    }
+
+    /**
+     * Returns the number of chunks that currently hold a cached image.
+     *
+     * @return the cached chunk count
+     */
+    public int getCachedChunks() {
+        return cachedChunks;
+    }
+}
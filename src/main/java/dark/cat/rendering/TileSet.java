@@ -0,0 +1,82 @@
+package dark.cat.rendering;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * A {@code TileSet} is an atlas image cut into equally sized tiles, numbered row by row
+ * starting at {@code 0}.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class TileSet {
+
+    private final BufferedImage atlas;
+    private final int tileWidth;
+    private final int tileHeight;
+    private final int columns;
+    private final int tileCount;
+
+    /**
+     * Creates a tile set from an atlas image.
+     *
+     * @param atlas      the atlas image
+     * @param tileWidth  the width of a tile in pixels
+     * @param tileHeight the height of a tile in pixels
+     */
+    public TileSet(BufferedImage atlas, int tileWidth, int tileHeight) {
+        this.atlas = atlas;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.columns = atlas.getWidth() / tileWidth;
+        this.tileCount = columns * (atlas.getHeight() / tileHeight);
+    }
+
+    /**
+     * Draws a tile with its top-left corner at the given position. Negative or unknown tile ids
+     * are treated as empty and draw nothing.
+     *
+     * @param graphics the graphics to draw with
+     * @param tileId   the tile id
+     * @param x        the x position in pixels
+     * @param y        the y position in pixels
+     */
+    public void drawTile(Graphics2D graphics, int tileId, int x, int y) {
+        if (tileId < 0 || tileId >= tileCount) {
+            return;
+        }
+        int sourceX = (tileId % columns) * tileWidth;
+        int sourceY = (tileId / columns) * tileHeight;
+        graphics.drawImage(atlas, x, y, x + tileWidth, y + tileHeight,
+                sourceX, sourceY, sourceX + tileWidth, sourceY + tileHeight, null);
+    }
+
+    /**
+     * Returns the width of a tile.
+     *
+     * @return the tile width in pixels
+     */
+    public int getTileWidth() {
+        return tileWidth;
+    }
+
+    /**
+     * Returns the height of a tile.
+     *
+     * @return the tile height in pixels
+     */
+    public int getTileHeight() {
+        return tileHeight;
+    }
+
+    /**
+     * Returns the number of tiles in the atlas.
+     *
+     * @return the tile count
+     */
+    public int getTileCount() {
+        return tileCount;
+    }
+}
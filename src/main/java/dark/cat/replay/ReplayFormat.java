@@ -0,0 +1,34 @@
+package dark.cat.replay;
+
+/**
+ * Constants of the replay file format shared by the {@link ReplayRecorder} and the
+ * {@link ReplayPlayer}.
+ *
+ * <p>A replay file is a fixed header followed by one record per tick:
+ * <pre>
+ * header: magic:int version:int tickCount:long
+ * tick:   timeNanos:long seed:long eventCount:int events
+ * event:  type:byte code:int x:int y:int
+ * </pre>
+ * {@code timeNanos} is the time since recording started, used to replay at real speed.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+final class ReplayFormat {
+
+    static final int MAGIC = 0x504A5250;
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES;
+    static final int TICK_COUNT_OFFSET = Integer.BYTES + Integer.BYTES;
+
+    static final int TICK_HEADER_SIZE = Long.BYTES + Long.BYTES + Integer.BYTES;
+    static final int EVENT_SIZE = Byte.BYTES + Integer.BYTES + Integer.BYTES + Integer.BYTES;
+
+    // Files are mapped in windows of this size, so remapping happens once per many thousand ticks
+    static final long REGION_SIZE = 16L * 1024 * 1024;
+
+    private ReplayFormat() { }
+}
@@ -0,0 +1,244 @@
+package dark.cat.replay;
+
+import dark.cat.context.Tickable;
+import dark.cat.input.InputEventSink;
+import dark.cat.utils.PajamaLogger;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+
+import static dark.cat.replay.ReplayFormat.*;
+
+/**
+ * Replays a file written by the {@link ReplayRecorder}, tick by tick.
+ * <li>The file is read through memory-mapped windows. Each tick exposes its RNG seed and feeds
+ * its recorded events to the {@link dark.cat.managers.InputManager} the player is attached to,
+ * so the game loop sees exactly the input it saw while recording. Ticks can be replayed at the
+ * recorded speed or as fast as possible, which turns a recording into a repeatable workload for
+ * profiling the whole engine.</li>
+ * <p>Usage Example:</p>
+ * <pre>
+ * {@code
+ * ReplayPlayer player = ReplayPlayer.open(Path.of("session.replay"));
+ * inputManager.setReplay(player);
+ * player.setRealSpeed(false).run(tick -> {
+ *     random.setSeed(player.getSeed());
+ *     update(inputManager.poll());
+ * });
+ * player.close();
+ * }
+ * </pre>
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class ReplayPlayer {
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long tickCount;
+
+    private MappedByteBuffer region;
+    private long regionStart;
+
+    private long tick = -1;
+    private long tickTimeNanos;
+    private long seed;
+    private int eventCount;
+    private long eventsOffset;
+    private boolean eventsConsumed;
+
+    private boolean realSpeed = true;
+    private long startNanos;
+
+    private ReplayPlayer(Path file, FileChannel channel) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.fileSize = channel.size();
+
+        mapRegion(0);
+        if (fileSize < HEADER_SIZE || region.getInt() != MAGIC) {
+            channel.close();
+            throw new IOException("Not a Pajama replay file: " + file);
+        }
+        int version = region.getInt();
+        if (version != VERSION) {
+            channel.close();
+            throw new IOException("Unsupported replay version " + version + " in " + file);
+        }
+        this.tickCount = region.getLong();
+    }
+
+    /**
+     * Opens a replay file for playback.
+     *
+     * @param file the path of the replay file
+     * @return the player, positioned before the first tick
+     * @throws IOException if the file cannot be read or is not a replay file
+     */
+    public static ReplayPlayer open(Path file) throws IOException {
+        ReplayPlayer player = new ReplayPlayer(file, FileChannel.open(file, StandardOpenOption.READ));
+        PajamaLogger.log("Replaying " + player.tickCount + " ticks from " + file);
+        return player;
+    }
+
+    /**
+     * Sets whether {@link #run(Tickable)} waits for the recorded tick times or runs unthrottled.
+     *
+     * @param realSpeed {@code true} to replay at the recorded speed
+     * @return the current instance of the ReplayPlayer
+     */
+    public ReplayPlayer setRealSpeed(boolean realSpeed) {
+        this.realSpeed = realSpeed;
+        return this;
+    }
+
+    /**
+     * Advances to the next tick. Events of the previous tick that nobody drained are skipped.
+     *
+     * @return {@code true} if a tick was read, {@code false} at the end of the replay
+     * @throws IOException if the file cannot be mapped
+     */
+    public boolean nextTick() throws IOException {
+        if (tick + 1 >= tickCount) {
+            return false;
+        }
+        if (tick >= 0) {
+            seek(eventsOffset + (long) eventCount * EVENT_SIZE);
+        }
+
+        ensureCapacity(TICK_HEADER_SIZE);
+        tickTimeNanos = region.getLong();
+        seed = region.getLong();
+        eventCount = region.getInt();
+        eventsOffset = regionStart + region.position();
+        eventsConsumed = false;
+        tick++;
+        return true;
+    }
+
+    /**
+     * Feeds the events of the current tick to the given sink. Events are only delivered once
+     * per tick.
+     *
+     * @param sink the sink receiving the events, usually an {@link dark.cat.input.InputState}
+     * @return the number of events delivered
+     * @throws IOException if the file cannot be mapped
+     */
+    public int drainTo(InputEventSink sink) throws IOException {
+        if (tick < 0 || eventsConsumed) {
+            return 0;
+        }
+        eventsConsumed = true;
+
+        seek(eventsOffset);
+        for (int i = 0; i < eventCount; i++) {
+            ensureCapacity(EVENT_SIZE);
+            sink.onEvent(region.get(), region.getInt(), region.getInt(), region.getInt());
+        }
+        return eventCount;
+    }
+
+    /**
+     * Drives a game loop through every remaining tick of the replay.
+     *
+     * @param gameLoop the loop to tick once per recorded tick
+     * @return the number of ticks replayed
+     * @throws IOException if the file cannot be read
+     */
+    public long run(Tickable gameLoop) throws IOException {
+        long replayed = 0;
+        startNanos = System.nanoTime();
+
+        while (nextTick()) {
+            if (realSpeed) {
+                awaitTickTime();
+            }
+            gameLoop.tick(tick);
+            replayed++;
+        }
+
+        long elapsed = Math.max(1, System.nanoTime() - startNanos);
+        PajamaLogger.log("Replayed " + replayed + " ticks in " + elapsed / 1_000_000 + " ms ("
+                + replayed * 1_000_000_000L / elapsed + " ticks per second).");
+        return replayed;
+    }
+
+    private void awaitTickTime() {
+        long deadline = startNanos + tickTimeNanos;
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private void seek(long offset) throws IOException {
+        if (offset < regionStart || offset > regionStart + region.limit()) {
+            mapRegion(offset);
+        } else {
+            region.position((int) (offset - regionStart));
+        }
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (region.remaining() < bytes) {
+            mapRegion(regionStart + region.position());
+        }
+    }
+
+    private void mapRegion(long offset) throws IOException {
+        regionStart = offset;
+        region = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(REGION_SIZE, fileSize - offset));
+    }
+
+    /**
+     * Closes the replay file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Returns the number of the current tick, starting at 0.
+     *
+     * @return the current tick, or {@code -1} before the first {@link #nextTick()}
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Returns the RNG seed recorded for the current tick.
+     *
+     * @return the tick seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the time at which the current tick was recorded, relative to the first tick.
+     *
+     * @return the recorded tick time in nanoseconds
+     */
+    public long getTickTimeNanos() {
+        return tickTimeNanos;
+    }
+
+    /**
+     * Returns the total number of ticks in the replay.
+     *
+     * @return the tick count
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+}
@@ -0,0 +1,182 @@
+package dark.cat.replay;
+
+import dark.cat.input.InputEventSink;
+import dark.cat.utils.PajamaLogger;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static dark.cat.replay.ReplayFormat.*;
+
+/**
+ * Records the input events and the RNG seed of every tick into a memory-mapped replay file.
+ * <li>Records are appended to a mapped window of the file, so recording a tick neither
+ * allocates nor makes a system call. A new window is mapped once the current one is full.
+ * Attach the recorder to the {@link dark.cat.managers.InputManager} to capture every event the
+ * game loop polls.</li>
+ * <li>The tick count in the header is updated as each tick finishes, so the file of a game that
+ * crashed or was killed still replays up to the tick in progress.</li>
+ * <p>Usage Example:</p>
+ * <pre>
+ * {@code
+ * ReplayRecorder recorder = ReplayRecorder.create(Path.of("session.replay"));
+ * inputManager.setRecorder(recorder);
+ * while (running) {
+ *     long seed = seeds.nextLong();
+ *     recorder.beginTick(seed);
+ *     random.setSeed(seed);
+ *     InputState input = inputManager.poll();
+ *     update(input);
+ * }
+ * recorder.close();
+ * }
+ * </pre>
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class ReplayRecorder implements InputEventSink {
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+
+    private MappedByteBuffer region;
+    private long regionStart;
+
+    private MappedByteBuffer countRegion;
+    private int countIndex = -1;
+    private int eventCount;
+
+    private long tickCount;
+    private long startNanos;
+    private boolean closed;
+
+    private ReplayRecorder(Path file, FileChannel channel) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.region = channel.map(FileChannel.MapMode.READ_WRITE, 0, REGION_SIZE);
+        this.header = region;
+
+        header.putInt(MAGIC).putInt(VERSION).putLong(0);
+    }
+
+    /**
+     * Creates a new replay file, replacing any existing file.
+     *
+     * @param file the path of the replay file
+     * @return the recorder
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public static ReplayRecorder create(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        PajamaLogger.log("Recording replay to " + file);
+        return new ReplayRecorder(file, channel);
+    }
+
+    /**
+     * Starts the record of the next tick. Events received until the next call belong to it.
+     *
+     * @param seed the RNG seed the game uses for this tick
+     * @throws IOException if the file cannot be grown
+     */
+    public void beginTick(long seed) throws IOException {
+        finishTick();
+        if (tickCount == 0) {
+            startNanos = System.nanoTime();
+        }
+
+        ensureCapacity(TICK_HEADER_SIZE);
+        region.putLong(System.nanoTime() - startNanos).putLong(seed);
+        countRegion = region;
+        countIndex = region.position();
+        region.putInt(0);
+        eventCount = 0;
+        tickCount++;
+    }
+
+    /**
+     * Appends an event to the current tick. Events arriving before the first
+     * {@link #beginTick(long)} are ignored.
+     *
+     * @param type the {@link dark.cat.input.InputEventType} ordinal
+     * @param code the key code, mouse button or wheel rotation
+     * @param x    the x coordinate of mouse events
+     * @param y    the y coordinate of mouse events
+     */
+    @Override
+    public void onEvent(int type, int code, int x, int y) {
+        if (countIndex < 0) {
+            return;
+        }
+        try {
+            ensureCapacity(EVENT_SIZE);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not grow replay file " + file, e);
+        }
+        region.put((byte) type).putInt(code).putInt(x).putInt(y);
+        eventCount++;
+    }
+
+    // Publishes the finished tick in the header right away, so a recording cut short by a crash
+    // still replays every tick before the one in progress
+    private void finishTick() {
+        if (countIndex >= 0) {
+            countRegion.putInt(countIndex, eventCount);
+            header.putLong(TICK_COUNT_OFFSET, tickCount);
+        }
+    }
+
+    /**
+     * Maps the next window of the file when the current one cannot hold the given bytes.
+     */
+    private void ensureCapacity(int bytes) throws IOException {
+        if (region.remaining() < bytes) {
+            regionStart += region.position();
+            region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, REGION_SIZE);
+        }
+    }
+
+    /**
+     * Finishes the last tick and trims the file to the recorded length. A recorder that is never
+     * closed leaves every tick but the last one readable, followed by zero padding.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        finishTick();
+        header.putLong(TICK_COUNT_OFFSET, tickCount);
+        long length = regionStart + region.position();
+        region.force();
+        header.force();
+
+        try {
+            channel.truncate(length);
+        } catch (IOException e) {
+            // Some platforms refuse to truncate mapped files, the tick count still bounds the data
+            PajamaLogger.error("Could not trim replay file: " + e.getMessage());
+        }
+        channel.close();
+
+        PajamaLogger.log("Recorded " + tickCount + " ticks (" + length + " bytes) to " + file);
+    }
+
+    /**
+     * Returns the number of ticks recorded so far.
+     *
+     * @return the tick count
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+}
@@ -0,0 +1,71 @@
+package dark.cat.scene;
+
+/**
+ * A camera looking at a {@link SceneGraph}: the world position shown at the center of a
+ * {@link Viewport}, and a zoom factor.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class Camera {
+
+    private double x;
+    private double y;
+    private double zoom = 1;
+
+    /**
+     * Sets the world position shown at the center of the viewport.
+     *
+     * @param x the world x
+     * @param y the world y
+     * @return the current instance of the Camera
+     */
+    public Camera setPosition(double x, double y) {
+        this.x = x;
+        this.y = y;
+        return this;
+    }
+
+    /**
+     * Sets the zoom factor; {@code 2} shows the world twice as large.
+     *
+     * @param zoom the zoom factor
+     * @return the current instance of the Camera
+     * @throws IllegalArgumentException if {@code zoom} is not positive
+     */
+    public Camera setZoom(double zoom) {
+        if (zoom <= 0) {
+            throw new IllegalArgumentException("Camera zoom must be positive: " + zoom);
+        }
+        this.zoom = zoom;
+        return this;
+    }
+
+    /**
+     * Returns the world x shown at the center of the viewport.
+     *
+     * @return the world x
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Returns the world y shown at the center of the viewport.
+     *
+     * @return the world y
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Returns the zoom factor.
+     *
+     * @return the zoom factor
+     */
+    public double getZoom() {
+        return zoom;
+    }
+}
@@ -0,0 +1,160 @@
+package dark.cat.scene;
+
+import dark.cat.managers.RenderManager;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.util.List;
+
+/**
+ * A lightweight scene graph rendered through {@link Camera cameras} and {@link Viewport
+ * viewports}.
+ *
+ * <p>{@link #update()} refreshes the cached world transforms and bounds of the
+ * {@link SceneNode}s, visiting only the paths that lead to changed nodes. {@link #render} then
+ * walks the tree and skips every subtree whose cached world bounds miss the viewport, so a large
+ * world costs little more than its visible part. Nodes whose own bounds miss the viewport are
+ * not drawn either, even when some of their children are.
+ * <p>Usage Example:</p>
+ * <pre>
+ * {@code
+ * SceneGraph scene = new SceneGraph();
+ * scene.getRoot().addChild(level);
+ *
+ * Camera camera = new Camera().setPosition(player.getX(), player.getY());
+ * Viewport viewport = new Viewport(camera, 0, 0, renderManager.getWidth(), renderManager.getHeight());
+ *
+ * Graphics2D graphics = renderManager.beginFrame();
+ * scene.render(graphics, viewport);
+ * renderManager.endFrame();
+ * }
+ * </pre>
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class SceneGraph {
+
+    private final SceneNode root = new SceneNode();
+
+    private final AffineTransform viewTransform = new AffineTransform();
+    private final AffineTransform nodeTransform = new AffineTransform();
+
+    long transformsUpdated;
+    private int nodesVisited;
+    private int nodesDrawn;
+    private int subtreesCulled;
+
+    /**
+     * Recomputes the world transforms and bounds of changed nodes and their descendants.
+     * {@link #render} calls it, so calling it directly is only needed to read transforms or
+     * bounds before rendering.
+     */
+    public void update() {
+        root.update(false, this);
+    }
+
+    /**
+     * Renders the scene into a viewport. The graphics are clipped to the viewport and restored
+     * afterwards, so several viewports can be rendered into the same frame.
+     *
+     * @param graphics the graphics to draw with, e.g. from {@link RenderManager#beginFrame()}
+     * @param viewport the viewport to render into
+     */
+    public void render(Graphics2D graphics, Viewport viewport) {
+        update();
+        nodesVisited = 0;
+        nodesDrawn = 0;
+        subtreesCulled = 0;
+
+        AffineTransform savedTransform = graphics.getTransform();
+        Shape savedClip = graphics.getClip();
+
+        Camera camera = viewport.getCamera();
+        viewTransform.setTransform(savedTransform);
+        viewTransform.translate(viewport.getX() + viewport.getWidth() / 2.0, viewport.getY() + viewport.getHeight() / 2.0);
+        viewTransform.scale(camera.getZoom(), camera.getZoom());
+        viewTransform.translate(-camera.getX(), -camera.getY());
+        graphics.clipRect(viewport.getX(), viewport.getY(), viewport.getWidth(), viewport.getHeight());
+
+        renderNode(graphics, root,
+                viewport.getWorldMinX(), viewport.getWorldMinY(),
+                viewport.getWorldMaxX(), viewport.getWorldMaxY());
+
+        graphics.setTransform(savedTransform);
+        graphics.setClip(savedClip);
+    }
+
+    private void renderNode(Graphics2D graphics, SceneNode node,
+                            double viewMinX, double viewMinY, double viewMaxX, double viewMaxY) {
+        nodesVisited++;
+        if (!node.isVisible() || node.subtreeEmpty
+                || node.subtreeMaxX < viewMinX || node.subtreeMinX > viewMaxX
+                || node.subtreeMaxY < viewMinY || node.subtreeMinY > viewMaxY) {
+            subtreesCulled++;
+            return;
+        }
+
+        if (node.hasLocalBounds()
+                && node.maxX >= viewMinX && node.minX <= viewMaxX
+                && node.maxY >= viewMinY && node.minY <= viewMaxY) {
+            nodeTransform.setTransform(viewTransform);
+            nodeTransform.concatenate(node.getWorldTransform());
+            graphics.setTransform(nodeTransform);
+            node.draw(graphics);
+            nodesDrawn++;
+        }
+
+        List<SceneNode> children = node.children();
+        for (int i = 0, size = children.size(); i < size; i++) {
+            renderNode(graphics, children.get(i), viewMinX, viewMinY, viewMaxX, viewMaxY);
+        }
+    }
+
+    /**
+     * Returns the root node. Its transform is the world origin; add the scene below it.
+     *
+     * @return the root node
+     */
+    public SceneNode getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the number of world transforms recomputed since the scene graph was created.
+     *
+     * @return the recomputed transform count
+     */
+    public long getTransformsUpdated() {
+        return transformsUpdated;
+    }
+
+    /**
+     * Returns the number of nodes the last {@link #render} looked at.
+     *
+     * @return the visited node count
+     */
+    public int getNodesVisited() {
+        return nodesVisited;
+    }
+
+    /**
+     * Returns the number of nodes the last {@link #render} drew.
+     *
+     * @return the drawn node count
+     */
+    public int getNodesDrawn() {
+        return nodesDrawn;
+    }
+
+    /**
+     * Returns the number of subtrees the last {@link #render} skipped entirely, either hidden
+     * or outside the viewport.
+     *
+     * @return the culled subtree count
+     */
+    public int getSubtreesCulled() {
+        return subtreesCulled;
+    }
+}
@@ -0,0 +1,404 @@
+package dark.cat.scene;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A node of a {@link SceneGraph}: a local transform relative to its parent, optional local
+ * bounds of what it draws, and children.
+ *
+ * <p>The world transform of a node and the world-space bounds of its whole subtree are cached.
+ * Changing a node marks it dirty and flags its ancestors, so {@link SceneGraph#update()} only
+ * walks the paths leading to changes and recomputes transforms below the changed nodes only.
+ * The cached subtree bounds let the renderer skip invisible subtrees with a single test.
+ *
+ * <p>Subclasses draw by overriding {@link #draw(Graphics2D)}; plain nodes group their children.
+ * <p>Usage Example:</p>
+ * <pre>
+ * {@code
+ * SceneNode ship = new SceneNode() {
+ *     @Override
+ *     protected void draw(Graphics2D graphics) {
+ *         graphics.drawImage(shipImage, -16, -16, null);
+ *     }
+ * }.setLocalBounds(-16, -16, 32, 32);
+ *
+ * sceneGraph.getRoot().addChild(ship);
+ * ship.setPosition(400, 300).setRotation(Math.PI / 4);
+ * }
+ * </pre>
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class SceneNode {
+
+    private SceneNode parent;
+    private final List<SceneNode> children = new ArrayList<>();
+
+    private double x;
+    private double y;
+    private double rotation;
+    private double scaleX = 1;
+    private double scaleY = 1;
+
+    private boolean hasBounds;
+    private double boundsX;
+    private double boundsY;
+    private double boundsWidth;
+    private double boundsHeight;
+
+    private boolean visible = true;
+
+    private final AffineTransform worldTransform = new AffineTransform();
+
+    // World-space bounding box of this node's own bounds
+    double minX;
+    double minY;
+    double maxX;
+    double maxY;
+
+    // World-space bounding box of this node and all of its descendants
+    boolean subtreeEmpty = true;
+    double subtreeMinX;
+    double subtreeMinY;
+    double subtreeMaxX;
+    double subtreeMaxY;
+
+    private boolean transformDirty = true;
+    private boolean boundsDirty = true;
+    private boolean childDirty;
+
+    /**
+     * Draws this node. The graphics are transformed into the node's local space and clipped to
+     * the viewport. Does nothing by default.
+     *
+     * @param graphics the graphics to draw with
+     */
+    protected void draw(Graphics2D graphics) {
+    }
+
+    /**
+     * Adds a child, detaching it from its previous parent.
+     *
+     * @param child the node to add
+     * @return the current instance of the SceneNode
+     * @throws IllegalArgumentException if the child is this node or one of its ancestors
+     */
+    public SceneNode addChild(SceneNode child) {
+        for (SceneNode ancestor = this; ancestor != null; ancestor = ancestor.parent) {
+            if (ancestor == child) {
+                throw new IllegalArgumentException("A scene node cannot be added below itself.");
+            }
+        }
+        if (child.parent != null) {
+            child.parent.removeChild(child);
+        }
+        child.parent = this;
+        children.add(child);
+        child.markTransformDirty();
+        return this;
+    }
+
+    /**
+     * Removes a child.
+     *
+     * @param child the node to remove
+     * @return the current instance of the SceneNode
+     */
+    public SceneNode removeChild(SceneNode child) {
+        if (child.parent == this && children.remove(child)) {
+            child.parent = null;
+            markBoundsDirty();
+        }
+        return this;
+    }
+
+    /**
+     * Sets the position relative to the parent.
+     *
+     * @param x the x position
+     * @param y the y position
+     * @return the current instance of the SceneNode
+     */
+    public SceneNode setPosition(double x, double y) {
+        if (this.x != x || this.y != y) {
+            this.x = x;
+            this.y = y;
+            markTransformDirty();
+        }
+        return this;
+    }
+
+    /**
+     * Sets the rotation relative to the parent.
+     *
+     * @param rotation the rotation in radians
+     * @return the current instance of the SceneNode
+     */
+    public SceneNode setRotation(double rotation) {
+        if (this.rotation != rotation) {
+            this.rotation = rotation;
+            markTransformDirty();
+        }
+        return this;
+    }
+
+    /**
+     * Sets the scale relative to the parent.
+     *
+     * @param scaleX the horizontal scale
+     * @param scaleY the vertical scale
+     * @return the current instance of the SceneNode
+     */
+    public SceneNode setScale(double scaleX, double scaleY) {
+        if (this.scaleX != scaleX || this.scaleY != scaleY) {
+            this.scaleX = scaleX;
+            this.scaleY = scaleY;
+            markTransformDirty();
+        }
+        return this;
+    }
+
+    /**
+     * Sets the rectangle, in local space, that {@link #draw(Graphics2D)} stays within. Nodes
+     * without bounds draw nothing and are only culled through their children.
+     *
+     * @param x the left edge
+     * @param y the top edge
+     * @param width the width
+     * @param height the height
+     * @return the current instance of the SceneNode
+     */
+    public SceneNode setLocalBounds(double x, double y, double width, double height) {
+        this.hasBounds = true;
+        this.boundsX = x;
+        this.boundsY = y;
+        this.boundsWidth = width;
+        this.boundsHeight = height;
+        markBoundsDirty();
+        return this;
+    }
+
+    /**
+     * Removes the local bounds, making this node a pure group.
+     *
+     * @return the current instance of the SceneNode
+     */
+    public SceneNode clearLocalBounds() {
+        this.hasBounds = false;
+        markBoundsDirty();
+        return this;
+    }
+
+    /**
+     * Shows or hides this node together with its subtree.
+     *
+     * @param visible {@code false} to skip the subtree when rendering
+     * @return the current instance of the SceneNode
+     */
+    public SceneNode setVisible(boolean visible) {
+        this.visible = visible;
+        return this;
+    }
+
+    private void markTransformDirty() {
+        transformDirty = true;
+        markAncestorsChildDirty();
+    }
+
+    private void markBoundsDirty() {
+        boundsDirty = true;
+        markAncestorsChildDirty();
+    }
+
+    // Ancestors of a flagged node are always flagged too, so the walk stops at the first one
+    private void markAncestorsChildDirty() {
+        for (SceneNode ancestor = parent; ancestor != null && !ancestor.childDirty; ancestor = ancestor.parent) {
+            ancestor.childDirty = true;
+        }
+    }
+
+    /**
+     * Recomputes the cached world transform and bounds along dirty paths.
+     *
+     * @param parentChanged whether the world transform of the parent changed
+     * @param stats the statistics to count recomputed nodes in
+     */
+    void update(boolean parentChanged, SceneGraph stats) {
+        boolean worldChanged = parentChanged || transformDirty;
+        if (!worldChanged && !boundsDirty && !childDirty) {
+            return;
+        }
+
+        if (worldChanged) {
+            if (parent == null) {
+                worldTransform.setToIdentity();
+            } else {
+                worldTransform.setTransform(parent.worldTransform);
+            }
+            worldTransform.translate(x, y);
+            worldTransform.rotate(rotation);
+            worldTransform.scale(scaleX, scaleY);
+            stats.transformsUpdated++;
+        }
+        if (worldChanged || boundsDirty) {
+            updateOwnBounds();
+        }
+
+        subtreeEmpty = !hasBounds;
+        subtreeMinX = minX;
+        subtreeMinY = minY;
+        subtreeMaxX = maxX;
+        subtreeMaxY = maxY;
+        for (SceneNode child : children) {
+            child.update(worldChanged, stats);
+            if (child.subtreeEmpty) {
+                continue;
+            }
+            if (subtreeEmpty) {
+                subtreeEmpty = false;
+                subtreeMinX = child.subtreeMinX;
+                subtreeMinY = child.subtreeMinY;
+                subtreeMaxX = child.subtreeMaxX;
+                subtreeMaxY = child.subtreeMaxY;
+            } else {
+                subtreeMinX = Math.min(subtreeMinX, child.subtreeMinX);
+                subtreeMinY = Math.min(subtreeMinY, child.subtreeMinY);
+                subtreeMaxX = Math.max(subtreeMaxX, child.subtreeMaxX);
+                subtreeMaxY = Math.max(subtreeMaxY, child.subtreeMaxY);
+            }
+        }
+
+        transformDirty = false;
+        boundsDirty = false;
+        childDirty = false;
+    }
+
+    // Transforms the four corners of the local bounds and keeps their bounding box
+    private void updateOwnBounds() {
+        if (!hasBounds) {
+            return;
+        }
+        double m00 = worldTransform.getScaleX();
+        double m01 = worldTransform.getShearX();
+        double m02 = worldTransform.getTranslateX();
+        double m10 = worldTransform.getShearY();
+        double m11 = worldTransform.getScaleY();
+        double m12 = worldTransform.getTranslateY();
+
+        double x0 = boundsX;
+        double y0 = boundsY;
+        double x1 = boundsX + boundsWidth;
+        double y1 = boundsY + boundsHeight;
+
+        double ax = m00 * x0 + m01 * y0 + m02, ay = m10 * x0 + m11 * y0 + m12;
+        double bx = m00 * x1 + m01 * y0 + m02, by = m10 * x1 + m11 * y0 + m12;
+        double cx = m00 * x1 + m01 * y1 + m02, cy = m10 * x1 + m11 * y1 + m12;
+        double dx = m00 * x0 + m01 * y1 + m02, dy = m10 * x0 + m11 * y1 + m12;
+
+        minX = Math.min(Math.min(ax, bx), Math.min(cx, dx));
+        minY = Math.min(Math.min(ay, by), Math.min(cy, dy));
+        maxX = Math.max(Math.max(ax, bx), Math.max(cx, dx));
+        maxY = Math.max(Math.max(ay, by), Math.max(cy, dy));
+    }
+
+    /**
+     * Returns whether this node has local bounds, i.e. draws something itself.
+     *
+     * @return {@code true} if local bounds are set
+     */
+    public boolean hasLocalBounds() {
+        return hasBounds;
+    }
+
+    /**
+     * Returns the cached transform from this node's local space to world space. Valid after
+     * {@link SceneGraph#update()}; do not modify it.
+     *
+     * @return the world transform
+     */
+    public AffineTransform getWorldTransform() {
+        return worldTransform;
+    }
+
+    /**
+     * Returns the parent node.
+     *
+     * @return the parent, or {@code null} for the root or a detached node
+     */
+    public SceneNode getParent() {
+        return parent;
+    }
+
+    /**
+     * Returns the children, in draw order.
+     *
+     * @return an unmodifiable view of the children
+     */
+    public List<SceneNode> getChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
+    List<SceneNode> children() {
+        return children;
+    }
+
+    /**
+     * Returns whether this node and its subtree are drawn.
+     *
+     * @return {@code true} if visible
+     */
+    public boolean isVisible() {
+        return visible;
+    }
+
+    /**
+     * Returns the x position relative to the parent.
+     *
+     * @return the x position
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Returns the y position relative to the parent.
+     *
+     * @return the y position
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Returns the rotation relative to the parent.
+     *
+     * @return the rotation in radians
+     */
+    public double getRotation() {
+        return rotation;
+    }
+
+    /**
+     * Returns the horizontal scale relative to the parent.
+     *
+     * @return the horizontal scale
+     */
+    public double getScaleX() {
+        return scaleX;
+    }
+
+    /**
+     * Returns the vertical scale relative to the parent.
+     *
+     * @return the vertical scale
+     */
+    public double getScaleY() {
+        return scaleY;
+    }
+}
@@ -0,0 +1,141 @@
+package dark.cat.scene;
+
+/**
+ * A rectangle of the screen showing a {@link SceneGraph} through a {@link Camera}. Several
+ * viewports can show the same scene, e.g. for split-screen or a minimap.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class Viewport {
+
+    private final Camera camera;
+    private int x;
+    private int y;
+    private int width;
+    private int height;
+
+    /**
+     * Creates a viewport.
+     *
+     * @param camera the camera to look through
+     * @param x the left edge on screen
+     * @param y the top edge on screen
+     * @param width the width in pixels
+     * @param height the height in pixels
+     */
+    public Viewport(Camera camera, int x, int y, int width, int height) {
+        checkSize(width, height);
+        this.camera = camera;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Moves or resizes the viewport on screen.
+     *
+     * @param x the left edge on screen
+     * @param y the top edge on screen
+     * @param width the width in pixels
+     * @param height the height in pixels
+     * @return the current instance of the Viewport
+     */
+    public Viewport setBounds(int x, int y, int width, int height) {
+        checkSize(width, height);
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        return this;
+    }
+
+    private static void checkSize(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Viewport size must be positive: " + width + "x" + height);
+        }
+    }
+
+    /**
+     * Returns the smallest world x visible through the viewport.
+     *
+     * @return the world x of the left edge
+     */
+    public double getWorldMinX() {
+        return camera.getX() - width / (2 * camera.getZoom());
+    }
+
+    /**
+     * Returns the smallest world y visible through the viewport.
+     *
+     * @return the world y of the top edge
+     */
+    public double getWorldMinY() {
+        return camera.getY() - height / (2 * camera.getZoom());
+    }
+
+    /**
+     * Returns the largest world x visible through the viewport.
+     *
+     * @return the world x of the right edge
+     */
+    public double getWorldMaxX() {
+        return camera.getX() + width / (2 * camera.getZoom());
+    }
+
+    /**
+     * Returns the largest world y visible through the viewport.
+     *
+     * @return the world y of the bottom edge
+     */
+    public double getWorldMaxY() {
+        return camera.getY() + height / (2 * camera.getZoom());
+    }
+
+    /**
+     * Returns the camera the viewport looks through.
+     *
+     * @return the camera
+     */
+    public Camera getCamera() {
+        return camera;
+    }
+
+    /**
+     * Returns the left edge on screen.
+     *
+     * @return the x in pixels
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Returns the top edge on screen.
+     *
+     * @return the y in pixels
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Returns the width on screen.
+     *
+     * @return the width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height on screen.
+     *
+     * @return the height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,116 @@
+package dark.cat.simulation;
+
+/**
+ * The outcome of a {@link SimulationRunner} run: how much game time was simulated and how long
+ * it took.
+ *
+ * <p>Tick figures are exact for {@link dark.cat.context.Tickable} game loops, which the runner
+ * ticks itself. A {@link Runnable} game loop runs its own ticks out of sight of the runner, so its
+ * ticks are estimated from the simulated time and the configured tick rate, and only match what
+ * the loop did if it ticks at that rate. Implement {@code Tickable} for exact figures.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class SimulationReport {
+
+    private final int matches;
+    private final long ticks;
+    private final long simulatedNanos;
+    private final long wallNanos;
+    private final long startupNanos;
+    private final long slowestMatchNanos;
+
+    SimulationReport(int matches, long ticks, long simulatedNanos, long wallNanos,
+                     long startupNanos, long slowestMatchNanos) {
+        this.matches = matches;
+        this.ticks = ticks;
+        this.simulatedNanos = simulatedNanos;
+        this.wallNanos = wallNanos;
+        this.startupNanos = startupNanos;
+        this.slowestMatchNanos = slowestMatchNanos;
+    }
+
+    /**
+     * Returns the number of matches played.
+     *
+     * @return the match count
+     */
+    public int getMatches() {
+        return matches;
+    }
+
+    /**
+     * Returns the number of ticks simulated over all matches. Estimated for {@link Runnable}
+     * game loops, see the class documentation.
+     *
+     * @return the tick count
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Returns the game time simulated over all matches.
+     *
+     * @return the simulated time in nanoseconds
+     */
+    public long getSimulatedNanos() {
+        return simulatedNanos;
+    }
+
+    /**
+     * Returns the real time the run took, startup included.
+     *
+     * @return the wall time in nanoseconds
+     */
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * Returns the real time spent scanning the class path and creating the first context.
+     *
+     * @return the startup time in nanoseconds
+     */
+    public long getStartupNanos() {
+        return startupNanos;
+    }
+
+    /**
+     * Returns the real time the slowest match took.
+     *
+     * @return the time of the slowest match in nanoseconds
+     */
+    public long getSlowestMatchNanos() {
+        return slowestMatchNanos;
+    }
+
+    /**
+     * Returns the simulated ticks per second of real time. Derived from {@link #getTicks()}, so
+     * it is estimated for {@link Runnable} game loops as well.
+     *
+     * @return the tick throughput
+     */
+    public double getTicksPerSecond() {
+        return wallNanos == 0 ? 0 : ticks * 1e9 / wallNanos;
+    }
+
+    /**
+     * Returns how many times faster than real time the matches ran.
+     *
+     * @return the simulated time divided by the wall time
+     */
+    public double getSpeedup() {
+        return wallNanos == 0 ? 0 : (double) simulatedNanos / wallNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d matches, %d ticks in %.1f ms (startup %.1f ms, slowest match %.1f ms), "
+                        + "%.0f ticks/s, %.0fx real time",
+                matches, ticks, wallNanos / 1e6, startupNanos / 1e6, slowestMatchNanos / 1e6,
+                getTicksPerSecond(), getSpeedup());
+    }
+}
@@ -0,0 +1,225 @@
+package dark.cat.simulation;
+
+import dark.cat.annotations.GameLoop;
+import dark.cat.clock.EngineClock;
+import dark.cat.clock.VirtualClock;
+import dark.cat.context.EngineContext;
+import dark.cat.context.Tickable;
+import dark.cat.utils.PajamaLogger;
+import dark.cat.utils.ThreadManagerPool;
+
+import java.util.function.ObjIntConsumer;
+
+import static dark.cat.utils.PajamaResponses.GAME_LOOP_HAS_NOT_IMPLEMENTED_RUNNABLE;
+import static dark.cat.utils.PajamaResponses.NO_GAME_LOOP_FOUND;
+
+/**
+ * The {@code SimulationRunner} class plays many matches of a game back-to-back on
+ * {@link VirtualClock}s, as fast as the CPU allows, for CI runs and balance testing.
+ *
+ * <p>Every match gets a fresh {@link EngineContext} with fresh components and its own virtual
+ * clock, injected into fields of type {@link EngineClock}. The class path is scanned once for the
+ * first match and later contexts are created from it, and one {@link ThreadManagerPool} serves
+ * all of them, so starting a match costs little more than constructing its components.
+ *
+ * <p>A {@link GameLoop} implementing {@link Tickable} is ticked for the configured number of
+ * ticks, with the clock advanced by one tick period after each tick, so fixed-rate tasks and
+ * timers fire exactly as they would in real time. Any other game loop must implement
+ * {@link Runnable}; its {@code run} method is called once and should end the match itself,
+ * sleeping through the injected clock, which skips the idle time. Its ticks are counted from
+ * the simulated time it ran for. A loop that times itself with {@link System#nanoTime()} or
+ * {@link Thread#sleep(long)} instead of the injected clock is not supported: it runs in real
+ * time and the run fails once such a match ends without any simulated time passing.
+ *
+ * <p>Usage:
+ * <pre>
+ *     {@code
+ * SimulationReport report = new SimulationRunner(Match.class)
+ *         .setMatches(1_000)
+ *         .setTicksPerMatch(36_000)
+ *         .setMatchSetup((context, match) -> context.getComponent(Match.class).setSeed(match))
+ *         .run();
+ *     }
+ * </pre>
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class SimulationRunner {
+
+    private final Class<?> mainClass;
+    private final String basePackage;
+
+    private int matches = 1;
+    private long ticksPerMatch = 3_600;
+    private int ticksPerSecond = 60;
+    private int poolSize = 1;
+    private ObjIntConsumer<EngineContext> matchSetup;
+
+    /**
+     * Creates a runner for the game whose components live in the package of its game loop.
+     *
+     * @param mainClass the {@link GameLoop} class
+     */
+    public SimulationRunner(Class<?> mainClass) {
+        this(mainClass, ".");
+    }
+
+    /**
+     * Creates a runner for the game whose components live in the given package.
+     *
+     * @param mainClass the {@link GameLoop} class
+     * @param basePackage the base package to scan for components
+     */
+    public SimulationRunner(Class<?> mainClass, String basePackage) {
+        this.mainClass = mainClass;
+        this.basePackage = basePackage;
+    }
+
+    /**
+     * Sets the number of matches to play.
+     *
+     * @param matches the match count
+     * @return the current instance of the SimulationRunner
+     */
+    public SimulationRunner setMatches(int matches) {
+        if (matches <= 0) {
+            throw new IllegalArgumentException("Match count must be positive: " + matches);
+        }
+        this.matches = matches;
+        return this;
+    }
+
+    /**
+     * Sets the number of ticks a {@link Tickable} game loop is ticked per match.
+     *
+     * @param ticksPerMatch the tick count
+     * @return the current instance of the SimulationRunner
+     */
+    public SimulationRunner setTicksPerMatch(long ticksPerMatch) {
+        if (ticksPerMatch <= 0) {
+            throw new IllegalArgumentException("Ticks per match must be positive: " + ticksPerMatch);
+        }
+        this.ticksPerMatch = ticksPerMatch;
+        return this;
+    }
+
+    /**
+     * Sets the tick rate the simulated time is measured in. It only decides how much virtual
+     * time passes per tick; the matches run as fast as they can.
+     *
+     * @param ticksPerSecond the simulated tick rate
+     * @return the current instance of the SimulationRunner
+     */
+    public SimulationRunner setTickRate(int ticksPerSecond) {
+        if (ticksPerSecond <= 0) {
+            throw new IllegalArgumentException("Tick rate must be positive: " + ticksPerSecond);
+        }
+        this.ticksPerSecond = ticksPerSecond;
+        return this;
+    }
+
+    /**
+     * Sets the number of asynchronous task threads of the pool shared by all matches.
+     *
+     * @param poolSize the thread count
+     * @return the current instance of the SimulationRunner
+     * @throws IllegalArgumentException if {@code poolSize} is not positive
+     */
+    public SimulationRunner setPoolSize(int poolSize) {
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive: " + poolSize);
+        }
+        this.poolSize = poolSize;
+        return this;
+    }
+
+    /**
+     * Sets a callback run on the context of every match before it starts, e.g. to seed it.
+     *
+     * @param matchSetup the callback, given the context and the match number starting at 0
+     * @return the current instance of the SimulationRunner
+     */
+    public SimulationRunner setMatchSetup(ObjIntConsumer<EngineContext> matchSetup) {
+        this.matchSetup = matchSetup;
+        return this;
+    }
+
+    /**
+     * Plays all matches on the calling thread and reports how fast they ran.
+     *
+     * @return the report of the run
+     * @throws Exception if a context cannot be initialized
+     * @throws RuntimeException if there is no {@link GameLoop} or it is neither {@link Tickable}
+     *                          nor {@link Runnable}
+     * @throws IllegalStateException if a {@link Runnable} game loop ends a match without advancing
+     *                               the injected clock
+     */
+    public SimulationReport run() throws Exception {
+        ThreadManagerPool pool = new ThreadManagerPool(poolSize, "simulation");
+        long startNanos = System.nanoTime();
+        long ticks = 0;
+        long simulatedNanos = 0;
+        long slowestMatchNanos = 0;
+
+        try {
+            VirtualClock firstClock = new VirtualClock();
+            EngineContext template = new EngineContext(basePackage, mainClass, pool, firstClock);
+            long startupNanos = System.nanoTime() - startNanos;
+            checkGameLoop(template);
+
+            for (int match = 0; match < matches; match++) {
+                long matchStartNanos = System.nanoTime();
+                VirtualClock clock = match == 0 ? firstClock : new VirtualClock();
+                EngineContext context = match == 0 ? template : new EngineContext(template, pool, clock);
+                try {
+                    if (matchSetup != null) {
+                        matchSetup.accept(context, match);
+                    }
+                    ticks += play(context.getComponent(mainClass), clock);
+                    simulatedNanos += clock.nanoTime();
+                } finally {
+                    context.shutdown(false);
+                }
+                slowestMatchNanos = Math.max(slowestMatchNanos, System.nanoTime() - matchStartNanos);
+            }
+
+            SimulationReport report = new SimulationReport(matches, ticks, simulatedNanos,
+                    System.nanoTime() - startNanos, startupNanos, slowestMatchNanos);
+            PajamaLogger.log("Simulation finished: " + report);
+            return report;
+        } finally {
+            pool.close();
+        }
+    }
+
+    private void checkGameLoop(EngineContext context) {
+        Object gameLoop = context.getComponent(mainClass);
+        if (gameLoop == null || !mainClass.isAnnotationPresent(GameLoop.class)) {
+            throw new RuntimeException(NO_GAME_LOOP_FOUND.getMessage());
+        }
+        if (!(gameLoop instanceof Tickable) && !(gameLoop instanceof Runnable)) {
+            throw new RuntimeException(GAME_LOOP_HAS_NOT_IMPLEMENTED_RUNNABLE.getMessage());
+        }
+    }
+
+    private long play(Object gameLoop, VirtualClock clock) {
+        if (gameLoop instanceof Tickable tickable) {
+            for (long tick = 0; tick < ticksPerMatch; tick++) {
+                tickable.tick(tick);
+                // Computed from the tick rate so rates like 60 Hz do not drift
+                clock.advanceTo((tick + 1) * 1_000_000_000L / ticksPerSecond);
+            }
+            return ticksPerMatch;
+        }
+        ((Runnable) gameLoop).run();
+        if (clock.nanoTime() == 0) {
+            throw new IllegalStateException("Runnable game loop " + mainClass.getName()
+                    + " ended a match without advancing the virtual clock. Sleep and read time through"
+                    + " the injected EngineClock, or implement Tickable.");
+        }
+        // The loop ticks on its own, so its ticks can only be estimated from the tick rate
+        return clock.nanoTime() * ticksPerSecond / 1_000_000_000L;
+    }
+}
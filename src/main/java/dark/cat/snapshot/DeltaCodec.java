@@ -0,0 +1,150 @@
+package dark.cat.snapshot;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code DeltaCodec} class encodes a snapshot as the XOR difference against a base snapshot
+ * of the same length, run-length compressing the unchanged regions.
+ *
+ * <p>The encoded form is a sequence of {@code [zero run][literal run][literal bytes]} records,
+ * where both run lengths are unsigned varints and the literal bytes are {@code current ^ base}.
+ * Game state usually changes in a few places per tick, so most of the snapshot collapses into
+ * a handful of zero runs.
+ *
+ * <p>All methods work on absolute buffer indexes and never allocate.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public final class DeltaCodec {
+
+    // Unchanged bytes shorter than this stay inside a literal run, a record header costs more
+    private static final int MIN_ZERO_RUN = 3;
+
+    private DeltaCodec() { }
+
+    /**
+     * Returns an upper bound for the encoded size of a snapshot of the given length.
+     *
+     * @param length the snapshot length in bytes
+     * @return the maximum number of bytes {@link #encode} may write
+     */
+    public static int maxEncodedLength(int length) {
+        return length + (length / MIN_ZERO_RUN + 1) * 10;
+    }
+
+    /**
+     * Encodes the difference between {@code current} and {@code base} into {@code out}.
+     *
+     * @param base    the base snapshot, read from index 0
+     * @param current the current snapshot, read from index 0
+     * @param length  the snapshot length in bytes
+     * @param out     the destination, written from its position which is advanced
+     * @return the number of bytes written
+     */
+    public static int encode(ByteBuffer base, ByteBuffer current, int length, ByteBuffer out) {
+        int start = out.position();
+        int i = 0;
+
+        while (i < length) {
+            int zeroStart = i;
+            while (i < length && current.get(i) == base.get(i)) {
+                i++;
+            }
+            if (i == length) {
+                if (i > zeroStart) {
+                    putVarInt(out, i - zeroStart);
+                    putVarInt(out, 0);
+                }
+                break;
+            }
+
+            int literalStart = i;
+            int literalEnd = i;
+            while (i < length) {
+                if (current.get(i) != base.get(i)) {
+                    i++;
+                    literalEnd = i;
+                } else {
+                    int run = 0;
+                    while (i + run < length && run < MIN_ZERO_RUN && current.get(i + run) == base.get(i + run)) {
+                        run++;
+                    }
+                    if (run >= MIN_ZERO_RUN || i + run == length) {
+                        break;
+                    }
+                    i += run;
+                }
+            }
+            i = literalEnd;
+
+            putVarInt(out, literalStart - zeroStart);
+            putVarInt(out, literalEnd - literalStart);
+            for (int j = literalStart; j < literalEnd; j++) {
+                out.put((byte) (current.get(j) ^ base.get(j)));
+            }
+        }
+
+        return out.position() - start;
+    }
+
+    /**
+     * Decodes a delta produced by {@link #encode} on top of {@code base} into {@code target}.
+     * {@code target} may be the same buffer as {@code base}.
+     *
+     * @param base   the base snapshot, read from index 0
+     * @param delta  the encoded delta, read from its position which is advanced
+     * @param length the snapshot length in bytes
+     * @param target the destination snapshot, written from index 0
+     * @throws IllegalArgumentException if the delta does not describe exactly {@code length} bytes
+     */
+    public static void decode(ByteBuffer base, ByteBuffer delta, int length, ByteBuffer target) {
+        int i = 0;
+
+        while (i < length && delta.hasRemaining()) {
+            int zeroRun = getVarInt(delta);
+            int literalRun = getVarInt(delta);
+            if (i + zeroRun + literalRun > length) {
+                throw new IllegalArgumentException("Delta exceeds snapshot length: " + length);
+            }
+
+            if (target != base) {
+                for (int end = i + zeroRun; i < end; i++) {
+                    target.put(i, base.get(i));
+                }
+            } else {
+                i += zeroRun;
+            }
+            for (int end = i + literalRun; i < end; i++) {
+                target.put(i, (byte) (base.get(i) ^ delta.get()));
+            }
+        }
+
+        if (target != base) {
+            for (; i < length; i++) {
+                target.put(i, base.get(i));
+            }
+        }
+    }
+
+    private static void putVarInt(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static int getVarInt(ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,303 @@
+package dark.cat.snapshot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@code FieldAccessor} reads and writes a single {@link dark.cat.annotations.Snapshot} field
+ * to and from a {@link ByteBuffer} without boxing. Accessors are generated once per field by
+ * {@link SnapshotSchema}.
+ *
+ * <p>Each accessor is a hidden copy of one of the template classes below, defined with the
+ * field's {@link VarHandle} as its class data. The template keeps the handle in a
+ * {@code static final} field, which the JIT treats as a constant, so a capture compiles down to
+ * plain field loads and stores.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+abstract class FieldAccessor {
+
+    // Bytecode of the templates, read once per template from the class path
+    private static final ClassValue<byte[]> TEMPLATE_BYTES = new ClassValue<>() {
+        @Override
+        protected byte[] computeValue(Class<?> template) {
+            String resource = template.getName().substring(template.getName().lastIndexOf('.') + 1) + ".class";
+            try (InputStream in = template.getResourceAsStream(resource)) {
+                if (in == null) {
+                    throw new IllegalStateException("Cannot find the bytecode of " + template.getName());
+                }
+                return in.readAllBytes();
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot read the bytecode of " + template.getName(), e);
+            }
+        }
+    };
+
+    /**
+     * Returns the number of bytes this field occupies for the given instance.
+     *
+     * @param target the owning component
+     * @return the encoded size in bytes
+     */
+    abstract int size(Object target);
+
+    /**
+     * Writes the field value of the target into the buffer at its current position.
+     *
+     * @param target the owning component
+     * @param buffer the destination buffer
+     */
+    abstract void write(Object target, ByteBuffer buffer);
+
+    /**
+     * Reads the field value from the buffer and stores it into the target in place.
+     *
+     * @param target the owning component
+     * @param buffer the source buffer
+     */
+    abstract void read(Object target, ByteBuffer buffer);
+
+    /**
+     * Creates the accessor matching the type of the field behind the handle.
+     *
+     * @param type   the declared field type
+     * @param handle the handle for the field
+     * @return the accessor
+     * @throws IllegalArgumentException if the field type is not supported
+     */
+    static FieldAccessor forType(Class<?> type, VarHandle handle) {
+        return define(templateFor(type), handle);
+    }
+
+    private static Class<? extends FieldAccessor> templateFor(Class<?> type) {
+        if (type == int.class) return IntAccessor.class;
+        if (type == long.class) return LongAccessor.class;
+        if (type == float.class) return FloatAccessor.class;
+        if (type == double.class) return DoubleAccessor.class;
+        if (type == short.class) return ShortAccessor.class;
+        if (type == char.class) return CharAccessor.class;
+        if (type == byte.class) return ByteAccessor.class;
+        if (type == boolean.class) return BooleanAccessor.class;
+        if (type == int[].class) return IntArrayAccessor.class;
+        if (type == long[].class) return LongArrayAccessor.class;
+        if (type == float[].class) return FloatArrayAccessor.class;
+        if (type == double[].class) return DoubleArrayAccessor.class;
+        if (type == byte[].class) return ByteArrayAccessor.class;
+        throw new IllegalArgumentException("Unsupported @Snapshot field type: " + type.getName());
+    }
+
+    // Defines a hidden copy of the template whose static HANDLE is the given handle
+    private static FieldAccessor define(Class<? extends FieldAccessor> template, VarHandle handle) {
+        try {
+            MethodHandles.Lookup hidden = MethodHandles.lookup()
+                    .defineHiddenClassWithClassData(TEMPLATE_BYTES.get(template), handle, true);
+            return (FieldAccessor) hidden.findConstructor(hidden.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot generate the accessor for " + handle, e);
+        }
+    }
+
+    /**
+     * Returns the handle a hidden accessor class was defined with. Called from the static
+     * initializer of the templates, which are never initialized as themselves.
+     *
+     * @param lookup the lookup of the hidden class
+     * @return the field handle
+     */
+    static VarHandle classData(MethodHandles.Lookup lookup) {
+        try {
+            return MethodHandles.classData(lookup, ConstantDescs.DEFAULT_NAME, VarHandle.class);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Accessor templates must be defined as hidden classes.", e);
+        }
+    }
+
+    static final class IntAccessor extends FieldAccessor {
+        private static final VarHandle HANDLE = classData(MethodHandles.lookup());
+
+        int size(Object target) { return Integer.BYTES; }
+        void write(Object target, ByteBuffer buffer) { buffer.putInt((int) HANDLE.get(target)); }
+        void read(Object target, ByteBuffer buffer) { HANDLE.set(target, buffer.getInt()); }
+    }
+
+    static final class LongAccessor extends FieldAccessor {
+        private static final VarHandle HANDLE = classData(MethodHandles.lookup());
+
+        int size(Object target) { return Long.BYTES; }
+        void write(Object target, ByteBuffer buffer) { buffer.putLong((long) HANDLE.get(target)); }
+        void read(Object target, ByteBuffer buffer) { HANDLE.set(target, buffer.getLong()); }
+    }
+
+    static final class FloatAccessor extends FieldAccessor {
+        private static final VarHandle HANDLE = classData(MethodHandles.lookup());
+
+        int size(Object target) { return Float.BYTES; }
+        void write(Object target, ByteBuffer buffer) { buffer.putFloat((float) HANDLE.get(target)); }
+        void read(Object target, ByteBuffer buffer) { HANDLE.set(target, buffer.getFloat()); }
+    }
+
+    static final class DoubleAccessor extends FieldAccessor {
+        private static final VarHandle HANDLE = classData(MethodHandles.lookup());
+
+        int size(Object target) { return Double.BYTES; }
+        void write(Object target, ByteBuffer buffer) { buffer.putDouble((double) HANDLE.get(target)); }
+        void read(Object target, ByteBuffer buffer) { HANDLE.set(target, buffer.getDouble()); }
+    }
+
+    static final class ShortAccessor extends FieldAccessor {
+        private static final VarHandle HANDLE = classData(MethodHandles.lookup());
+
+        int size(Object target) { return Short.BYTES; }
+        void write(Object target, ByteBuffer buffer) { buffer.putShort((short) HANDLE.get(target)); }
+        void read(Object target, ByteBuffer buffer) { HANDLE.set(target, buffer.getShort()); }
+    }
+
+    static final class CharAccessor extends FieldAccessor {
+        private static final VarHandle HANDLE = classData(MethodHandles.lookup());
+
+        int size(Object target) { return Character.BYTES; }
+        void write(Object target, ByteBuffer buffer) { buffer.putChar((char) HANDLE.get(target)); }
+        void read(Object target, ByteBuffer buffer) { HANDLE.set(target, buffer.getChar()); }
+    }
+
+    static final class ByteAccessor extends FieldAccessor {
+        private static final VarHandle HANDLE = classData(MethodHandles.lookup());
+
+        int size(Object target) { return Byte.BYTES; }
+        void write(Object target, ByteBuffer buffer) { buffer.put((byte) HANDLE.get(target)); }
+        void read(Object target, ByteBuffer buffer) { HANDLE.set(target, buffer.get()); }
+    }
+
+    static final class BooleanAccessor extends FieldAccessor {
+        private static final VarHandle HANDLE = classData(MethodHandles.lookup());
+
+        int size(Object target) { return Byte.BYTES; }
+        void write(Object target, ByteBuffer buffer) { buffer.put((boolean) HANDLE.get(target) ? (byte) 1 : (byte) 0); }
+        void read(Object target, ByteBuffer buffer) { HANDLE.set(target, buffer.get() != 0); }
+    }
+
+    static final class IntArrayAccessor extends FieldAccessor {
+        private static final VarHandle HANDLE = classData(MethodHandles.lookup());
+
+
+        int size(Object target) {
+            int[] array = (int[]) HANDLE.get(target);
+            return array == null ? 0 : array.length * Integer.BYTES;
+        }
+
+        void write(Object target, ByteBuffer buffer) {
+            int[] array = (int[]) HANDLE.get(target);
+            if (array != null) {
+                for (int value : array) buffer.putInt(value);
+            }
+        }
+
+        void read(Object target, ByteBuffer buffer) {
+            int[] array = (int[]) HANDLE.get(target);
+            if (array != null) {
+                for (int i = 0; i < array.length; i++) array[i] = buffer.getInt();
+            }
+        }
+    }
+
+    static final class LongArrayAccessor extends FieldAccessor {
+        private static final VarHandle HANDLE = classData(MethodHandles.lookup());
+
+
+        int size(Object target) {
+            long[] array = (long[]) HANDLE.get(target);
+            return array == null ? 0 : array.length * Long.BYTES;
+        }
+
+        void write(Object target, ByteBuffer buffer) {
+            long[] array = (long[]) HANDLE.get(target);
+            if (array != null) {
+                for (long value : array) buffer.putLong(value);
+            }
+        }
+
+        void read(Object target, ByteBuffer buffer) {
+            long[] array = (long[]) HANDLE.get(target);
+            if (array != null) {
+                for (int i = 0; i < array.length; i++) array[i] = buffer.getLong();
+            }
+        }
+    }
+
+    static final class FloatArrayAccessor extends FieldAccessor {
+        private static final VarHandle HANDLE = classData(MethodHandles.lookup());
+
+
+        int size(Object target) {
+            float[] array = (float[]) HANDLE.get(target);
+            return array == null ? 0 : array.length * Float.BYTES;
+        }
+
+        void write(Object target, ByteBuffer buffer) {
+            float[] array = (float[]) HANDLE.get(target);
+            if (array != null) {
+                for (float value : array) buffer.putFloat(value);
+            }
+        }
+
+        void read(Object target, ByteBuffer buffer) {
+            float[] array = (float[]) HANDLE.get(target);
+            if (array != null) {
+                for (int i = 0; i < array.length; i++) array[i] = buffer.getFloat();
+            }
+        }
+    }
+
+    static final class DoubleArrayAccessor extends FieldAccessor {
+        private static final VarHandle HANDLE = classData(MethodHandles.lookup());
+
+
+        int size(Object target) {
+            double[] array = (double[]) HANDLE.get(target);
+            return array == null ? 0 : array.length * Double.BYTES;
+        }
+
+        void write(Object target, ByteBuffer buffer) {
+            double[] array = (double[]) HANDLE.get(target);
+            if (array != null) {
+                for (double value : array) buffer.putDouble(value);
+            }
+        }
+
+        void read(Object target, ByteBuffer buffer) {
+            double[] array = (double[]) HANDLE.get(target);
+            if (array != null) {
+                for (int i = 0; i < array.length; i++) array[i] = buffer.getDouble();
+            }
+        }
+    }
+
+    static final class ByteArrayAccessor extends FieldAccessor {
+        private static final VarHandle HANDLE = classData(MethodHandles.lookup());
+
+
+        int size(Object target) {
+            byte[] array = (byte[]) HANDLE.get(target);
+            return array == null ? 0 : array.length;
+        }
+
+        void write(Object target, ByteBuffer buffer) {
+            byte[] array = (byte[]) HANDLE.get(target);
+            if (array != null) buffer.put(array);
+        }
+
+        void read(Object target, ByteBuffer buffer) {
+            byte[] array = (byte[]) HANDLE.get(target);
+            if (array != null) buffer.get(array);
+        }
+    }
+}
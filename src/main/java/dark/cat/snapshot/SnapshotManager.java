@@ -0,0 +1,345 @@
+package dark.cat.snapshot;
+
+import dark.cat.annotations.Snapshot;
+import dark.cat.context.EngineContext;
+import dark.cat.utils.PajamaLogger;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Captures and restores the {@link Snapshot} state of registered components every tick, for
+ * rollback and quick-saves.
+ * <li>Snapshots are written through per-class {@link SnapshotSchema} accessors into a single
+ * reusable direct buffer that holds a ring of the last {@code historySize} ticks. Capturing,
+ * restoring and delta encoding never allocate once the layout has been frozen by the first
+ * capture.</li>
+ * <p>Usage Example:</p>
+ * <pre>
+ * {@code
+ * snapshotManager.initialize(128).registerAll(context);
+ *
+ * snapshotManager.capture(tick);
+ * // ... later, after a misprediction
+ * snapshotManager.restore(confirmedTick);
+ * }
+ * </pre>
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class SnapshotManager {
+
+    // Number of ticks kept by default, a little over a second at 60 ticks per second
+    public static final int DEFAULT_HISTORY_SIZE = 64;
+
+    private final List<Object> registered = new ArrayList<>();
+
+    private int historySize = DEFAULT_HISTORY_SIZE;
+
+    private Object[] targets;
+    private SnapshotSchema[] schemas;
+    private int[][] fieldSizes;
+    private int snapshotSize = -1;
+
+    private ByteBuffer[] slots;
+    private long[] slotTicks;
+    private long latestTick = -1;
+
+    private long lastCaptureNanos;
+    private long lastRestoreNanos;
+    private int lastDeltaSize;
+
+    /**
+     * Sets the number of ticks kept in the snapshot ring and discards any captured history.
+     *
+     * @param historySize the number of ticks to keep
+     * @return the current instance of the SnapshotManager
+     */
+    public SnapshotManager initialize(int historySize) {
+        if (historySize <= 0) {
+            throw new IllegalArgumentException("History size must be positive: " + historySize);
+        }
+        this.historySize = historySize;
+        this.snapshotSize = -1;
+        this.slots = null;
+        this.latestTick = -1;
+        return this;
+    }
+
+    /**
+     * Registers a component whose {@link Snapshot} fields should be captured.
+     *
+     * @param component the component to register
+     * @return the current instance of the SnapshotManager
+     * @throws IllegalStateException if a snapshot has already been captured
+     * @throws IllegalArgumentException if the component has no {@link Snapshot} fields
+     */
+    public SnapshotManager register(Object component) {
+        if (snapshotSize >= 0) {
+            throw new IllegalStateException("Cannot register components after the first capture.");
+        }
+        if (SnapshotSchema.of(component.getClass()).isEmpty()) {
+            throw new IllegalArgumentException("No @Snapshot fields in " + component.getClass().getName());
+        }
+        if (!registered.contains(component)) {
+            registered.add(component);
+        }
+        return this;
+    }
+
+    /**
+     * Registers every component of the context that declares {@link Snapshot} fields. Components
+     * are ordered by class name so the layout is stable between runs.
+     *
+     * @param context the engine context to take components from
+     * @return the current instance of the SnapshotManager
+     */
+    public SnapshotManager registerAll(EngineContext context) {
+        context.getComponents().values().stream()
+                .filter(component -> !SnapshotSchema.of(component.getClass()).isEmpty())
+                .sorted(Comparator.comparing(component -> component.getClass().getName()))
+                .forEach(this::register);
+        return this;
+    }
+
+    /**
+     * Freezes the layout and allocates the snapshot ring. This happens automatically on the first
+     * capture, call it earlier when the snapshot size is needed before anything is captured.
+     *
+     * @return the current instance of the SnapshotManager
+     */
+    public SnapshotManager freeze() {
+        if (slots != null) {
+            return this;
+        }
+        targets = registered.toArray();
+        schemas = new SnapshotSchema[targets.length];
+        fieldSizes = new int[targets.length][];
+
+        int size = 0;
+        for (int i = 0; i < targets.length; i++) {
+            schemas[i] = SnapshotSchema.of(targets[i].getClass());
+            fieldSizes[i] = schemas[i].fieldSizes(targets[i]);
+            for (int fieldSize : fieldSizes[i]) {
+                size += fieldSize;
+            }
+        }
+        snapshotSize = size;
+
+        ByteBuffer history = ByteBuffer.allocateDirect(Math.max(1, size) * historySize);
+        slots = new ByteBuffer[historySize];
+        slotTicks = new long[historySize];
+        for (int i = 0; i < historySize; i++) {
+            slots[i] = history.slice(i * size, size);
+            slotTicks[i] = -1;
+        }
+
+        PajamaLogger.log("SnapshotManager frozen with " + targets.length + " components, "
+                + size + " bytes per tick, " + historySize + " ticks of history.");
+        return this;
+    }
+
+    /**
+     * Captures the state of every registered component for the given tick, overwriting the
+     * oldest snapshot in the ring.
+     *
+     * @param tick the tick number, must not be negative
+     * @return the number of bytes written
+     * @throws IllegalStateException if an array field changed its length or nullness since the layout
+     * was frozen; the slot is dropped from the ring and nothing past the reserved bytes is written
+     */
+    public int capture(long tick) {
+        long start = System.nanoTime();
+        freeze();
+
+        int slot = slotOf(tick);
+        ByteBuffer buffer = slots[slot];
+        buffer.clear();
+        slotTicks[slot] = -1;
+        for (int i = 0; i < targets.length; i++) {
+            schemas[i].write(targets[i], buffer, fieldSizes[i]);
+        }
+
+        slotTicks[slot] = tick;
+        latestTick = Math.max(latestTick, tick);
+        lastCaptureNanos = System.nanoTime() - start;
+        return snapshotSize;
+    }
+
+    /**
+     * Restores every registered component in place to the state captured at the given tick.
+     *
+     * @param tick the tick to roll back to
+     * @return {@code true} if the tick was still in the ring and has been restored
+     * @throws IllegalStateException if an array field changed its length or nullness since the layout
+     * was frozen
+     */
+    public boolean restore(long tick) {
+        long start = System.nanoTime();
+        if (!hasSnapshot(tick)) {
+            return false;
+        }
+
+        ByteBuffer buffer = slots[slotOf(tick)];
+        buffer.clear();
+        for (int i = 0; i < targets.length; i++) {
+            schemas[i].read(targets[i], buffer, fieldSizes[i]);
+        }
+
+        lastRestoreNanos = System.nanoTime() - start;
+        return true;
+    }
+
+    /**
+     * Encodes the snapshot of {@code tick} as a {@link DeltaCodec} delta against the snapshot of
+     * {@code baseTick}.
+     *
+     * @param baseTick the tick the receiver already has
+     * @param tick     the tick to encode
+     * @param out      the destination, written from its position
+     * @return the number of bytes written
+     * @throws IllegalStateException if either tick is no longer in the ring
+     */
+    public int encodeDelta(long baseTick, long tick, ByteBuffer out) {
+        requireSnapshot(baseTick);
+        requireSnapshot(tick);
+        lastDeltaSize = DeltaCodec.encode(slots[slotOf(baseTick)], slots[slotOf(tick)], snapshotSize, out);
+        return lastDeltaSize;
+    }
+
+    /**
+     * Rebuilds the snapshot of {@code tick} from the snapshot of {@code baseTick} and a delta
+     * produced by {@link #encodeDelta}. The components are not touched, call {@link #restore}
+     * to apply the rebuilt state.
+     *
+     * @param baseTick the tick the delta was encoded against
+     * @param tick     the tick described by the delta
+     * @param delta    the encoded delta, read from its position
+     * @throws IllegalStateException if the base tick is no longer in the ring
+     */
+    public void applyDelta(long baseTick, long tick, ByteBuffer delta) {
+        requireSnapshot(baseTick);
+        int slot = slotOf(tick);
+        DeltaCodec.decode(slots[slotOf(baseTick)], delta, snapshotSize, slots[slot]);
+        slotTicks[slot] = tick;
+        latestTick = Math.max(latestTick, tick);
+    }
+
+    /**
+     * Copies the raw snapshot of the given tick into {@code out}, e.g. for a quick-save.
+     *
+     * @param tick the tick to copy
+     * @param out  the destination, written from its position
+     * @return the number of bytes written
+     * @throws IllegalStateException if the tick is no longer in the ring
+     */
+    public int writeTo(long tick, ByteBuffer out) {
+        requireSnapshot(tick);
+        out.put(slots[slotOf(tick)].clear());
+        return snapshotSize;
+    }
+
+    /**
+     * Stores a raw snapshot previously produced by {@link #writeTo} as the snapshot of the given
+     * tick. The components are not touched, call {@link #restore} to apply it.
+     *
+     * @param tick the tick to store the snapshot under
+     * @param in   the source, read from its position
+     */
+    public void readFrom(long tick, ByteBuffer in) {
+        freeze();
+        int slot = slotOf(tick);
+        ByteBuffer buffer = slots[slot].clear();
+        buffer.put(buffer.position(), in, in.position(), snapshotSize);
+        in.position(in.position() + snapshotSize);
+        slotTicks[slot] = tick;
+        latestTick = Math.max(latestTick, tick);
+    }
+
+    /**
+     * Returns whether the snapshot of the given tick is still in the ring.
+     *
+     * @param tick the tick to check
+     * @return {@code true} if the tick can be restored
+     */
+    public boolean hasSnapshot(long tick) {
+        return slots != null && tick >= 0 && slotTicks[slotOf(tick)] == tick;
+    }
+
+    private void requireSnapshot(long tick) {
+        if (!hasSnapshot(tick)) {
+            throw new IllegalStateException("No snapshot for tick " + tick);
+        }
+    }
+
+    private int slotOf(long tick) {
+        return (int) Math.floorMod(tick, (long) historySize);
+    }
+
+    /**
+     * Returns the size of a single snapshot in bytes, or {@code -1} before the first capture.
+     *
+     * @return the bytes per tick
+     */
+    public int getSnapshotSize() {
+        return snapshotSize;
+    }
+
+    /**
+     * Returns the upper bound of a delta produced by {@link #encodeDelta}.
+     *
+     * @return the maximum delta size in bytes
+     */
+    public int getMaxDeltaSize() {
+        return DeltaCodec.maxEncodedLength(Math.max(0, snapshotSize));
+    }
+
+    /**
+     * Returns the number of ticks kept in the ring.
+     *
+     * @return the history size
+     */
+    public int getHistorySize() {
+        return historySize;
+    }
+
+    /**
+     * Returns the most recent captured tick, or {@code -1} if nothing was captured yet.
+     *
+     * @return the latest tick
+     */
+    public long getLatestTick() {
+        return latestTick;
+    }
+
+    /**
+     * Returns how long the last {@link #capture} took.
+     *
+     * @return the capture latency in nanoseconds
+     */
+    public long getLastCaptureNanos() {
+        return lastCaptureNanos;
+    }
+
+    /**
+     * Returns how long the last successful {@link #restore} took.
+     *
+     * @return the restore latency in nanoseconds
+     */
+    public long getLastRestoreNanos() {
+        return lastRestoreNanos;
+    }
+
+    /**
+     * Returns the size of the last delta produced by {@link #encodeDelta}.
+     *
+     * @return the delta size in bytes
+     */
+    public int getLastDeltaSize() {
+        return lastDeltaSize;
+    }
+}
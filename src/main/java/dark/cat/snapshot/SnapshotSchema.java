@@ -0,0 +1,197 @@
+package dark.cat.snapshot;
+
+import dark.cat.annotations.Snapshot;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code SnapshotSchema} class describes the binary layout of a component class. It is
+ * generated once per class from its {@link Snapshot} fields and holds one {@link FieldAccessor}
+ * per field, in declaration order, including the fields inherited from superclasses.
+ *
+ * <p>Schemas are cached per class, so looking one up on the hot path is a single
+ * {@link ClassValue} read.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public final class SnapshotSchema {
+
+    private static final ClassValue<SnapshotSchema> SCHEMAS = new ClassValue<>() {
+        @Override
+        protected SnapshotSchema computeValue(Class<?> type) {
+            return new SnapshotSchema(type);
+        }
+    };
+
+    private final Class<?> type;
+    private final FieldAccessor[] accessors;
+    private final String[] fieldNames;
+    // Indices of the array fields, the only ones whose size can change after freezing
+    private final int[] arrayFields;
+
+    private SnapshotSchema(Class<?> type) {
+        this.type = type;
+
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            hierarchy.add(0, current);
+        }
+
+        List<FieldAccessor> generated = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<Integer> arrays = new ArrayList<>();
+        for (Class<?> declaringClass : hierarchy) {
+            for (Field field : declaringClass.getDeclaredFields()) {
+                if (!field.isAnnotationPresent(Snapshot.class)) {
+                    continue;
+                }
+                if (Modifier.isStatic(field.getModifiers())) {
+                    throw new IllegalArgumentException("@Snapshot field must not be static: " + field);
+                }
+                if (Modifier.isFinal(field.getModifiers()) && !field.getType().isArray()) {
+                    throw new IllegalArgumentException("@Snapshot field must not be final: " + field);
+                }
+                try {
+                    MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(declaringClass, MethodHandles.lookup());
+                    generated.add(FieldAccessor.forType(field.getType(), lookup.unreflectVarHandle(field)));
+                    names.add(declaringClass.getSimpleName() + "." + field.getName());
+                    if (field.getType().isArray()) {
+                        arrays.add(generated.size() - 1);
+                    }
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Cannot access @Snapshot field: " + field, e);
+                }
+            }
+        }
+        this.accessors = generated.toArray(new FieldAccessor[0]);
+        this.fieldNames = names.toArray(new String[0]);
+        this.arrayFields = arrays.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Returns the schema of the given class, generating it on first use.
+     *
+     * @param type the component class
+     * @return the cached schema
+     */
+    public static SnapshotSchema of(Class<?> type) {
+        return SCHEMAS.get(type);
+    }
+
+    /**
+     * Returns whether the class declares any {@link Snapshot} fields.
+     *
+     * @return {@code true} if instances of the class carry snapshot state
+     */
+    public boolean isEmpty() {
+        return accessors.length == 0;
+    }
+
+    /**
+     * Returns the number of bytes needed to encode the given instance.
+     *
+     * @param target an instance of the schema's class
+     * @return the encoded size in bytes
+     */
+    public int size(Object target) {
+        int size = 0;
+        for (FieldAccessor accessor : accessors) {
+            size += accessor.size(target);
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of bytes each field needs for the given instance, in layout order.
+     *
+     * @param target an instance of the schema's class
+     * @return the encoded size of every field
+     */
+    int[] fieldSizes(Object target) {
+        int[] sizes = new int[accessors.length];
+        for (int i = 0; i < accessors.length; i++) {
+            sizes[i] = accessors[i].size(target);
+        }
+        return sizes;
+    }
+
+    /**
+     * Writes every snapshot field of the target like {@link #write}, after checking that each
+     * array field still has the size reserved for it.
+     *
+     * @param target an instance of the schema's class
+     * @param buffer the destination buffer
+     * @param reserved the field sizes reserved when the layout was frozen
+     * @throws IllegalStateException if an array field was replaced by one of another length or by {@code null}
+     */
+    void write(Object target, ByteBuffer buffer, int[] reserved) {
+        checkArraySizes(target, reserved);
+        write(target, buffer);
+    }
+
+    /**
+     * Reads every snapshot field of the target like {@link #read}, after checking that each
+     * array field still has the size reserved for it.
+     *
+     * @param target an instance of the schema's class
+     * @param buffer the source buffer
+     * @param reserved the field sizes reserved when the layout was frozen
+     * @throws IllegalStateException if an array field was replaced by one of another length or by {@code null}
+     */
+    void read(Object target, ByteBuffer buffer, int[] reserved) {
+        checkArraySizes(target, reserved);
+        read(target, buffer);
+    }
+
+    private void checkArraySizes(Object target, int[] reserved) {
+        for (int field : arrayFields) {
+            int size = accessors[field].size(target);
+            if (size != reserved[field]) {
+                throw new IllegalStateException("@Snapshot field " + fieldNames[field] + " needs " + size
+                        + " bytes, but " + reserved[field] + " were reserved when the layout was frozen."
+                        + " Array fields must keep their length.");
+            }
+        }
+    }
+
+    /**
+     * Writes every snapshot field of the target into the buffer, starting at its position.
+     *
+     * @param target an instance of the schema's class
+     * @param buffer the destination buffer
+     */
+    public void write(Object target, ByteBuffer buffer) {
+        for (FieldAccessor accessor : accessors) {
+            accessor.write(target, buffer);
+        }
+    }
+
+    /**
+     * Reads every snapshot field of the target from the buffer, starting at its position.
+     * Array fields are filled in place.
+     *
+     * @param target an instance of the schema's class
+     * @param buffer the source buffer
+     */
+    public void read(Object target, ByteBuffer buffer) {
+        for (FieldAccessor accessor : accessors) {
+            accessor.read(target, buffer);
+        }
+    }
+
+    /**
+     * Returns the class described by this schema.
+     *
+     * @return the component class
+     */
+    public Class<?> getType() {
+        return type;
+    }
+}
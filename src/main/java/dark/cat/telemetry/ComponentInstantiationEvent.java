@@ -0,0 +1,29 @@
+package dark.cat.telemetry;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for instantiating a single component through its no-argument constructor,
+ * emitted by {@link dark.cat.context.EngineContext}.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+@Name("dark.cat.ComponentInstantiation")
+@Label("Component Instantiation")
+@Category({"Pajama", "Engine"})
+@Enabled(false)
+@Threshold("0 ms")
+@StackTrace(false)
+public final class ComponentInstantiationEvent extends Event {
+
+    @Label("Component Class")
+    public Class<?> componentClass;
+}
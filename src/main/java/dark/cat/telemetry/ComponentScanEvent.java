@@ -0,0 +1,33 @@
+package dark.cat.telemetry;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for scanning a base package for {@code @EngineComponent} and
+ * {@code @GameLoop} classes and instantiating them, emitted by
+ * {@link dark.cat.context.EngineContext}.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+@Name("dark.cat.ComponentScan")
+@Label("Component Scan")
+@Category({"Pajama", "Engine"})
+@Enabled(false)
+@Threshold("0 ms")
+@StackTrace(false)
+public final class ComponentScanEvent extends Event {
+
+    @Label("Base Package")
+    public String basePackage;
+
+    @Label("Component Count")
+    public int componentCount;
+}
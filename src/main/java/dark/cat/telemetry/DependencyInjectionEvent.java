@@ -0,0 +1,32 @@
+package dark.cat.telemetry;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for injecting the {@code @Inject} and {@code @InjectPajamaDependency}
+ * fields of a single component, emitted by {@link dark.cat.context.EngineContext}.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+@Name("dark.cat.DependencyInjection")
+@Label("Dependency Injection")
+@Category({"Pajama", "Engine"})
+@Enabled(false)
+@Threshold("0 ms")
+@StackTrace(false)
+public final class DependencyInjectionEvent extends Event {
+
+    @Label("Component Class")
+    public Class<?> componentClass;
+
+    @Label("Injected Fields")
+    public int injectedFields;
+}
@@ -0,0 +1,29 @@
+package dark.cat.telemetry;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for a game loop frame, from {@link FrameTelemetry#beginFrame()} to {@link
+ * FrameTelemetry#endFrame()}.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+@Name("dark.cat.Frame")
+@Label("Frame")
+@Category({"Pajama", "Frames"})
+@Enabled(false)
+@Threshold("0 ms")
+@StackTrace(false)
+public final class FrameEvent extends Event {
+
+    @Label("Frame Number")
+    public long frameNumber;
+}
@@ -0,0 +1,32 @@
+package dark.cat.telemetry;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for a phase of a game loop frame, from {@link
+ * FrameTelemetry#beginPhase(String)} until the next phase marker or the end of the frame.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+@Name("dark.cat.FramePhase")
+@Label("Frame Phase")
+@Category({"Pajama", "Frames"})
+@Enabled(false)
+@Threshold("1 ms")
+@StackTrace(false)
+public final class FramePhaseEvent extends Event {
+
+    @Label("Frame Number")
+    public long frameNumber;
+
+    @Label("Phase")
+    public String phase;
+}
@@ -0,0 +1,192 @@
+package dark.cat.telemetry;
+
+import java.util.Arrays;
+
+/**
+ * The telemetry of a single frame recorded by {@link FrameTelemetry}: how long it took, how many
+ * bytes the game loop thread allocated in it and in each of its phases, and how much garbage
+ * collection overlapped it.
+ *
+ * <p>The records in the history of {@link FrameTelemetry} are reused; the records returned by
+ * {@link FrameTelemetry#getWorstFrames(int)} are copies and safe to keep.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class FrameRecord {
+
+    long frameNumber;
+    long startNanos;
+    long endNanos;
+    long allocatedBytes;
+    final long[] phaseNanos;
+    final long[] phaseBytes;
+    final String[] phaseNames;
+    int phaseCount;
+    long gcNanos;
+    int gcCount;
+    String lastCollector;
+
+    FrameRecord(String[] phaseNames) {
+        this.phaseNames = phaseNames;
+        this.phaseNanos = new long[phaseNames.length];
+        this.phaseBytes = new long[phaseNames.length];
+    }
+
+    FrameRecord copy() {
+        FrameRecord copy = new FrameRecord(Arrays.copyOf(phaseNames, phaseCount));
+        copy.frameNumber = frameNumber;
+        copy.startNanos = startNanos;
+        copy.endNanos = endNanos;
+        copy.allocatedBytes = allocatedBytes;
+        System.arraycopy(phaseNanos, 0, copy.phaseNanos, 0, phaseCount);
+        System.arraycopy(phaseBytes, 0, copy.phaseBytes, 0, phaseCount);
+        copy.phaseCount = phaseCount;
+        copy.gcNanos = gcNanos;
+        copy.gcCount = gcCount;
+        copy.lastCollector = lastCollector;
+        return copy;
+    }
+
+    void reset(long frameNumber, long startNanos) {
+        this.frameNumber = frameNumber;
+        this.startNanos = startNanos;
+        this.endNanos = startNanos;
+        this.allocatedBytes = 0;
+        Arrays.fill(phaseNanos, 0, phaseCount, 0);
+        Arrays.fill(phaseBytes, 0, phaseCount, 0);
+        this.phaseCount = 0;
+        this.gcNanos = 0;
+        this.gcCount = 0;
+        this.lastCollector = null;
+    }
+
+    /**
+     * Returns the number of the frame, counted from {@code 0}.
+     *
+     * @return the frame number
+     */
+    public long getFrameNumber() {
+        return frameNumber;
+    }
+
+    /**
+     * Returns how long the frame took.
+     *
+     * @return the duration in nanoseconds
+     */
+    public long getDurationNanos() {
+        return endNanos - startNanos;
+    }
+
+    /**
+     * Returns how many bytes the game loop thread allocated during the frame.
+     *
+     * @return the allocated bytes
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Returns the number of phases the frame was split into.
+     *
+     * @return the phase count
+     */
+    public int getPhaseCount() {
+        return phaseCount;
+    }
+
+    /**
+     * Returns the name of a phase.
+     *
+     * @param phase the phase index, in the order the phases ran
+     * @return the phase name
+     */
+    public String getPhaseName(int phase) {
+        return phaseNames[phase];
+    }
+
+    /**
+     * Returns how long a phase took.
+     *
+     * @param phase the phase index, in the order the phases ran
+     * @return the duration in nanoseconds
+     */
+    public long getPhaseNanos(int phase) {
+        return phaseNanos[phase];
+    }
+
+    /**
+     * Returns how many bytes the game loop thread allocated during a phase.
+     *
+     * @param phase the phase index, in the order the phases ran
+     * @return the allocated bytes
+     */
+    public long getPhaseBytes(int phase) {
+        return phaseBytes[phase];
+    }
+
+    /**
+     * Returns the phase that allocated the most bytes during the frame.
+     *
+     * @return the phase name, or {@code null} if no phase allocated
+     */
+    public String getTopAllocatingPhase() {
+        int top = -1;
+        for (int phase = 0; phase < phaseCount; phase++) {
+            if (phaseBytes[phase] > 0 && (top < 0 || phaseBytes[phase] > phaseBytes[top])) {
+                top = phase;
+            }
+        }
+        return top < 0 ? null : phaseNames[top];
+    }
+
+    /**
+     * Returns the total duration of the garbage collections that overlapped the frame. GC
+     * durations have millisecond resolution.
+     *
+     * @return the GC time in nanoseconds
+     */
+    public long getGcNanos() {
+        return gcNanos;
+    }
+
+    /**
+     * Returns the number of garbage collections that overlapped the frame.
+     *
+     * @return the GC count
+     */
+    public int getGcCount() {
+        return gcCount;
+    }
+
+    /**
+     * Returns the name of the last collector that ran during the frame.
+     *
+     * @return the collector name, or {@code null} if no collection overlapped the frame
+     */
+    public String getLastCollector() {
+        return lastCollector;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder()
+                .append("frame ").append(frameNumber)
+                .append(": ").append(String.format("%.2f", getDurationNanos() / 1_000_000.0)).append(" ms")
+                .append(", ").append(allocatedBytes).append(" B allocated");
+        if (gcCount > 0) {
+            text.append(", ").append(String.format("%.2f", gcNanos / 1_000_000.0)).append(" ms GC (")
+                    .append(gcCount).append("x ").append(lastCollector).append(')');
+        }
+        for (int phase = 0; phase < phaseCount; phase++) {
+            text.append(phase == 0 ? " | " : ", ")
+                    .append(phaseNames[phase]).append(' ')
+                    .append(String.format("%.2f", phaseNanos[phase] / 1_000_000.0)).append(" ms/")
+                    .append(phaseBytes[phase]).append(" B");
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,405 @@
+package dark.cat.telemetry;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.net.httpserver.HttpServer;
+import dark.cat.utils.PajamaLogger;
+import jdk.jfr.EventType;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The {@code FrameTelemetry} class correlates frame spikes with allocations and garbage
+ * collection.
+ *
+ * <p>The game loop marks its frames and phases. For each of them the telemetry samples the bytes
+ * the game loop thread allocated, using {@code ThreadMXBean.getCurrentThreadAllocatedBytes}.
+ * It also listens for GC notifications from every {@link GarbageCollectorMXBean} and adds each
+ * collection to the recent frames it overlapped. The last {@link #getHistorySize() frames} are
+ * kept in a ring of preallocated records, so recording a frame does not allocate.
+ *
+ * <p>Frame and phase markers must be called from the game loop thread. Reports can be requested
+ * from any thread, including the optional local HTTP endpoint started by
+ * {@link #startHttpServer(int)}.
+ *
+ * <p>Usage:
+ * <pre>
+ *     {@code
+ * @InjectPajamaDependency
+ * private FrameTelemetry telemetry;
+ *
+ * telemetry.beginFrame();
+ * telemetry.beginPhase("input");
+ * inputManager.poll();
+ * telemetry.beginPhase("update");
+ * world.update();
+ * telemetry.beginPhase("render");
+ * render();
+ * telemetry.endFrame();
+ *
+ * telemetry.getWorstFrames(10).forEach(frame -> PajamaLogger.log(frame.toString()));
+ *     }
+ * </pre>
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class FrameTelemetry implements AutoCloseable {
+
+    /**
+     * The maximum number of phases per frame; further phases are folded into the last one.
+     */
+    public static final int MAX_PHASES = 16;
+
+    private static final int DEFAULT_HISTORY_SIZE = 600;
+
+    // Checked before creating JFR events, so the markers stay allocation-free without a recording
+    private static final EventType FRAME_EVENT = EventType.getEventType(FrameEvent.class);
+    private static final EventType FRAME_PHASE_EVENT = EventType.getEventType(FramePhaseEvent.class);
+
+    private final com.sun.management.ThreadMXBean threadMXBean;
+    private final boolean allocationSupported;
+
+    private final FrameRecord[] history;
+    private long frameCount;
+    private FrameRecord current;
+
+    private int currentPhase = -1;
+    private long phaseStartNanos;
+    private long phaseStartBytes;
+    private long frameStartBytes;
+
+    private FrameEvent frameEvent;
+    private FramePhaseEvent phaseEvent;
+
+    private final ConcurrentLinkedQueue<GcEvent> gcEvents = new ConcurrentLinkedQueue<>();
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final NotificationListener gcListener = this::onGcNotification;
+
+    private HttpServer httpServer;
+
+    /**
+     * Creates a telemetry keeping the last 600 frames, ten seconds at 60 frames per second.
+     */
+    public FrameTelemetry() {
+        this(DEFAULT_HISTORY_SIZE);
+    }
+
+    /**
+     * Creates a telemetry keeping the last {@code historySize} frames and subscribes to GC
+     * notifications.
+     *
+     * @param historySize the number of frames the worst-frame report is drawn from
+     * @throws IllegalArgumentException if {@code historySize} is not positive
+     */
+    public FrameTelemetry(int historySize) {
+        if (historySize <= 0) {
+            throw new IllegalArgumentException("History size must be positive: " + historySize);
+        }
+
+        this.threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        this.allocationSupported = threadMXBean.isThreadAllocatedMemorySupported();
+        if (allocationSupported && !threadMXBean.isThreadAllocatedMemoryEnabled()) {
+            threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        }
+        if (!allocationSupported) {
+            PajamaLogger.log("Thread allocation accounting is not supported by this JVM; frames will report 0 bytes.");
+        }
+
+        this.history = new FrameRecord[historySize];
+        for (int i = 0; i < historySize; i++) {
+            history[i] = new FrameRecord(new String[MAX_PHASES]);
+        }
+
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            // Beans counting concurrent cycles rather than pauses (ZGC, Shenandoah) are skipped
+            if (collector.getName().endsWith("Cycles") || !(collector instanceof NotificationEmitter emitter)) {
+                continue;
+            }
+            emitter.addNotificationListener(gcListener, null, null);
+            emitters.add(emitter);
+        }
+    }
+
+    /**
+     * Starts a frame. Call it first thing in every iteration of the game loop.
+     */
+    public void beginFrame() {
+        if (current != null) {
+            endFrame();
+        }
+        long now = System.nanoTime();
+        current = history[(int) (frameCount % history.length)];
+        synchronized (history) {
+            current.reset(frameCount, now);
+        }
+        frameCount++;
+
+        if (FRAME_EVENT.isEnabled()) {
+            frameEvent = new FrameEvent();
+            frameEvent.frameNumber = current.frameNumber;
+            frameEvent.begin();
+        }
+        frameStartBytes = allocatedBytes();
+    }
+
+    /**
+     * Ends the running phase, if any, and starts a new one. Phases are sequential; starting one
+     * ends the previous one.
+     *
+     * @param name the phase name; pass string constants so no allocation happens
+     * @throws IllegalStateException if no frame is running
+     */
+    public void beginPhase(String name) {
+        if (current == null) {
+            throw new IllegalStateException("beginPhase called outside of a frame.");
+        }
+        long now = System.nanoTime();
+        long bytes = allocatedBytes();
+        closePhase(now, bytes);
+
+        if (current.phaseCount < MAX_PHASES) {
+            currentPhase = current.phaseCount++;
+            current.phaseNames[currentPhase] = name;
+        } else {
+            currentPhase = MAX_PHASES - 1;
+        }
+        phaseStartNanos = now;
+        phaseStartBytes = bytes;
+
+        if (FRAME_PHASE_EVENT.isEnabled()) {
+            phaseEvent = new FramePhaseEvent();
+            phaseEvent.frameNumber = current.frameNumber;
+            phaseEvent.phase = name;
+            phaseEvent.begin();
+            phaseStartBytes = allocatedBytes();
+        }
+    }
+
+    /**
+     * Ends the running phase, if any, without starting a new one.
+     */
+    public void endPhase() {
+        if (current != null) {
+            closePhase(System.nanoTime(), allocatedBytes());
+        }
+    }
+
+    /**
+     * Ends the frame and its running phase, and adds the collections reported since the last
+     * frame to the frames they overlapped.
+     */
+    public void endFrame() {
+        if (current == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        long bytes = allocatedBytes();
+        closePhase(now, bytes);
+
+        synchronized (history) {
+            current.endNanos = now;
+            current.allocatedBytes = bytes - frameStartBytes;
+            current = null;
+            drainGcEvents();
+        }
+
+        if (frameEvent != null) {
+            frameEvent.commit();
+            frameEvent = null;
+        }
+    }
+
+    private void closePhase(long now, long bytes) {
+        if (currentPhase < 0) {
+            return;
+        }
+        current.phaseNanos[currentPhase] += now - phaseStartNanos;
+        current.phaseBytes[currentPhase] += bytes - phaseStartBytes;
+        currentPhase = -1;
+
+        if (phaseEvent != null) {
+            phaseEvent.commit();
+            phaseEvent = null;
+        }
+    }
+
+    private long allocatedBytes() {
+        return allocationSupported ? threadMXBean.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    private void onGcNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        // GcInfo timestamps do not share a time base with System.nanoTime(); the notification is
+        // sent right after the collection ends, so its arrival stands in for the end instead
+        long endNanos = System.nanoTime();
+        long startNanos = endNanos - info.getGcInfo().getDuration() * 1_000_000L;
+        gcEvents.add(new GcEvent(info.getGcName(), startNanos, endNanos));
+    }
+
+    // Called with the history lock held; notifications may arrive frames after the collection
+    private void drainGcEvents() {
+        GcEvent event;
+        while ((event = gcEvents.poll()) != null) {
+            // GC durations have millisecond resolution, widen them so short pauses still overlap
+            long start = event.startNanos() - 1_000_000L;
+            long end = event.endNanos();
+            long duration = Math.max(0, event.endNanos() - event.startNanos());
+            for (FrameRecord frame : history) {
+                if (frame.endNanos > frame.startNanos && frame.startNanos <= end && frame.endNanos >= start) {
+                    frame.gcNanos += duration;
+                    frame.gcCount++;
+                    frame.lastCollector = event.collector();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns copies of the slowest frames among the kept history, slowest first.
+     *
+     * @param limit the maximum number of frames to return
+     * @return the worst frames
+     */
+    public List<FrameRecord> getWorstFrames(int limit) {
+        List<FrameRecord> frames = new ArrayList<>();
+        synchronized (history) {
+            drainGcEvents();
+            for (FrameRecord frame : history) {
+                if (frame.endNanos > frame.startNanos) {
+                    frames.add(frame);
+                }
+            }
+            frames.sort(Comparator.comparingLong(FrameRecord::getDurationNanos).reversed());
+            List<FrameRecord> worst = new ArrayList<>(Math.min(limit, frames.size()));
+            for (int i = 0; i < limit && i < frames.size(); i++) {
+                worst.add(frames.get(i).copy());
+            }
+            return worst;
+        }
+    }
+
+    /**
+     * Formats the worst frames as a plain text report, one frame per line, naming the phase that
+     * allocated the most in each of them.
+     *
+     * @param limit the maximum number of frames to include
+     * @return the report
+     */
+    public String formatReport(int limit) {
+        StringBuilder report = new StringBuilder()
+                .append("Worst ").append(limit).append(" of the last ")
+                .append(Math.min(frameCount, history.length)).append(" frames\n");
+        for (FrameRecord frame : getWorstFrames(limit)) {
+            report.append(frame);
+            if (frame.getTopAllocatingPhase() != null) {
+                report.append(" | top allocator: ").append(frame.getTopAllocatingPhase());
+            }
+            report.append('\n');
+        }
+        return report.toString();
+    }
+
+    /**
+     * Serves {@link #formatReport(int)} as plain text at {@code http://127.0.0.1:<port>/frames}.
+     * The server only binds to the loopback address. Pass {@code ?limit=<n>} to change the
+     * number of frames, 20 by default.
+     *
+     * @param port the port, or {@code 0} for any free port
+     * @return the port the server listens on
+     * @throws IOException if the server cannot be bound
+     * @throws IllegalStateException if the server is already running
+     */
+    public synchronized int startHttpServer(int port) throws IOException {
+        if (httpServer != null) {
+            throw new IllegalStateException("FrameTelemetry HTTP server is already running.");
+        }
+        httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        httpServer.createContext("/frames", exchange -> {
+            int limit = 20;
+            String query = exchange.getRequestURI().getQuery();
+            if (query != null && query.startsWith("limit=")) {
+                try {
+                    limit = Math.max(1, Integer.parseInt(query.substring("limit=".length())));
+                } catch (NumberFormatException ignored) {
+                    // Keep the default limit
+                }
+            }
+            byte[] body = formatReport(limit).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        httpServer.start();
+        int boundPort = httpServer.getAddress().getPort();
+        PajamaLogger.log("FrameTelemetry report served at http://127.0.0.1:" + boundPort + "/frames");
+        return boundPort;
+    }
+
+    /**
+     * Stops the HTTP endpoint, if it is running.
+     */
+    public synchronized void stopHttpServer() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpServer = null;
+        }
+    }
+
+    /**
+     * Stops the HTTP endpoint and unsubscribes from GC notifications.
+     */
+    @Override
+    public void close() {
+        stopHttpServer();
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(gcListener);
+            } catch (ListenerNotFoundException ignored) {
+                // Already removed
+            }
+        }
+        emitters.clear();
+    }
+
+    /**
+     * Returns the number of frames the worst-frame report is drawn from.
+     *
+     * @return the history size
+     */
+    public int getHistorySize() {
+        return history.length;
+    }
+
+    /**
+     * Returns the number of frames recorded so far.
+     *
+     * @return the frame count
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    private record GcEvent(String collector, long startNanos, long endNanos) {
+    }
+}
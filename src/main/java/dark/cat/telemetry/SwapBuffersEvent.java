@@ -0,0 +1,27 @@
+package dark.cat.telemetry;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for showing the back buffer in {@link
+ * dark.cat.managers.RenderManager#swapBuffers()}, which blocks when the buffer strategy waits for
+ * the display.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+@Name("dark.cat.SwapBuffers")
+@Label("Swap Buffers")
+@Category({"Pajama", "Rendering"})
+@Enabled(false)
+@Threshold("1 ms")
+@StackTrace(false)
+public final class SwapBuffersEvent extends Event {
+}
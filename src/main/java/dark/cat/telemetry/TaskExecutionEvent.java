@@ -0,0 +1,34 @@
+package dark.cat.telemetry;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for running a task submitted to a {@link
+ * dark.cat.utils.ThreadManagerPool}, including how long it waited in the queue for a thread.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+@Name("dark.cat.TaskExecution")
+@Label("Task Execution")
+@Category({"Pajama", "Threads"})
+@Enabled(false)
+@Threshold("1 ms")
+@StackTrace(false)
+public final class TaskExecutionEvent extends Event {
+
+    @Label("Pool")
+    public String pool;
+
+    @Label("Wait Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long waitNanos;
+}
@@ -0,0 +1,32 @@
+package dark.cat.telemetry;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for submitting a task to a {@link dark.cat.utils.ThreadManagerPool}. An
+ * instant event carrying the queue length at submission time.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+@Name("dark.cat.TaskQueued")
+@Label("Task Queued")
+@Category({"Pajama", "Threads"})
+@Enabled(false)
+@Threshold("0 ms")
+@StackTrace(false)
+public final class TaskQueuedEvent extends Event {
+
+    @Label("Pool")
+    public String pool;
+
+    @Label("Queue Length")
+    public int queueLength;
+}
@@ -0,0 +1,64 @@
+package dark.cat.utils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A bounded pool of equally sized direct {@link ByteBuffer}s that can be acquired on one thread
+ * and released on another.
+ *
+ * <p>Direct buffers are expensive to allocate and are only reclaimed by the garbage collector, so
+ * subsystems that hand buffers between threads every tick, such as the replication layer, reuse
+ * them through this pool. When the pool is empty a new buffer is allocated, and buffers released
+ * into a full pool are dropped.
+ *
+ * @author Deyan Sirakov
+ * @version 1.0
+ * @since 1.0
+ */
+public class DirectBufferPool {
+
+    private final int bufferSize;
+    private final ArrayBlockingQueue<ByteBuffer> buffers;
+
+    /**
+     * Creates a pool of buffers of the given size.
+     *
+     * @param bufferSize the capacity of every buffer in bytes
+     * @param maxPooled  the maximum number of idle buffers kept
+     */
+    public DirectBufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.buffers = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    /**
+     * Takes a cleared buffer from the pool, allocating a new one if the pool is empty.
+     *
+     * @return a cleared direct buffer
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        return buffer != null ? buffer.clear() : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Returns a buffer to the pool.
+     *
+     * @param buffer a buffer previously obtained from {@link #acquire()}
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer != null && buffer.capacity() == bufferSize) {
+            buffers.offer(buffer);
+        }
+    }
+
+    /**
+     * Returns the capacity of the pooled buffers.
+     *
+     * @return the buffer size in bytes
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+}
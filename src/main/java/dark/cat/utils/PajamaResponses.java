@@ -37,6 +37,12 @@ public enum PajamaResponses {
      */
     NO_GAME_LOOP_FOUND("ERR002", "No @GameLoop class found!"),
 
+    /**
+     * Indicates that a {@code @GameLoop} class hosted by the instance scheduler does not implement
+     * {@link dark.cat.context.Tickable}.
+     */
+    GAME_LOOP_HAS_NOT_IMPLEMENTED_TICKABLE("ERR003", "@GameLoop class must implement Tickable to run as an instance"),
+
     /**
      * Message indicating that the Pajama application has started successfully.
      */
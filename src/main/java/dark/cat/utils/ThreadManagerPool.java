@@ -1,22 +1,37 @@
 package dark.cat.utils;
 
+import dark.cat.clock.EngineClock;
+import dark.cat.clock.SystemClock;
+import dark.cat.clock.VirtualClock;
+import dark.cat.telemetry.TaskExecutionEvent;
+import dark.cat.telemetry.TaskQueuedEvent;
+import jdk.jfr.EventType;
+
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
  * A utility class for managing threads and scheduling tasks in a centralized manner.
  * Provides a fixed-size thread pool and a scheduled thread pool for asynchronous and periodic task execution.
  *
- * <p>This class uses static methods to handle thread-related operations, making it easily accessible
- * throughout the application. It ensures thread safety and provides mechanisms for graceful shutdown.</p>
+ * <p>Instances created with the no-argument constructor share a single set of static executors, making
+ * them easily accessible throughout the application. Instances created with a pool size and name own
+ * their executors, so several engine contexts in one JVM can be shut down independently. It ensures
+ * thread safety and provides mechanisms for graceful shutdown.</p>
  *
  * <h3>Features:</h3>
  * <ul>
  *   <li>Asynchronous task execution using a fixed-size thread pool.</li>
- *   <li>Periodic task scheduling using a scheduled thread pool.</li>
+ *   <li>Periodic task scheduling using a scheduled thread pool, or in virtual time on a {@link VirtualClock}.</li>
  *   <li>Graceful shutdown of all threads.</li>
  *   <li>Automatic exception handling in submitted tasks.</li>
  * </ul>
@@ -30,11 +45,67 @@ public class ThreadManagerPool {
     // Default pool size based on the number of available CPU cores
     private static final int DEFAULT_THREAD_MANAGER_POOL_SIZE = Runtime.getRuntime().availableProcessors();
 
+    // The worker group of the current thread, so work submitted from a worker can tell
+    private static final ThreadLocal<Object> WORKER_GROUP = new ThreadLocal<>();
+
+    private static final Object SHARED_WORKER_GROUP = new Object();
+
+    // Fixed-size thread pool shared by every default instance
+    private static final ExecutorService sharedThreadPool = Executors.newFixedThreadPool(DEFAULT_THREAD_MANAGER_POOL_SIZE,
+            workerThreadFactory(SHARED_WORKER_GROUP, "pajama-shared-worker"));
+
+    // Scheduled thread pool shared by every default instance
+    private static final ScheduledExecutorService sharedScheduler = Executors.newScheduledThreadPool(2);
+
+    // Checked before timing a task, so disabled recordings cost no wrapper
+    private static final EventType TASK_EXECUTION_EVENT = EventType.getEventType(TaskExecutionEvent.class);
+
     // Fixed-size thread pool for executing asynchronous tasks
-    private static final ExecutorService threadPool = Executors.newFixedThreadPool(DEFAULT_THREAD_MANAGER_POOL_SIZE);
+    private final ExecutorService threadPool;
 
     // Scheduled thread pool for periodic task scheduling
-    private static final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    private final ScheduledExecutorService scheduler;
+
+    private final boolean shared;
+
+    // Identifies the threads of the fixed-size thread pool
+    private final Object workerGroup;
+
+    private final int parallelism;
+
+    // Name reported in the JFR task events
+    private final String name;
+
+    // Periodic tasks go to the scheduler unless this is a virtual clock
+    private volatile EngineClock clock = SystemClock.INSTANCE;
+
+    /**
+     * Creates a thread manager pool backed by the shared application-wide executors.
+     */
+    public ThreadManagerPool() {
+        this.threadPool = sharedThreadPool;
+        this.scheduler = sharedScheduler;
+        this.shared = true;
+        this.workerGroup = SHARED_WORKER_GROUP;
+        this.parallelism = DEFAULT_THREAD_MANAGER_POOL_SIZE;
+        this.name = "shared";
+    }
+
+    /**
+     * Creates a thread manager pool that owns its executors. Closing it does not affect any
+     * other pool.
+     *
+     * @param poolSize the number of threads for asynchronous tasks
+     * @param name     the prefix of the thread names
+     */
+    public ThreadManagerPool(int poolSize, String name) {
+        this.workerGroup = new Object();
+        this.threadPool = Executors.newFixedThreadPool(poolSize, workerThreadFactory(workerGroup, name + "-worker"));
+        this.scheduler = Executors.newScheduledThreadPool(1, namedThreadFactory(name + "-scheduler"));
+        this.shared = false;
+        this.parallelism = poolSize;
+        this.name = name;
+    }
 
     /**
      * Submits a task for asynchronous execution in the fixed-size thread pool.
@@ -42,11 +113,104 @@ public class ThreadManagerPool {
      * @param task the {@link Runnable} task to execute
      */
     public void runAsync(Runnable task) {
-        threadPool.submit(wrapTask(task));
+        threadPool.submit(track(wrapTask(task)));
     }
 
     /**
-     * Schedules a task to run at a fixed rate using the scheduled thread pool.
+     * Runs {@code task} once for every index in {@code [0, taskCount)} and waits until all of them
+     * finished. Indexes are spread over the fixed-size thread pool, the calling thread runs the
+     * last one itself. If any index fails, the first failure is rethrown after all indexes finished.
+     *
+     * <p>Called from a worker of this pool, all indexes run on the calling thread instead. Waiting
+     * for the other workers there could deadlock once every worker waits the same way.
+     *
+     * @param taskCount the number of indexes
+     * @param task the task to run for each index
+     * @throws RuntimeException if a task failed or the calling thread was interrupted while waiting
+     */
+    public void parallelFor(int taskCount, IntConsumer task) {
+        if (taskCount <= 0) {
+            return;
+        }
+        if (isWorkerThread()) {
+            runInline(taskCount, task);
+            return;
+        }
+
+        CountDownLatch done = new CountDownLatch(taskCount - 1);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        for (int index = 0; index < taskCount - 1; index++) {
+            int taskIndex = index;
+            threadPool.execute(track(() -> {
+                try {
+                    task.accept(taskIndex);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }));
+        }
+
+        try {
+            task.accept(taskCount - 1);
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+        }
+
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for parallel tasks.", e);
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    private static void runInline(int taskCount, IntConsumer task) {
+        RuntimeException failure = null;
+        for (int index = 0; index < taskCount; index++) {
+            try {
+                task.accept(index);
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Returns whether the calling thread is a worker of the fixed-size thread pool. Pools created
+     * with the no-argument constructor share their workers.
+     *
+     * @return {@code true} on a worker of this pool
+     */
+    public boolean isWorkerThread() {
+        return WORKER_GROUP.get() == workerGroup;
+    }
+
+    /**
+     * Returns the number of threads of the fixed-size thread pool, a good upper bound for how many
+     * parts to split parallel work into.
+     *
+     * @return the parallelism of the pool
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Schedules a task to run at a fixed rate using the scheduled thread pool. When the pool runs
+     * on a {@link VirtualClock}, the task is scheduled on the clock instead and runs on the
+     * thread advancing it.
      *
      * @param task the {@link Runnable} task to execute
      * @param initialDelay the initial delay before the task is first executed
@@ -54,17 +218,62 @@ public class ThreadManagerPool {
      * @param timeUnit the {@link TimeUnit} of the delay and period
      */
     public void scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit timeUnit) {
-        scheduler.scheduleAtFixedRate(wrapTask(task), initialDelay, period, timeUnit);
+        if (clock instanceof VirtualClock virtualClock) {
+            virtualClock.scheduleAtFixedRate(wrapTask(task), initialDelay, period, timeUnit);
+        } else {
+            scheduler.scheduleAtFixedRate(wrapTask(task), initialDelay, period, timeUnit);
+        }
+    }
+
+    /**
+     * Sets the clock periodic tasks are scheduled on. Tasks scheduled before keep their clock.
+     *
+     * @param clock the clock, {@link SystemClock#INSTANCE} by default
+     * @return the current instance of the ThreadManagerPool
+     */
+    public ThreadManagerPool setClock(EngineClock clock) {
+        this.clock = clock;
+        return this;
+    }
+
+    /**
+     * Returns the clock periodic tasks are scheduled on.
+     *
+     * @return the clock
+     */
+    public EngineClock getClock() {
+        return clock;
     }
 
     /**
-     * Shuts down all threads gracefully.
+     * Shuts down all threads of the shared executors gracefully.
      *
      * <p>Attempts to stop all actively executing tasks, halts the processing of waiting tasks,
      * and releases resources associated with the thread pools. If threads do not terminate within
      * the timeout, they are forcibly shut down.</p>
      */
     public static void shutdown() {
+        shutdown(sharedThreadPool, sharedScheduler);
+    }
+
+    /**
+     * Shuts down the executors of this pool gracefully. For a pool backed by the shared executors
+     * this is the same as {@link #shutdown()}.
+     */
+    public void close() {
+        shutdown(threadPool, scheduler);
+    }
+
+    /**
+     * Returns whether this pool is backed by the shared application-wide executors.
+     *
+     * @return {@code true} for pools created with the no-argument constructor
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    private static void shutdown(ExecutorService threadPool, ScheduledExecutorService scheduler) {
         try {
             threadPool.shutdown();
             scheduler.shutdown();
@@ -101,6 +310,56 @@ public class ThreadManagerPool {
         };
     }
 
+    /**
+     * Emits a {@link TaskQueuedEvent} for a task about to be submitted and, while
+     * {@link TaskExecutionEvent} is enabled, wraps it to record its queue wait and run time.
+     *
+     * @param task the task to submit
+     * @return the task to hand to the executor
+     */
+    private Runnable track(Runnable task) {
+        TaskQueuedEvent queuedEvent = new TaskQueuedEvent();
+        if (queuedEvent.shouldCommit()) {
+            queuedEvent.pool = name;
+            queuedEvent.queueLength = threadPool instanceof ThreadPoolExecutor executor ? executor.getQueue().size() : -1;
+            queuedEvent.commit();
+        }
+
+        if (!TASK_EXECUTION_EVENT.isEnabled()) {
+            return task;
+        }
+
+        long queuedAt = System.nanoTime();
+        return () -> {
+            TaskExecutionEvent event = new TaskExecutionEvent();
+            long waitNanos = System.nanoTime() - queuedAt;
+            event.begin();
+            try {
+                task.run();
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.pool = name;
+                    event.waitNanos = waitNanos;
+                    event.commit();
+                }
+            }
+        };
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return task -> new Thread(task, prefix + "-" + counter.incrementAndGet());
+    }
+
+    private static ThreadFactory workerThreadFactory(Object workerGroup, String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return task -> new Thread(() -> {
+            WORKER_GROUP.set(workerGroup);
+            task.run();
+        }, prefix + "-" + counter.incrementAndGet());
+    }
+
     /**
      * Creates a new thread and executes the provided task asynchronously.
      *